@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.snia.cdmi.v1.domain.Container;
+import org.jclouds.snia.cdmi.v1.features.ContainerApi;
+import org.jclouds.snia.cdmi.v1.queryparams.ContainerQueryParams;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Iterates over the children of a container one window at a time, using {@code children:<from>-<to>} queries, so
+ * that containers with millions of children are never listed in a single response.
+ * <p>
+ * When an executor is given, the next window is fetched in the background while the current one is consumed. The
+ * listing ends with the first window that holds fewer children than the page size.
+ * 
+ * <pre>
+ * {@code
+ * for (String child : new ContainerChildren(containerApi, "myContainer/", 1000, executor)) {
+ *    ...
+ * }
+ * }
+ * </pre>
+ */
+public class ContainerChildren extends FluentIterable<String> {
+
+   public static final int DEFAULT_PAGE_SIZE = 1000;
+
+   private final ContainerApi containerApi;
+   private final String containerName;
+   private final int pageSize;
+   private final ExecutorService executor;
+
+   public ContainerChildren(ContainerApi containerApi, String containerName) {
+      this(containerApi, containerName, DEFAULT_PAGE_SIZE, null);
+   }
+
+   /**
+    * @param containerName
+    *           containerName must end with a forward slash, /.
+    * @param pageSize
+    *           number of children fetched per request
+    * @param executor
+    *           executor fetching the next window in the background, or null to fetch every window when it is
+    *           reached
+    */
+   public ContainerChildren(ContainerApi containerApi, String containerName, int pageSize,
+            @Nullable ExecutorService executor) {
+      this.containerApi = checkNotNull(containerApi, "containerApi");
+      this.containerName = checkNotNull(containerName, "containerName");
+      checkArgument(pageSize > 0, "pageSize must be positive");
+      this.pageSize = pageSize;
+      this.executor = executor;
+   }
+
+   @Override
+   public Iterator<String> iterator() {
+      return new AbstractIterator<String>() {
+         private Iterator<String> current = ImmutableSet.<String> of().iterator();
+         private int from;
+         private boolean last;
+         private Future<Set<String>> prefetched = prefetch(0);
+
+         @Override
+         protected String computeNext() {
+            while (!current.hasNext()) {
+               if (last) {
+                  return endOfData();
+               }
+               Set<String> window = prefetched != null ? await(prefetched) : window(from);
+               from += pageSize;
+               // A short window is the last one
+               last = window.size() < pageSize;
+               prefetched = last ? null : prefetch(from);
+               current = window.iterator();
+            }
+            return current.next();
+         }
+      };
+   }
+
+   private Set<String> window(int from) {
+      Container container = containerApi.get(containerName,
+               ContainerQueryParams.Builder.children(from, from + pageSize - 1));
+      return container == null || container.getChildren() == null ? ImmutableSet.<String> of() : container
+               .getChildren();
+   }
+
+   private Future<Set<String>> prefetch(final int from) {
+      if (executor == null) {
+         return null;
+      }
+      return executor.submit(new Callable<Set<String>>() {
+         @Override
+         public Set<String> call() {
+            return window(from);
+         }
+      });
+   }
+
+   private static <T> T await(Future<T> future) {
+      try {
+         return Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+         throw Throwables.propagate(e.getCause());
+      }
+   }
+
+}
@@ -28,9 +28,14 @@ import org.jclouds.javax.annotation.Nullable;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.base.MoreObjects.ToStringHelper;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 
 /**
  * The base type for all objects in the CDMI model.
@@ -116,9 +121,7 @@ public class CDMIObject {
    private final String objectName;
    private String parentURI;
    private final Map<String, JsonBall> metadata;
-   private Map<String, String> userMetaDataIn;
-   private Map<String, String> systemMetaDataIn;
-   private List<Map<String, String>> aclMetaDataIn;
+   private transient volatile ParsedMetadata parsedMetadata;
 
    protected CDMIObject(Builder<?> builder) {
       this.objectID = checkNotNull(builder.objectID, "objectID");
@@ -183,68 +186,93 @@ public class CDMIObject {
     * Parse Metadata for the container object from the original JsonBall. System metadata data is
     * prefixed with cdmi. System ACL metadata data is prefixed with cdmi_acl
     * 
+    * The metadata is immutable, so it is split once and the views are shared between threads.
     */
-   private void parseMetadata() {
-      userMetaDataIn = Maps.newHashMap();
-      systemMetaDataIn = Maps.newHashMap();
-      aclMetaDataIn = Lists.newArrayList();
-      for (Map.Entry<String, JsonBall> entry : metadata.entrySet()) {
-         String key = entry.getKey();
-         JsonBall value = entry.getValue();
-         if (key.startsWith("cdmi")) {
-            if (key.matches("cdmi_acl")) {
-               String[] cdmi_acl_array = value.toString().split("[{}]");
-               for (int i = 0; i < cdmi_acl_array.length; i++) {
-                  if (!(cdmi_acl_array[i].startsWith("[") || cdmi_acl_array[i].startsWith("]") || cdmi_acl_array[i]
-                           .startsWith(","))) {
-                     Map<String, String> aclMap = Maps.newHashMap();
-                     String[] cdmi_acl_member = cdmi_acl_array[i].split(",");
-                     for (String s : cdmi_acl_member) {
-                        String cdmi_acl_key = s.substring(0, s.indexOf(":"));
-                        String cdmi_acl_value = s.substring(s.indexOf(":") + 1);
-                        cdmi_acl_value = cdmi_acl_value.replace('"', ' ').trim();
-                        aclMap.put(cdmi_acl_key, cdmi_acl_value);
-                     }
-                     aclMetaDataIn.add(aclMap);
-                  }
-               }
-            } else {
-               systemMetaDataIn.put(key, value.toString().replace('"', ' ').trim());
-            }
-         } else {
-            userMetaDataIn.put(key, value.toString().replace('"', ' ').trim());
-         }
+   private ParsedMetadata parsedMetadata() {
+      ParsedMetadata result = parsedMetadata;
+      if (result == null) {
+         result = new ParsedMetadata(metadata);
+         parsedMetadata = result;
       }
+      return result;
    }
 
    /**
     * Get User Metadata for the container object. This field includes any user metadata
     */
    public Map<String, String> getUserMetadata() {
-      if (userMetaDataIn == null) {
-         parseMetadata();
-      }
-      return userMetaDataIn;
+      return parsedMetadata().userMetadata;
    }
 
    /**
     * Get System Metadata for the container object excluding ACL related metadata
     */
    public Map<String, String> getSystemMetadata() {
-      if (systemMetaDataIn == null) {
-         parseMetadata();
-      }
-      return systemMetaDataIn;
+      return parsedMetadata().systemMetadata;
    }
 
    /**
-    * Get System Metadata for the container object excluding ACL related metadata
+    * Get ACL Metadata for the container object, one map per access control entry
     */
    public List<Map<String, String>> getACLMetadata() {
-      if (aclMetaDataIn == null) {
-         parseMetadata();
+      return parsedMetadata().aclMetadata;
+   }
+
+   /**
+    * The user, system and ACL views of the metadata.
+    */
+   private static final class ParsedMetadata {
+      private final Map<String, String> userMetadata;
+      private final Map<String, String> systemMetadata;
+      private final List<Map<String, String>> aclMetadata;
+
+      private ParsedMetadata(Map<String, JsonBall> metadata) {
+         ImmutableMap.Builder<String, String> user = ImmutableMap.builder();
+         ImmutableMap.Builder<String, String> system = ImmutableMap.builder();
+         ImmutableList.Builder<Map<String, String>> acl = ImmutableList.builder();
+         for (Map.Entry<String, JsonBall> entry : metadata.entrySet()) {
+            String key = entry.getKey();
+            JsonElement value = parse(entry.getValue());
+            if (key.equals("cdmi_acl")) {
+               if (value.isJsonArray()) {
+                  for (JsonElement ace : value.getAsJsonArray()) {
+                     if (ace.isJsonObject()) {
+                        acl.add(toMap(ace.getAsJsonObject()));
+                     }
+                  }
+               }
+            } else if (key.startsWith("cdmi")) {
+               system.put(key, asString(value));
+            } else {
+               user.put(key, asString(value));
+            }
+         }
+         this.userMetadata = user.build();
+         this.systemMetadata = system.build();
+         this.aclMetadata = acl.build();
+      }
+
+      private static JsonElement parse(JsonBall value) {
+         String json = value.toString();
+         try {
+            return new JsonParser().parse(json);
+         } catch (JsonParseException e) {
+            // not valid JSON, so keep the raw text
+            return new JsonPrimitive(json.trim());
+         }
+      }
+
+      private static Map<String, String> toMap(JsonObject object) {
+         ImmutableMap.Builder<String, String> map = ImmutableMap.builder();
+         for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+            map.put(entry.getKey(), asString(entry.getValue()));
+         }
+         return map.build();
+      }
+
+      private static String asString(JsonElement value) {
+         return value.isJsonPrimitive() ? value.getAsString() : value.toString();
       }
-      return aclMetaDataIn;
    }
 
    @Override
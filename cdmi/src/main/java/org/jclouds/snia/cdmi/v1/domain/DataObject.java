@@ -75,6 +75,7 @@ public class DataObject extends CDMIObject {
 
    private final String mimetype;
    private final String value;
+   private transient volatile byte[] utf8Value;
 
    protected DataObject(Builder<?> builder) {
       super(builder);
@@ -102,7 +103,7 @@ public class DataObject extends CDMIObject {
     * @return value
     */
    public ByteSource getValueAsByteSource() {
-      return ByteSource.wrap(value.getBytes(Charsets.UTF_8));
+      return ByteSource.wrap(utf8Value());
    }
 
    /**
@@ -122,7 +123,18 @@ public class DataObject extends CDMIObject {
     * @return value
     */
    public byte[] getValueAsByteArray() {
-      return value.getBytes(Charsets.UTF_8);
+      return utf8Value().clone();
+   }
+
+   /**
+    * The value is encoded once, as most callers read it as UTF-8 bytes.
+    */
+   private byte[] utf8Value() {
+      byte[] result = utf8Value;
+      if (result == null) {
+         utf8Value = result = value.getBytes(Charsets.UTF_8);
+      }
+      return result;
    }
 
    /**
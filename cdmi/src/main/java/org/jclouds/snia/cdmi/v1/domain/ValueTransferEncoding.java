@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.domain;
+
+/**
+ * Encodings of the value of a CDMI data object in its JSON representation, as given by its valuetransferencoding
+ * field.
+ */
+public enum ValueTransferEncoding {
+
+   /**
+    * The value is UTF-8 text, stored as is in the JSON string.
+    */
+   UTF_8("utf-8"),
+
+   /**
+    * The value is binary, stored base64 encoded in the JSON string.
+    */
+   BASE64("base64");
+
+   private final String value;
+
+   private ValueTransferEncoding(String value) {
+      this.value = value;
+   }
+
+   public String value() {
+      return value;
+   }
+
+   /**
+    * @return the encoding with the given valuetransferencoding, {@link #UTF_8} if it is null as this is the default
+    */
+   public static ValueTransferEncoding fromValue(String value) {
+      if (value == null) {
+         return UTF_8;
+      }
+      for (ValueTransferEncoding encoding : values()) {
+         if (encoding.value.equalsIgnoreCase(value)) {
+            return encoding;
+         }
+      }
+      throw new IllegalArgumentException("Unsupported valuetransferencoding " + value);
+   }
+
+   @Override
+   public String toString() {
+      return value;
+   }
+
+}
@@ -30,14 +30,17 @@ import javax.ws.rs.Produces;
 
 import org.jclouds.Fallbacks.NullOnNotFoundOr404;
 import org.jclouds.Fallbacks.VoidOnNotFoundOr404;
+import org.jclouds.io.Payload;
 import org.jclouds.rest.annotations.BinderParam;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.Headers;
 import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.ResponseParser;
 import org.jclouds.snia.cdmi.v1.binders.BindQueryParmsToSuffix;
 import org.jclouds.snia.cdmi.v1.domain.DataObject;
 import org.jclouds.snia.cdmi.v1.filters.BasicAuthenticationAndTenantId;
 import org.jclouds.snia.cdmi.v1.filters.StripExtraAcceptHeader;
+import org.jclouds.snia.cdmi.v1.functions.ParseDataObjectValue;
 import org.jclouds.snia.cdmi.v1.options.CreateDataObjectOptions;
 import org.jclouds.snia.cdmi.v1.queryparams.DataObjectQueryParams;
 
@@ -125,6 +128,48 @@ public interface DataApi {
    DataObject create(@PathParam("dataObjectName") String dataObjectName,
          CreateDataObjectOptions... options);
 
+   /**
+    * create CDMI Data object from a JSON body streamed as it is sent
+    * 
+    * 
+    * @param dataObjectName
+    *           dataObjectName must not end with a forward slash, /.
+    * @param payload
+    *           the body of the data object, see {@link org.jclouds.snia.cdmi.v1.io.DataObjectPayloads}
+    * @return DataObject
+    * 
+    *         <pre>
+    *  Examples: 
+    *  {@code
+    *  dataObject = create("myDataObject",
+    *                      DataObjectPayloads.newDataObjectPayload(Files.asByteSource(file), file.length(),
+    *                                                              ValueTransferEncoding.BASE64));
+    * }
+    * 
+    *         <pre>
+    */
+   @PUT
+   @Consumes({ DATAOBJECT, APPLICATION_JSON })
+   @Produces({ DATAOBJECT })
+   @Fallback(NullOnNotFoundOr404.class)
+   @Path("/{dataObjectName}")
+   DataObject create(@PathParam("dataObjectName") String dataObjectName, Payload payload);
+
+   /**
+    * get CDMI Data object value, decoded from the JSON body as it is received instead of being kept as a string
+    * 
+    * @param dataObjectName
+    *           dataObjectName must not end with a forward slash, /.
+    * @return the value, with the mimetype of the data object as content type
+    * @see ParseDataObjectValue
+    */
+   @GET
+   @Consumes({ DATAOBJECT, APPLICATION_JSON })
+   @ResponseParser(ParseDataObjectValue.class)
+   @Fallback(NullOnNotFoundOr404.class)
+   @Path("/{dataObjectName}")
+   Payload getValue(@PathParam("dataObjectName") String dataObjectName);
+
    /**
     * delete CDMI Data object
     * 
@@ -183,6 +183,53 @@ public interface DataNonCDMIContentTypeApi {
    @Headers(keys = "X-CDMI-Partial", values = "true")
    void createPartial(@PathParam("dataObjectName") String dataObjectName, Payload payload);
 
+   /**
+    * create CDMI Data object partial Non CDMI Content Type, writing the payload at the given range of the value.
+    * The X-CDMI-Partial header flag is set to true, so more ranges are expected to follow.
+    * 
+    * @param dataObjectName
+    *           dataObjectName must not end with a forward slash, /.
+    * @param contentRange
+    *           range of the value the payload is written to, such as bytes 0-1023/4096
+    * @param payload
+    *           enables defining the body's payload i.e. file, inputStream, String, ByteArray
+    * 
+    *           <pre>
+    *  Examples: 
+    *  {@code
+    *  createPartial("myDataObject", "bytes 0-4/10", new StringPayload("Hello");
+    *  create("myDataObject", "bytes 5-9/10", new StringPayload("World");
+    * }
+    * 
+    *           <pre>
+    */
+   @PUT
+   @Consumes
+   @Fallback(NullOnNotFoundOr404.class)
+   @Path("/{dataObjectName}")
+   @Headers(keys = "X-CDMI-Partial", values = "true")
+   void createPartial(@PathParam("dataObjectName") String dataObjectName,
+         @HeaderParam("Content-Range") String contentRange, Payload payload);
+
+   /**
+    * create CDMI Data object Non CDMI Content Type, writing the payload at the given range of the value. Without
+    * the X-CDMI-Partial header flag, this completes an object written with
+    * {@link #createPartial(String, String, Payload)}.
+    * 
+    * @param dataObjectName
+    *           dataObjectName must not end with a forward slash, /.
+    * @param contentRange
+    *           range of the value the payload is written to, such as bytes 1024-4095/4096
+    * @param payload
+    *           enables defining the body's payload i.e. file, inputStream, String, ByteArray
+    */
+   @PUT
+   @Consumes
+   @Fallback(NullOnNotFoundOr404.class)
+   @Path("/{dataObjectName}")
+   void create(@PathParam("dataObjectName") String dataObjectName, @HeaderParam("Content-Range") String contentRange,
+         Payload payload);
+
    /**
     * create CDMI Data object Non CDMI Content Type
     * 
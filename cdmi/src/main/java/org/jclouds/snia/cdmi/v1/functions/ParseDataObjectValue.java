@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.functions;
+
+import static com.google.common.io.BaseEncoding.base64;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PushbackReader;
+import java.io.Writer;
+
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpUtils;
+import org.jclouds.io.Payload;
+import org.jclouds.io.payloads.ByteSourcePayload;
+import org.jclouds.snia.cdmi.v1.domain.ValueTransferEncoding;
+import org.jclouds.util.Closeables2;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteSource;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.io.FileBackedOutputStream;
+
+/**
+ * Extracts the value of a CDMI data object from its JSON representation without holding it in memory as a string.
+ * <p>
+ * The body is scanned as it is received: the value field is decoded from its JSON string straight into a buffer
+ * that spills to a temporary file past {@link #MEMORY_THRESHOLD} bytes, and every other field is skipped except the
+ * mimetype and the valuetransferencoding. Base64 values are decoded when the returned payload is read.
+ */
+@Singleton
+public class ParseDataObjectValue implements Function<HttpResponse, Payload> {
+
+   static final int MEMORY_THRESHOLD = 1024 * 1024;
+
+   private static final Appendable NULL_APPENDABLE = new Appendable() {
+      @Override
+      public Appendable append(char c) {
+         return this;
+      }
+
+      @Override
+      public Appendable append(CharSequence csq) {
+         return this;
+      }
+
+      @Override
+      public Appendable append(CharSequence csq, int start, int end) {
+         return this;
+      }
+   };
+
+   @Override
+   public Payload apply(HttpResponse from) {
+      InputStream in = null;
+      try {
+         in = from.getPayload().openStream();
+         return parse(new PushbackReader(new BufferedReader(new InputStreamReader(in, Charsets.UTF_8))));
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      } finally {
+         Closeables2.closeQuietly(in);
+         HttpUtils.releasePayload(from);
+      }
+   }
+
+   private static Payload parse(PushbackReader reader) throws IOException {
+      final FileBackedOutputStream buffer = new FileBackedOutputStream(MEMORY_THRESHOLD, true);
+      CountingOutputStream counting = new CountingOutputStream(buffer);
+      ValueWriter value = new ValueWriter(new OutputStreamWriter(counting, Charsets.UTF_8));
+      String mimetype = null;
+      String encoding = null;
+      try {
+         expect(reader, '{');
+         int c = nextToken(reader);
+         while (c != '}') {
+            if (c != '"') {
+               throw malformed(c);
+            }
+            String key = readString(reader, new StringBuilder()).toString();
+            expect(reader, ':');
+            c = nextToken(reader);
+            if (c == '"' && key.equals("value")) {
+               readString(reader, value);
+            } else if (c == '"' && key.equals("mimetype")) {
+               mimetype = readString(reader, new StringBuilder()).toString();
+            } else if (c == '"' && key.equals("valuetransferencoding")) {
+               encoding = readString(reader, new StringBuilder()).toString();
+            } else {
+               skipValue(reader, c);
+            }
+            c = nextToken(reader);
+            if (c == ',') {
+               c = nextToken(reader);
+            } else if (c != '}') {
+               throw malformed(c);
+            }
+         }
+         value.close();
+      } catch (IOException e) {
+         buffer.reset();
+         throw e;
+      }
+
+      ByteSource source = buffer.asByteSource();
+      long length = counting.getCount();
+      if (ValueTransferEncoding.fromValue(encoding) == ValueTransferEncoding.BASE64) {
+         source = base64().decodingSource(source.asCharSource(Charsets.US_ASCII));
+         length = length / 4 * 3 - value.padding;
+      }
+      Payload payload = new ByteSourcePayload(source) {
+         @Override
+         public void release() {
+            try {
+               buffer.reset();
+            } catch (IOException e) {
+               throw Throwables.propagate(e);
+            }
+         }
+      };
+      payload.getContentMetadata().setContentLength(length);
+      if (mimetype != null) {
+         payload.getContentMetadata().setContentType(mimetype);
+      }
+      return payload;
+   }
+
+   /**
+    * Reads the rest of a JSON string whose opening quote has been read, unescaping it into the given output.
+    */
+   private static <A extends Appendable> A readString(PushbackReader reader, A out) throws IOException {
+      while (true) {
+         int c = read(reader);
+         if (c == '"') {
+            return out;
+         }
+         if (c != '\\') {
+            out.append((char) c);
+            continue;
+         }
+         c = read(reader);
+         switch (c) {
+            case 'b':
+               out.append('\b');
+               break;
+            case 'f':
+               out.append('\f');
+               break;
+            case 'n':
+               out.append('\n');
+               break;
+            case 'r':
+               out.append('\r');
+               break;
+            case 't':
+               out.append('\t');
+               break;
+            case 'u':
+               char[] hex = new char[4];
+               for (int i = 0; i < hex.length; i++) {
+                  hex[i] = (char) read(reader);
+               }
+               try {
+                  out.append((char) Integer.parseInt(new String(hex), 16));
+               } catch (NumberFormatException e) {
+                  throw new IOException("Malformed unicode escape \\u" + new String(hex), e);
+               }
+               break;
+            default:
+               out.append((char) c);
+         }
+      }
+   }
+
+   /**
+    * Skips a JSON value whose first character has been read, including nested objects and arrays.
+    */
+   private static void skipValue(PushbackReader reader, int first) throws IOException {
+      if (first == '"') {
+         readString(reader, NULL_APPENDABLE);
+      } else if (first == '{' || first == '[') {
+         int depth = 1;
+         while (depth > 0) {
+            int c = read(reader);
+            if (c == '"') {
+               readString(reader, NULL_APPENDABLE);
+            } else if (c == '{' || c == '[') {
+               depth++;
+            } else if (c == '}' || c == ']') {
+               depth--;
+            }
+         }
+      } else {
+         // A number, true, false or null runs up to the next delimiter
+         int c = read(reader);
+         while (c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+            c = read(reader);
+         }
+         reader.unread(c);
+      }
+   }
+
+   private static void expect(PushbackReader reader, char expected) throws IOException {
+      int c = nextToken(reader);
+      if (c != expected) {
+         throw malformed(c);
+      }
+   }
+
+   private static int nextToken(PushbackReader reader) throws IOException {
+      int c = read(reader);
+      while (Character.isWhitespace(c)) {
+         c = read(reader);
+      }
+      return c;
+   }
+
+   private static int read(PushbackReader reader) throws IOException {
+      int c = reader.read();
+      if (c == -1) {
+         throw new IOException("Unexpected end of the data object");
+      }
+      return c;
+   }
+
+   private static IOException malformed(int c) {
+      return new IOException("Malformed data object, unexpected character " + (char) c);
+   }
+
+   /**
+    * Writes the value and keeps track of its trailing base64 padding.
+    */
+   private static class ValueWriter implements Appendable {
+      private final Writer out;
+      private int padding;
+
+      ValueWriter(Writer out) {
+         this.out = out;
+      }
+
+      @Override
+      public Appendable append(char c) throws IOException {
+         out.write(c);
+         padding = c == '=' ? padding + 1 : 0;
+         return this;
+      }
+
+      @Override
+      public Appendable append(CharSequence csq) throws IOException {
+         return append(csq, 0, csq.length());
+      }
+
+      @Override
+      public Appendable append(CharSequence csq, int start, int end) throws IOException {
+         for (int i = start; i < end; i++) {
+            append(csq.charAt(i));
+         }
+         return this;
+      }
+
+      void close() throws IOException {
+         out.close();
+      }
+   }
+
+}
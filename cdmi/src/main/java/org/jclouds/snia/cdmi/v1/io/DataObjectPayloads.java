@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.io;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.io.BaseEncoding.base64;
+import static org.jclouds.snia.cdmi.v1.ObjectTypes.DATAOBJECT;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Map;
+
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.snia.cdmi.v1.domain.ValueTransferEncoding;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonObject;
+
+/**
+ * Builds the JSON body of a CDMI data object while streaming its value, which is encoded on the fly as it is sent
+ * instead of being held in memory as a string.
+ */
+public final class DataObjectPayloads {
+
+   private static final int BLOCK_SIZE = 3 * 1024;
+
+   /**
+    * @param value
+    *           the value of the data object, read every time the payload is sent
+    * @param length
+    *           the size of the value in bytes, or null if it is not known
+    * @param encoding
+    *           how the value is encoded in the body, {@link ValueTransferEncoding#UTF_8} requires UTF-8 text
+    * @param mimetype
+    *           the mimetype of the data object, or null to leave it to the server
+    * @param metadata
+    *           the user metadata of the data object
+    * @return a repeatable payload of the {@link org.jclouds.snia.cdmi.v1.ObjectTypes#DATAOBJECT} type, whose length
+    *         is set when the value is base64 encoded and its length is given
+    */
+   public static Payload newDataObjectPayload(final ByteSource value, @Nullable Long length,
+            final ValueTransferEncoding encoding, @Nullable String mimetype, @Nullable Map<String, String> metadata) {
+      checkNotNull(value, "value");
+      checkNotNull(encoding, "encoding");
+      JsonObject body = new JsonObject();
+      if (mimetype != null) {
+         body.addProperty("mimetype", mimetype);
+      }
+      if (metadata != null) {
+         JsonObject jsonMetadata = new JsonObject();
+         for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            jsonMetadata.addProperty(entry.getKey(), entry.getValue());
+         }
+         body.add("metadata", jsonMetadata);
+      }
+      body.addProperty("valuetransferencoding", encoding.value());
+      // Leave the object open and append the value as its last field
+      String head = body.toString();
+      byte[] prefix = (head.substring(0, head.length() - 1) + ",\"value\":\"").getBytes(Charsets.UTF_8);
+      byte[] suffix = "\"}".getBytes(Charsets.UTF_8);
+      ByteSource encodedValue = new ByteSource() {
+         @Override
+         public InputStream openStream() throws IOException {
+            InputStream in = value.openStream();
+            return encoding == ValueTransferEncoding.BASE64 ? new Base64InputStream(in) : new JsonTextInputStream(in);
+         }
+      };
+
+      Payload payload = Payloads.newByteSourcePayload(ByteSource.concat(ByteSource.wrap(prefix), encodedValue,
+               ByteSource.wrap(suffix)));
+      payload.getContentMetadata().setContentType(DATAOBJECT);
+      if (encoding == ValueTransferEncoding.BASE64 && length != null) {
+         payload.getContentMetadata().setContentLength(prefix.length + (length + 2) / 3 * 4 + suffix.length);
+      }
+      return payload;
+   }
+
+   public static Payload newDataObjectPayload(ByteSource value, @Nullable Long length,
+            ValueTransferEncoding encoding) {
+      return newDataObjectPayload(value, length, encoding, null, ImmutableMap.<String, String> of());
+   }
+
+   /**
+    * Encodes a stream block by block, so that only one block is held in memory.
+    */
+   private abstract static class EncodingInputStream extends InputStream {
+      private final InputStream in;
+      private byte[] block = new byte[0];
+      private int position;
+
+      EncodingInputStream(InputStream in) {
+         this.in = in;
+      }
+
+      /**
+       * @return the next encoded block, or null at the end of the stream
+       */
+      protected abstract byte[] nextBlock() throws IOException;
+
+      protected InputStream in() {
+         return in;
+      }
+
+      @Override
+      public int read() throws IOException {
+         if (!fill()) {
+            return -1;
+         }
+         return block[position++] & 0xff;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+         if (len == 0) {
+            return 0;
+         }
+         if (!fill()) {
+            return -1;
+         }
+         int count = Math.min(len, block.length - position);
+         System.arraycopy(block, position, b, off, count);
+         position += count;
+         return count;
+      }
+
+      private boolean fill() throws IOException {
+         while (block != null && position >= block.length) {
+            block = nextBlock();
+            position = 0;
+         }
+         return block != null;
+      }
+
+      @Override
+      public void close() throws IOException {
+         in.close();
+      }
+   }
+
+   /**
+    * Base64 encodes blocks whose size is a multiple of 3 bytes, so that their encodings concatenate without
+    * padding.
+    */
+   private static class Base64InputStream extends EncodingInputStream {
+      private final byte[] buffer = new byte[BLOCK_SIZE];
+
+      Base64InputStream(InputStream in) {
+         super(in);
+      }
+
+      @Override
+      protected byte[] nextBlock() throws IOException {
+         int read = ByteStreams.read(in(), buffer, 0, buffer.length);
+         return read == 0 ? null : base64().encode(buffer, 0, read).getBytes(Charsets.US_ASCII);
+      }
+   }
+
+   /**
+    * Escapes UTF-8 text as the content of a JSON string.
+    */
+   private static class JsonTextInputStream extends EncodingInputStream {
+      private final Reader reader;
+      private final char[] buffer = new char[BLOCK_SIZE];
+      private final StringBuilder escaped = new StringBuilder();
+      private int pending = -1;
+
+      JsonTextInputStream(InputStream in) {
+         super(in);
+         this.reader = new InputStreamReader(in, Charsets.UTF_8);
+      }
+
+      @Override
+      protected byte[] nextBlock() throws IOException {
+         int offset = 0;
+         if (pending != -1) {
+            buffer[offset++] = (char) pending;
+            pending = -1;
+         }
+         int read = reader.read(buffer, offset, buffer.length - offset);
+         int length = offset + Math.max(read, 0);
+         if (length == 0) {
+            return null;
+         }
+         // Never split a surrogate pair between two blocks
+         if (read > 0 && Character.isHighSurrogate(buffer[length - 1])) {
+            pending = buffer[--length];
+         }
+         escaped.setLength(0);
+         for (int i = 0; i < length; i++) {
+            escape(buffer[i], escaped);
+         }
+         return escaped.toString().getBytes(Charsets.UTF_8);
+      }
+
+      private static void escape(char c, StringBuilder out) {
+         switch (c) {
+            case '"':
+               out.append("\\\"");
+               break;
+            case '\\':
+               out.append("\\\\");
+               break;
+            case '\n':
+               out.append("\\n");
+               break;
+            case '\r':
+               out.append("\\r");
+               break;
+            case '\t':
+               out.append("\\t");
+               break;
+            default:
+               if (c < 0x20) {
+                  out.append(String.format("\\u%04x", (int) c));
+               } else {
+                  out.append(c);
+               }
+         }
+      }
+   }
+
+   private DataObjectPayloads() {
+      throw new AssertionError("intentionally unimplemented");
+   }
+
+}
@@ -31,7 +31,8 @@ import com.google.common.io.Files;
 
 /**
  * CreateDataObjectOptions options supported in the REST API for the CREATE CDMI Data Object
- * operation. <h2>
+ * operation. The value is held in memory as a String, large values are better streamed with
+ * {@link org.jclouds.snia.cdmi.v1.io.DataObjectPayloads}. <h2>
  * 
  */
 public class CreateDataObjectOptions extends CreateCDMIObjectOptions {
@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.transfer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.snia.cdmi.v1.domain.DataObject;
+import org.jclouds.snia.cdmi.v1.features.DataNonCDMIContentTypeApi;
+import org.jclouds.snia.cdmi.v1.queryparams.DataObjectQueryParams;
+import org.jclouds.util.Closeables2;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Transfers large data objects as ranges over concurrent requests.
+ * <p>
+ * Downloads request {@code bytes=<from>-<to>} ranges of the value and write each one straight into a
+ * {@link FileChannel} at its offset. Uploads write the first range with the X-CDMI-Partial flag to create the
+ * object, the following ones concurrently, also flagged as partial, and the last range without the flag once every
+ * other range is written, which completes the object. A range that fails is retried on its own.
+ * 
+ * <pre>
+ * {@code
+ * TransferManager transfers = new TransferManager(cdmiApi.getDataNonCDMIContentTypeApiForContainer("myContainer"),
+ *          executor);
+ * transfers.upload("myDataObject", file, "application/octet-stream");
+ * transfers.download("myDataObject", file);
+ * }
+ * </pre>
+ */
+public class TransferManager {
+
+   public static final long DEFAULT_RANGE_SIZE = 32 * 1024 * 1024;
+   public static final int DEFAULT_CONCURRENCY = 4;
+   public static final int DEFAULT_MAX_RETRIES = 3;
+
+   private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+   private final DataNonCDMIContentTypeApi api;
+   private final ExecutorService executor;
+   private final long rangeSize;
+   private final int concurrency;
+   private final int maxRetries;
+
+   public TransferManager(DataNonCDMIContentTypeApi api, ExecutorService executor) {
+      this(api, executor, DEFAULT_RANGE_SIZE, DEFAULT_CONCURRENCY, DEFAULT_MAX_RETRIES);
+   }
+
+   /**
+    * @param executor
+    *           executor running the concurrent requests, it needs at least {@code concurrency} threads
+    * @param rangeSize
+    *           size in bytes of the ranges transferred by each request
+    * @param concurrency
+    *           number of requests in flight for one transfer
+    * @param maxRetries
+    *           number of times a range is retried before the transfer fails
+    */
+   public TransferManager(DataNonCDMIContentTypeApi api, ExecutorService executor, long rangeSize, int concurrency,
+            int maxRetries) {
+      this.api = checkNotNull(api, "api");
+      this.executor = checkNotNull(executor, "executor");
+      checkArgument(rangeSize > 0, "rangeSize must be positive");
+      checkArgument(concurrency > 0, "concurrency must be positive");
+      checkArgument(maxRetries >= 0, "maxRetries must be non-negative");
+      this.rangeSize = rangeSize;
+      this.concurrency = concurrency;
+      this.maxRetries = maxRetries;
+   }
+
+   /**
+    * Downloads the value of a data object into a file, which is created or truncated.
+    * 
+    * @param dataObjectName
+    *           dataObjectName must not end with a forward slash, /.
+    * @return the size of the value, or -1 if the data object does not exist
+    */
+   public long download(String dataObjectName, File file) throws IOException {
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+      try {
+         randomAccessFile.setLength(0);
+         return download(dataObjectName, randomAccessFile.getChannel());
+      } finally {
+         randomAccessFile.close();
+      }
+   }
+
+   /**
+    * Downloads the value of a data object into a channel, at the same offsets as in the value.
+    * 
+    * @param dataObjectName
+    *           dataObjectName must not end with a forward slash, /.
+    * @return the size of the value, or -1 if the data object does not exist
+    */
+   public long download(final String dataObjectName, final FileChannel channel) throws IOException {
+      DataObject dataObject = api.get(dataObjectName, DataObjectQueryParams.Builder.metadata("cdmi_size"));
+      if (dataObject == null) {
+         return -1;
+      }
+      String cdmiSize = dataObject.getSystemMetadata().get("cdmi_size");
+      if (cdmiSize == null) {
+         // Without the size the value can't be split, read it in one go
+         Payload payload = api.getValue(dataObjectName);
+         return payload == null ? -1 : write(payload, channel, 0, Long.MAX_VALUE);
+      }
+
+      final long size = Long.parseLong(cdmiSize);
+      transfer(ranges(size), new RangeTransfer() {
+         @Override
+         public void transfer(long from, long length) throws IOException {
+            Payload payload = api.getValue(dataObjectName, "bytes=" + from + "-" + (from + length - 1));
+            if (payload == null) {
+               throw new IOException(dataObjectName + " has been deleted during its download");
+            }
+            long written = write(payload, channel, from, length);
+            if (written != length) {
+               throw new IOException("received " + written + " bytes of the range " + from + "-"
+                        + (from + length - 1) + " of " + dataObjectName);
+            }
+         }
+      });
+      return size;
+   }
+
+   /**
+    * Uploads a file as the value of a data object.
+    * 
+    * @param dataObjectName
+    *           dataObjectName must not end with a forward slash, /.
+    * @param contentType
+    *           mime type of the value, or null to leave it unset
+    */
+   public void upload(final String dataObjectName, File file, @Nullable final String contentType)
+            throws IOException {
+      final ByteSource source = Files.asByteSource(file);
+      final long size = file.length();
+      if (size <= rangeSize) {
+         api.create(dataObjectName, payload(source, 0, size, contentType));
+         return;
+      }
+
+      List<long[]> ranges = ranges(size);
+      RangeTransfer partial = new RangeTransfer() {
+         @Override
+         public void transfer(long from, long length) {
+            api.createPartial(dataObjectName, contentRange(from, length, size),
+                     payload(source, from, length, contentType));
+         }
+      };
+      // The first range creates the object, which must exist before other ranges are written to it
+      transfer(ranges.subList(0, 1), partial);
+      transfer(ranges.subList(1, ranges.size() - 1), partial);
+      // Writing the last range without the partial flag completes the object
+      transfer(ranges.subList(ranges.size() - 1, ranges.size()), new RangeTransfer() {
+         @Override
+         public void transfer(long from, long length) {
+            api.create(dataObjectName, contentRange(from, length, size), payload(source, from, length, contentType));
+         }
+      });
+   }
+
+   private interface RangeTransfer {
+      void transfer(long from, long length) throws IOException;
+   }
+
+   /**
+    * Runs the transfer of every range, with at most {@link #concurrency} of them in flight. The first range that
+    * fails after its retries stops the ranges not started yet and fails the transfer.
+    */
+   private void transfer(final List<long[]> ranges, final RangeTransfer rangeTransfer) throws IOException {
+      final AtomicInteger next = new AtomicInteger();
+      final AtomicBoolean failed = new AtomicBoolean();
+      List<Future<Void>> workers = Lists.newArrayList();
+      for (int i = 0; i < Math.min(concurrency, ranges.size()); i++) {
+         workers.add(executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+               int index;
+               while (!failed.get() && (index = next.getAndIncrement()) < ranges.size()) {
+                  try {
+                     transferWithRetries(ranges.get(index), rangeTransfer);
+                  } catch (Exception e) {
+                     failed.set(true);
+                     throw e;
+                  }
+               }
+               return null;
+            }
+         }));
+      }
+
+      Throwable failure = null;
+      for (Future<Void> worker : workers) {
+         try {
+            Uninterruptibles.getUninterruptibly(worker);
+         } catch (ExecutionException e) {
+            if (failure == null) {
+               failure = e.getCause();
+            }
+         }
+      }
+      if (failure != null) {
+         Throwables.propagateIfPossible(failure, IOException.class);
+         throw new IOException(failure);
+      }
+   }
+
+   private void transferWithRetries(long[] range, RangeTransfer rangeTransfer) throws IOException {
+      for (int attempt = 0;; attempt++) {
+         try {
+            rangeTransfer.transfer(range[0], range[1]);
+            return;
+         } catch (IOException e) {
+            if (attempt >= maxRetries) {
+               throw e;
+            }
+         } catch (RuntimeException e) {
+            if (attempt >= maxRetries) {
+               throw e;
+            }
+         }
+      }
+   }
+
+   /**
+    * @return the offset and length of every range of a value of the given size
+    */
+   private List<long[]> ranges(long size) {
+      List<long[]> ranges = Lists.newArrayList();
+      for (long from = 0; from < size; from += rangeSize) {
+         ranges.add(new long[] { from, Math.min(rangeSize, size - from) });
+      }
+      return ranges;
+   }
+
+   private static String contentRange(long from, long length, long size) {
+      return "bytes " + from + "-" + (from + length - 1) + "/" + size;
+   }
+
+   private static Payload payload(ByteSource source, long from, long length, @Nullable String contentType) {
+      Payload payload = Payloads.newByteSourcePayload(source.slice(from, length));
+      payload.getContentMetadata().setContentLength(length);
+      if (contentType != null) {
+         payload.getContentMetadata().setContentType(contentType);
+      }
+      return payload;
+   }
+
+   /**
+    * Writes at most {@code length} bytes of a payload to a channel, starting at the given position.
+    * 
+    * @return the number of bytes written
+    */
+   private static long write(Payload payload, FileChannel channel, long position, long length) throws IOException {
+      InputStream in = payload.openStream();
+      try {
+         byte[] bytes = new byte[COPY_BUFFER_SIZE];
+         ByteBuffer buffer = ByteBuffer.wrap(bytes);
+         long written = 0;
+         while (written < length) {
+            int read = in.read(bytes, 0, (int) Math.min(bytes.length, length - written));
+            if (read == -1) {
+               break;
+            }
+            buffer.clear().limit(read);
+            while (buffer.hasRemaining()) {
+               written += channel.write(buffer, position + written);
+            }
+         }
+         return written;
+      } finally {
+         Closeables2.closeQuietly(in);
+         payload.release();
+      }
+   }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.collect;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.io.BaseEncoding.base64;
+import static org.testng.Assert.assertEquals;
+
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.snia.cdmi.v1.CDMIApi;
+import org.jclouds.snia.cdmi.v1.internal.BaseCDMIApiExpectTest;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "ContainerChildrenExpectTest")
+public class ContainerChildrenExpectTest extends BaseCDMIApiExpectTest {
+
+   public void testIteratesOverWindows() throws Exception {
+      CDMIApi api = requestsSendResponses(ImmutableMap.<HttpRequest, HttpResponse> of(
+               getChildren(0, 1), children("\"a\",\"b\""),
+               getChildren(2, 3), children("\"c\",\"d\""),
+               getChildren(4, 5), children("\"e\"")));
+
+      assertEquals(ImmutableList.copyOf(new ContainerChildren(api.getContainerApi(), "MyContainer/", 2, null)),
+               ImmutableList.of("a", "b", "c", "d", "e"));
+   }
+
+   public void testPrefetchesNextWindow() throws Exception {
+      CDMIApi api = requestsSendResponses(ImmutableMap.<HttpRequest, HttpResponse> of(
+               getChildren(0, 1), children("\"a\",\"b\""),
+               getChildren(2, 3), children("")));
+
+      assertEquals(ImmutableList.copyOf(new ContainerChildren(api.getContainerApi(), "MyContainer/", 2,
+               MoreExecutors.newDirectExecutorService())), ImmutableList.of("a", "b"));
+   }
+
+   private static HttpRequest getChildren(int from, int to) {
+      return HttpRequest
+               .builder()
+               .method("GET")
+               .endpoint("http://localhost:8080/MyContainer/?children:" + from + "-" + to + ";")
+               .headers(ImmutableMultimap.<String, String> builder().put("X-CDMI-Specification-Version", "1.0.1")
+                        .put("TID", "tenantId")
+                        .put("Authorization", "Basic " + base64().encode("username:password".getBytes(UTF_8)))
+                        .put("Accept", "application/cdmi-container").build()).build();
+   }
+
+   private HttpResponse children(String children) {
+      return HttpResponse.builder().statusCode(200)
+               .payload(payloadFromStringWithContentType("{\"children\":[" + children + "]}",
+                        "application/cdmi-container")).build();
+   }
+
+}
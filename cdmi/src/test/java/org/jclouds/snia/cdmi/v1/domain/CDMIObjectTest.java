@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.domain;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.Map;
+
+import org.jclouds.domain.JsonBall;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+@Test(groups = "unit", testName = "CDMIObjectTest")
+public class CDMIObjectTest {
+
+   private final CDMIObject object = CDMIObject.builder().objectID("id").objectType("application/cdmi-object")
+            .parentURI("/").metadata(ImmutableMap.<String, JsonBall> builder()
+                     .put("color", new JsonBall("\"blue, \\\"navy\\\"\""))
+                     .put("tags", new JsonBall("[\"a\",\"b\"]"))
+                     .put("cdmi_size", new JsonBall("83"))
+                     .put("cdmi_acl", new JsonBall("[{\"identifier\":\"OWNER@\",\"acetype\":\"0x00\","
+                              + "\"aceflags\":\"0x03\",\"acemask\":\"0x1f07ff\"},"
+                              + "{\"identifier\":\"EVERYONE@\",\"acetype\":\"0x00\"}]"))
+                     .build()).build();
+
+   public void testUserMetadata() {
+      assertEquals(object.getUserMetadata(), ImmutableMap.of("color", "blue, \"navy\"", "tags", "[\"a\",\"b\"]"));
+   }
+
+   public void testSystemMetadata() {
+      assertEquals(object.getSystemMetadata(), ImmutableMap.of("cdmi_size", "83"));
+   }
+
+   public void testACLMetadata() {
+      assertEquals(object.getACLMetadata(), ImmutableList.<Map<String, String>> of(
+               ImmutableMap.of("identifier", "OWNER@", "acetype", "0x00", "aceflags", "0x03", "acemask", "0x1f07ff"),
+               ImmutableMap.of("identifier", "EVERYONE@", "acetype", "0x00")));
+   }
+
+   public void testMetadataIsParsedOnce() {
+      assertSame(object.getUserMetadata(), object.getUserMetadata());
+      assertSame(object.getSystemMetadata(), object.getSystemMetadata());
+      assertSame(object.getACLMetadata(), object.getACLMetadata());
+   }
+}
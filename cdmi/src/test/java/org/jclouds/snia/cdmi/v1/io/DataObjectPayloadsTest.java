@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.io;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.jclouds.http.HttpResponse;
+import org.jclouds.io.Payload;
+import org.jclouds.snia.cdmi.v1.domain.ValueTransferEncoding;
+import org.jclouds.snia.cdmi.v1.functions.ParseDataObjectValue;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+@Test(groups = "unit", testName = "DataObjectPayloadsTest")
+public class DataObjectPayloadsTest {
+
+   public void testBase64RoundTrip() throws IOException {
+      byte[] value = new byte[3 * 1024 * 5 + 7];
+      new Random(0).nextBytes(value);
+
+      Payload payload = DataObjectPayloads.newDataObjectPayload(ByteSource.wrap(value), (long) value.length,
+               ValueTransferEncoding.BASE64, "application/octet-stream", ImmutableMap.of("key", "value"));
+      byte[] body = ByteStreams.toByteArray(payload.openStream());
+      assertEquals(payload.getContentMetadata().getContentLength(), Long.valueOf(body.length));
+
+      JsonObject json = new JsonParser().parse(new String(body, Charsets.UTF_8)).getAsJsonObject();
+      assertEquals(json.get("valuetransferencoding").getAsString(), "base64");
+      assertEquals(json.get("metadata").getAsJsonObject().get("key").getAsString(), "value");
+
+      Payload parsed = parse(body);
+      assertEquals(ByteStreams.toByteArray(parsed.openStream()), value);
+      assertEquals(parsed.getContentMetadata().getContentLength(), Long.valueOf(value.length));
+      assertEquals(parsed.getContentMetadata().getContentType(), "application/octet-stream");
+   }
+
+   public void testUtf8RoundTrip() throws IOException {
+      StringBuilder text = new StringBuilder();
+      for (int i = 0; i < 2000; i++) {
+         text.append("line \"").append(i).append("\"\\ café 😀\t\u0001\n");
+      }
+      byte[] value = text.toString().getBytes(Charsets.UTF_8);
+
+      Payload payload = DataObjectPayloads.newDataObjectPayload(ByteSource.wrap(value), (long) value.length,
+               ValueTransferEncoding.UTF_8);
+      byte[] body = ByteStreams.toByteArray(payload.openStream());
+
+      JsonObject json = new JsonParser().parse(new String(body, Charsets.UTF_8)).getAsJsonObject();
+      assertEquals(json.get("value").getAsString(), text.toString());
+
+      Payload parsed = parse(body);
+      assertEquals(ByteStreams.toByteArray(parsed.openStream()), value);
+      assertEquals(parsed.getContentMetadata().getContentLength(), Long.valueOf(value.length));
+   }
+
+   public void testUnknownLength() throws IOException {
+      Payload payload = DataObjectPayloads.newDataObjectPayload(ByteSource.wrap(new byte[10]), null,
+               ValueTransferEncoding.BASE64);
+      assertNull(payload.getContentMetadata().getContentLength());
+   }
+
+   public void testParseSkipsOtherFields() throws IOException {
+      String body = "{ \"objectType\" : \"application/cdmi-object\", \"metadata\" : { \"cdmi_acl\" : [ { \"a\" : "
+               + "\"}]\" } ], \"cdmi_size\" : 5 }, \"value\" : \"SGVsbG8=\", \"completionStatus\" : null, "
+               + "\"valuetransferencoding\" : \"base64\", \"mimetype\" : \"text/plain\" }";
+
+      Payload parsed = parse(body.getBytes(Charsets.UTF_8));
+      assertEquals(new String(ByteStreams.toByteArray(parsed.openStream()), Charsets.UTF_8), "Hello");
+      assertEquals(parsed.getContentMetadata().getContentLength(), Long.valueOf(5));
+      assertEquals(parsed.getContentMetadata().getContentType(), "text/plain");
+   }
+
+   private static Payload parse(byte[] body) {
+      return new ParseDataObjectValue().apply(HttpResponse.builder().statusCode(200).payload(body).build());
+   }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.snia.cdmi.v1.transfer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.domain.JsonBall;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.jclouds.snia.cdmi.v1.domain.DataObject;
+import org.jclouds.snia.cdmi.v1.features.DataNonCDMIContentTypeApi;
+import org.jclouds.snia.cdmi.v1.queryparams.DataObjectQueryParams;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+@Test(groups = "unit", testName = "TransferManagerTest", singleThreaded = true)
+public class TransferManagerTest {
+
+   private static final String NAME = "myDataObject";
+
+   private ExecutorService executor;
+   private InMemoryDataApi api;
+   private File file;
+
+   @BeforeMethod
+   protected void setUp() throws IOException {
+      executor = Executors.newFixedThreadPool(4);
+      api = new InMemoryDataApi();
+      file = File.createTempFile("transfer", ".bin");
+   }
+
+   @AfterMethod
+   protected void tearDown() {
+      executor.shutdownNow();
+      file.delete();
+   }
+
+   public void testUploadWritesRangesAndCompletesLast() throws IOException {
+      byte[] content = content(1000);
+      Files.write(content, file);
+
+      new TransferManager(api, executor, 100, 4, 0).upload(NAME, file, "application/octet-stream");
+
+      assertEquals(api.values.get(NAME), content);
+      assertEquals(api.partialWrites.get(), 9);
+      List<String> writes = api.writes;
+      assertEquals(writes.get(0), "partial bytes 0-99/1000");
+      assertEquals(writes.get(writes.size() - 1), "complete bytes 900-999/1000");
+   }
+
+   public void testUploadOfSmallFileIsSingleRequest() throws IOException {
+      byte[] content = content(10);
+      Files.write(content, file);
+
+      new TransferManager(api, executor, 100, 4, 0).upload(NAME, file, null);
+
+      assertEquals(api.values.get(NAME), content);
+      assertEquals(api.writes, ImmutableList.of("complete"));
+   }
+
+   public void testDownloadWritesRangesAtTheirOffsets() throws IOException {
+      byte[] content = content(1050);
+      api.values.put(NAME, content);
+
+      assertEquals(new TransferManager(api, executor, 100, 4, 0).download(NAME, file), 1050);
+
+      assertEquals(Files.toByteArray(file), content);
+      assertEquals(api.rangeReads.get(), 11);
+   }
+
+   public void testFailedRangesAreRetried() throws IOException {
+      byte[] content = content(500);
+      api.values.put(NAME, content);
+      api.failures.set(3);
+
+      new TransferManager(api, executor, 100, 2, 3).download(NAME, file);
+
+      assertEquals(Files.toByteArray(file), content);
+   }
+
+   public void testTransferFailsOnceRetriesAreExhausted() throws IOException {
+      // Failures of a range are rethrown as is once it has been retried
+      api.values.put(NAME, content(500));
+      api.failures.set(100);
+
+      try {
+         new TransferManager(api, executor, 100, 2, 1).download(NAME, file);
+         fail("the download should have failed");
+      } catch (IllegalStateException expected) {
+         assertTrue(expected.getMessage().contains("injected"));
+      }
+   }
+
+   public void testDownloadOfMissingObject() throws IOException {
+      assertEquals(new TransferManager(api, executor).download(NAME, file), -1);
+   }
+
+   private static byte[] content(int size) {
+      byte[] content = new byte[size];
+      new Random(size).nextBytes(content);
+      return content;
+   }
+
+   /**
+    * Keeps values in memory, honoring ranges and failing the number of range requests it is told to.
+    */
+   private static class InMemoryDataApi implements DataNonCDMIContentTypeApi {
+
+      private final Map<String, byte[]> values = Maps.newConcurrentMap();
+      private final List<String> writes = Lists.newCopyOnWriteArrayList();
+      private final AtomicInteger partialWrites = new AtomicInteger();
+      private final AtomicInteger rangeReads = new AtomicInteger();
+      private final AtomicInteger failures = new AtomicInteger();
+
+      @Override
+      public Payload getValue(String dataObjectName) {
+         byte[] value = values.get(dataObjectName);
+         return value == null ? null : Payloads.newByteArrayPayload(value);
+      }
+
+      @Override
+      public Payload getValue(String dataObjectName, String range) {
+         if (failures.getAndDecrement() > 0) {
+            throw new IllegalStateException("injected failure");
+         }
+         rangeReads.incrementAndGet();
+         byte[] value = values.get(dataObjectName);
+         String[] bounds = range.substring("bytes=".length()).split("-");
+         int from = Integer.parseInt(bounds[0]);
+         int to = Math.min(Integer.parseInt(bounds[1]), value.length - 1);
+         byte[] slice = new byte[to - from + 1];
+         System.arraycopy(value, from, slice, 0, slice.length);
+         return Payloads.newByteArrayPayload(slice);
+      }
+
+      @Override
+      public DataObject get(String dataObjectName, DataObjectQueryParams queryParams) {
+         byte[] value = values.get(dataObjectName);
+         if (value == null) {
+            return null;
+         }
+         return DataObject.builder().objectID("id").objectType("application/cdmi-object").parentURI("/")
+                  .metadata(ImmutableMap.of("cdmi_size", new JsonBall(String.valueOf(value.length)))).build();
+      }
+
+      @Override
+      public void create(String dataObjectName, Payload payload) {
+         writes.add("complete");
+         values.put(dataObjectName, read(payload));
+      }
+
+      @Override
+      public void createPartial(String dataObjectName, Payload payload) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void createPartial(String dataObjectName, String contentRange, Payload payload) {
+         partialWrites.incrementAndGet();
+         writes.add("partial " + contentRange);
+         write(dataObjectName, contentRange, payload);
+      }
+
+      @Override
+      public void create(String dataObjectName, String contentRange, Payload payload) {
+         writes.add("complete " + contentRange);
+         write(dataObjectName, contentRange, payload);
+      }
+
+      @Override
+      public void create(String dataObjectName, String input) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void delete(String dataObjectName) {
+         values.remove(dataObjectName);
+      }
+
+      private synchronized void write(String dataObjectName, String contentRange, Payload payload) {
+         String[] parts = contentRange.substring("bytes ".length()).split("[-/]");
+         int from = Integer.parseInt(parts[0]);
+         byte[] value = values.get(dataObjectName);
+         if (value == null) {
+            value = new byte[Integer.parseInt(parts[2])];
+            values.put(dataObjectName, value);
+         }
+         byte[] data = read(payload);
+         assertEquals(data.length, Integer.parseInt(parts[1]) - from + 1);
+         System.arraycopy(data, 0, value, from, data.length);
+      }
+
+      private static byte[] read(Payload payload) {
+         try {
+            return ByteStreams.toByteArray(payload.openStream());
+         } catch (IOException e) {
+            throw Throwables.propagate(e);
+         }
+      }
+   }
+
+}
@@ -16,7 +16,10 @@
  */
 package org.jclouds.h2.jdbc;
 
+import java.util.Properties;
+
 import org.jclouds.h2.jdbc.config.H2JdbcBlobStoreContextModule;
+import org.jclouds.h2.jdbc.reference.H2JdbcConstants;
 import org.jclouds.jdbc.JdbcApiMetadata;
 import org.jclouds.providers.ProviderMetadata;
 import org.jclouds.providers.internal.BaseProviderMetadata;
@@ -43,6 +46,19 @@ public class H2JdbcProviderMetadata extends BaseProviderMetadata {
       super(builder);
    }
 
+   public static Properties defaultProperties() {
+      Properties properties = new Properties();
+      properties.putAll(new JdbcApiMetadata().getDefaultProperties());
+      properties.setProperty(H2JdbcConstants.PROPERTY_URL, H2JdbcConstants.DEFAULT_URL);
+      properties.setProperty(H2JdbcConstants.PROPERTY_POOL_SIZE, String.valueOf(H2JdbcConstants.DEFAULT_POOL_SIZE));
+      properties.setProperty(H2JdbcConstants.PROPERTY_QUERY_CACHE_SIZE,
+            String.valueOf(H2JdbcConstants.DEFAULT_QUERY_CACHE_SIZE));
+      properties.setProperty(H2JdbcConstants.PROPERTY_CACHE_SIZE, String.valueOf(H2JdbcConstants.DEFAULT_CACHE_SIZE));
+      properties.setProperty(H2JdbcConstants.PROPERTY_STORAGE, H2JdbcConstants.STORAGE_JPA);
+      properties.setProperty(H2JdbcConstants.PROPERTY_MVSTORE_FILE, H2JdbcConstants.DEFAULT_MVSTORE_FILE);
+      return properties;
+   }
+
    public static class Builder extends BaseProviderMetadata.Builder {
       protected Builder() {
          id("h2-jdbc")
@@ -50,7 +66,8 @@ public class H2JdbcProviderMetadata extends BaseProviderMetadata {
                .apiMetadata(new JdbcApiMetadata()
                      .toBuilder()
                      .defaultModule(H2JdbcBlobStoreContextModule.class)
-                     .build());
+                     .build())
+               .defaultProperties(H2JdbcProviderMetadata.defaultProperties());
       }
 
       @Override
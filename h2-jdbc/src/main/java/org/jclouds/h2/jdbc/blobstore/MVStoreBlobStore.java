@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.blobstore;
+
+import javax.inject.Provider;
+
+import org.jclouds.blobstore.LocalStorageStrategy;
+import org.jclouds.blobstore.config.LocalBlobStore;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.h2.jdbc.strategy.MVStoreStorageStrategy;
+import org.jclouds.jdbc.blobstore.DelegatingLocalBlobStore;
+
+import com.google.inject.Inject;
+
+/**
+ * {@link LocalBlobStore} backed by a {@link MVStoreStorageStrategy}, which lists containers from its sorted maps
+ * and fetches blob metadata without building payloads.
+ */
+public class MVStoreBlobStore extends DelegatingLocalBlobStore {
+
+   private final MVStoreStorageStrategy storageStrategy;
+
+   @Inject
+   MVStoreBlobStore(Provider<LocalBlobStore> localBlobStore, LocalStorageStrategy storageStrategy) {
+      super(localBlobStore);
+      this.storageStrategy = (MVStoreStorageStrategy) storageStrategy;
+   }
+
+   @Override
+   public BlobMetadata blobMetadata(String container, String key) {
+      return storageStrategy.getBlobMetadata(container, key);
+   }
+
+   @Override
+   public PageSet<? extends StorageMetadata> list(String container) {
+      return list(container, ListContainerOptions.NONE);
+   }
+
+   @Override
+   public PageSet<? extends StorageMetadata> list(String container, ListContainerOptions options) {
+      return storageStrategy.list(container, options);
+   }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.config;
+
+import java.io.Closeable;
+import java.util.Locale;
+import java.util.Properties;
+
+import javax.inject.Named;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.h2.jdbcx.JdbcDataSource;
+import org.jclouds.h2.jdbc.reference.H2JdbcConstants;
+import org.jclouds.jdbc.config.JPAInitializer;
+import org.jclouds.lifecycle.Closer;
+
+import com.google.inject.Inject;
+
+/**
+ * Sets up the pooled data source of the persistence unit from the provider properties. It is injected as an
+ * injection request, which Guice performs before creating eager singletons, so the data source is in the
+ * persistence properties by the time {@link JPAInitializer} starts the persist service.
+ */
+public class H2DataSourceInitializer {
+
+   static final String DATASOURCE_PROPERTY = "hibernate.connection.datasource";
+
+   private final Properties persistenceProperties;
+
+   H2DataSourceInitializer(Properties persistenceProperties) {
+      this.persistenceProperties = persistenceProperties;
+   }
+
+   @Inject
+   void initialize(@Named(H2JdbcConstants.PROPERTY_URL) String url,
+         @Named(H2JdbcConstants.PROPERTY_POOL_SIZE) int poolSize,
+         @Named(H2JdbcConstants.PROPERTY_QUERY_CACHE_SIZE) int queryCacheSize,
+         @Named(H2JdbcConstants.PROPERTY_CACHE_SIZE) int cacheSize, Closer closer) {
+      JdbcDataSource dataSource = new JdbcDataSource();
+      dataSource.setURL(withSetting(withSetting(url, "QUERY_CACHE_SIZE", queryCacheSize), "CACHE_SIZE", cacheSize));
+      dataSource.setUser("sa");
+      final JdbcConnectionPool pool = JdbcConnectionPool.create(dataSource);
+      pool.setMaxConnections(poolSize);
+      persistenceProperties.put(DATASOURCE_PROPERTY, pool);
+      // Added before the persist service registers, so closed after it as the closer works in reverse order
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() {
+            pool.dispose();
+         }
+      });
+   }
+
+   /**
+    * Appends a positive setting to the URL, unless the URL sets it already.
+    */
+   static String withSetting(String url, String setting, int value) {
+      if (value <= 0 || url.toUpperCase(Locale.ENGLISH).contains(";" + setting + "=")) {
+         return url;
+      }
+      return url + ";" + setting + "=" + value;
+   }
+
+}
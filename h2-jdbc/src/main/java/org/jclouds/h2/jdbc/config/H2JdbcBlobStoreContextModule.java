@@ -16,23 +16,82 @@
  */
 package org.jclouds.h2.jdbc.config;
 
+import java.io.Closeable;
 import java.util.Properties;
 
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.OffHeapStore;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.LocalStorageStrategy;
+import org.jclouds.blobstore.util.BlobUtils;
+import org.jclouds.h2.jdbc.blobstore.MVStoreBlobStore;
+import org.jclouds.h2.jdbc.reference.H2JdbcConstants;
+import org.jclouds.h2.jdbc.strategy.MVStoreStorageStrategy;
+import org.jclouds.h2.jdbc.util.MVStoreBlobUtils;
+import org.jclouds.jdbc.blobstore.JdbcBlobStore;
 import org.jclouds.jdbc.config.JdbcBlobStoreContextModule;
+import org.jclouds.jdbc.strategy.JdbcStorageStrategy;
+import org.jclouds.jdbc.util.JdbcBlobUtils;
+import org.jclouds.lifecycle.Closer;
 
+import com.google.common.base.Strings;
+import com.google.inject.Provides;
 import com.google.inject.persist.jpa.JpaPersistModule;
 
 public class H2JdbcBlobStoreContextModule extends JdbcBlobStoreContextModule {
 
-   private static final String DEFAULT_FILE = "./jclouds-db";
-
-   protected void configure() {
-      super.configure();
-
+   /**
+    * Binds both storages, the one selected by {@link H2JdbcConstants#PROPERTY_STORAGE} being the only one started.
+    */
+   @Override
+   protected void bindStorage() {
+      // Filled with the pooled data source before the persist service starts
       Properties properties = new Properties();
-      properties.setProperty("hibernate.connection.url", "jdbc:h2:" + DEFAULT_FILE);
+      requestInjection(new H2DataSourceInitializer(properties));
 
       install(new JpaPersistModule("jclouds-h2").properties(properties));
+      bind(H2StorageInitializer.class).asEagerSingleton();
+   }
+
+   @Provides
+   protected BlobStore provideBlobStore(@Named(H2JdbcConstants.PROPERTY_STORAGE) String storage,
+         Provider<JdbcBlobStore> jpa, Provider<MVStoreBlobStore> mvStore) {
+      return H2StorageInitializer.usesMVStore(storage) ? mvStore.get() : jpa.get();
+   }
+
+   @Provides
+   protected LocalStorageStrategy provideStorageStrategy(@Named(H2JdbcConstants.PROPERTY_STORAGE) String storage,
+         Provider<JdbcStorageStrategy> jpa, Provider<MVStoreStorageStrategy> mvStore) {
+      return H2StorageInitializer.usesMVStore(storage) ? mvStore.get() : jpa.get();
+   }
+
+   @Provides
+   protected BlobUtils provideBlobUtils(@Named(H2JdbcConstants.PROPERTY_STORAGE) String storage,
+         Provider<JdbcBlobUtils> jpa, Provider<MVStoreBlobUtils> mvStore) {
+      return H2StorageInitializer.usesMVStore(storage) ? mvStore.get() : jpa.get();
+   }
+
+   @Provides
+   @Singleton
+   protected MVStore provideMVStore(@Named(H2JdbcConstants.PROPERTY_MVSTORE_FILE) String fileName, Closer closer) {
+      MVStore.Builder builder = new MVStore.Builder();
+      if (Strings.isNullOrEmpty(fileName)) {
+         builder.fileStore(new OffHeapStore());
+      } else {
+         builder.fileName(fileName);
+      }
+      final MVStore store = builder.open();
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() {
+            store.close();
+         }
+      });
+      return store;
    }
 
 }
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.config;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.jclouds.h2.jdbc.reference.H2JdbcConstants;
+import org.jclouds.jdbc.config.JPAInitializer;
+import org.jclouds.jdbc.config.OrphanChunkSweeper;
+
+import com.google.inject.Inject;
+
+/**
+ * Starts the storage selected by {@link H2JdbcConstants#PROPERTY_STORAGE}. The JPA persistence unit is only started
+ * when blobs are stored through JPA; the MVStore is opened the first time it is needed.
+ */
+public class H2StorageInitializer {
+
+   @Inject
+   private H2StorageInitializer(@Named(H2JdbcConstants.PROPERTY_STORAGE) String storage,
+         Provider<JPAInitializer> jpaInitializer, Provider<OrphanChunkSweeper> orphanChunkSweeper) {
+      if (!usesMVStore(storage)) {
+         jpaInitializer.get();
+         orphanChunkSweeper.get();
+      }
+   }
+
+   static boolean usesMVStore(String storage) {
+      checkArgument(H2JdbcConstants.STORAGE_JPA.equals(storage) || H2JdbcConstants.STORAGE_MVSTORE.equals(storage),
+            "%s must be %s or %s", H2JdbcConstants.PROPERTY_STORAGE, H2JdbcConstants.STORAGE_JPA,
+            H2JdbcConstants.STORAGE_MVSTORE);
+      return H2JdbcConstants.STORAGE_MVSTORE.equals(storage);
+   }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Map;
+
+import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.Tier;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Blob record of the MVStore storage, keyed by blob key in the map of its container. The payload is stored apart,
+ * as a list of chunks which all have the same size except the last one.
+ */
+public final class MVStoreBlob implements Serializable {
+
+   private static final long serialVersionUID = 1L;
+
+   private final long[] chunks;
+   private final int chunkSize;
+   private final long size;
+   private final String etag;
+   private final byte[] contentMD5;
+   private final long creationDate;
+   private final long lastModified;
+   private final boolean directory;
+   private final BlobAccess blobAccess;
+   private final Tier tier;
+   private final String cacheControl;
+   private final String contentType;
+   private final String contentDisposition;
+   private final String contentEncoding;
+   private final String contentLanguage;
+   private final Date expires;
+   private final Map<String, String> userMetadata;
+
+   private MVStoreBlob(Builder builder) {
+      this.chunks = builder.chunks;
+      this.chunkSize = builder.chunkSize;
+      this.size = builder.size;
+      this.etag = builder.etag;
+      this.contentMD5 = builder.contentMD5;
+      this.creationDate = builder.creationDate.getTime();
+      this.lastModified = builder.lastModified.getTime();
+      this.directory = builder.directory;
+      this.blobAccess = builder.blobAccess;
+      this.tier = builder.tier;
+      this.cacheControl = builder.cacheControl;
+      this.contentType = builder.contentType;
+      this.contentDisposition = builder.contentDisposition;
+      this.contentEncoding = builder.contentEncoding;
+      this.contentLanguage = builder.contentLanguage;
+      this.expires = builder.expires;
+      this.userMetadata = builder.userMetadata;
+   }
+
+   public long[] getChunks() {
+      return chunks;
+   }
+
+   public int getChunkSize() {
+      return chunkSize;
+   }
+
+   public long getSize() {
+      return size;
+   }
+
+   public String getEtag() {
+      return etag;
+   }
+
+   public byte[] getContentMD5() {
+      return contentMD5;
+   }
+
+   public Date getCreationDate() {
+      return new Date(creationDate);
+   }
+
+   public Date getLastModified() {
+      return new Date(lastModified);
+   }
+
+   public boolean isDirectory() {
+      return directory;
+   }
+
+   public BlobAccess getBlobAccess() {
+      return blobAccess;
+   }
+
+   public Tier getTier() {
+      return tier;
+   }
+
+   public String getCacheControl() {
+      return cacheControl;
+   }
+
+   public String getContentType() {
+      return contentType;
+   }
+
+   public String getContentDisposition() {
+      return contentDisposition;
+   }
+
+   public String getContentEncoding() {
+      return contentEncoding;
+   }
+
+   public String getContentLanguage() {
+      return contentLanguage;
+   }
+
+   public Date getExpires() {
+      return expires;
+   }
+
+   public Map<String, String> getUserMetadata() {
+      return userMetadata;
+   }
+
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   public Builder toBuilder() {
+      return builder()
+            .chunks(chunks, chunkSize)
+            .size(size)
+            .etag(etag)
+            .contentMD5(contentMD5)
+            .creationDate(getCreationDate())
+            .lastModified(getLastModified())
+            .directory(directory)
+            .blobAccess(blobAccess)
+            .tier(tier)
+            .cacheControl(cacheControl)
+            .contentType(contentType)
+            .contentDisposition(contentDisposition)
+            .contentEncoding(contentEncoding)
+            .contentLanguage(contentLanguage)
+            .expires(expires)
+            .userMetadata(userMetadata);
+   }
+
+   public static class Builder {
+      private long[] chunks = new long[0];
+      private int chunkSize;
+      private long size;
+      private String etag;
+      private byte[] contentMD5;
+      private Date creationDate = new Date();
+      private Date lastModified = new Date();
+      private boolean directory;
+      private BlobAccess blobAccess = BlobAccess.PRIVATE;
+      private Tier tier;
+      private String cacheControl;
+      private String contentType;
+      private String contentDisposition;
+      private String contentEncoding;
+      private String contentLanguage;
+      private Date expires;
+      private Map<String, String> userMetadata = Maps.newHashMap();
+
+      public Builder chunks(long[] chunks, int chunkSize) {
+         this.chunks = chunks;
+         this.chunkSize = chunkSize;
+         return this;
+      }
+
+      public Builder size(long size) {
+         this.size = size;
+         return this;
+      }
+
+      public Builder etag(String etag) {
+         this.etag = etag;
+         return this;
+      }
+
+      public Builder contentMD5(byte[] contentMD5) {
+         this.contentMD5 = contentMD5;
+         return this;
+      }
+
+      public Builder creationDate(Date creationDate) {
+         this.creationDate = creationDate;
+         return this;
+      }
+
+      public Builder lastModified(Date lastModified) {
+         this.lastModified = lastModified;
+         return this;
+      }
+
+      public Builder directory(boolean directory) {
+         this.directory = directory;
+         return this;
+      }
+
+      public Builder blobAccess(BlobAccess blobAccess) {
+         this.blobAccess = blobAccess == null ? BlobAccess.PRIVATE : blobAccess;
+         return this;
+      }
+
+      public Builder tier(Tier tier) {
+         this.tier = tier;
+         return this;
+      }
+
+      public Builder cacheControl(String cacheControl) {
+         this.cacheControl = cacheControl;
+         return this;
+      }
+
+      public Builder contentType(String contentType) {
+         this.contentType = contentType;
+         return this;
+      }
+
+      public Builder contentDisposition(String contentDisposition) {
+         this.contentDisposition = contentDisposition;
+         return this;
+      }
+
+      public Builder contentEncoding(String contentEncoding) {
+         this.contentEncoding = contentEncoding;
+         return this;
+      }
+
+      public Builder contentLanguage(String contentLanguage) {
+         this.contentLanguage = contentLanguage;
+         return this;
+      }
+
+      public Builder expires(Date expires) {
+         this.expires = expires;
+         return this;
+      }
+
+      public Builder userMetadata(Map<String, String> userMetadata) {
+         this.userMetadata = Maps.newHashMap(userMetadata);
+         return this;
+      }
+
+      public MVStoreBlob build() {
+         return new MVStoreBlob(this);
+      }
+   }
+
+}
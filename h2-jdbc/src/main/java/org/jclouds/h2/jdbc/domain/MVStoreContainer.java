@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.jclouds.blobstore.domain.ContainerAccess;
+
+/**
+ * Container record of the MVStore storage, keyed by container name.
+ */
+public final class MVStoreContainer implements Serializable {
+
+   private static final long serialVersionUID = 1L;
+
+   private final long creationDate;
+   private final ContainerAccess containerAccess;
+
+   public MVStoreContainer(Date creationDate, ContainerAccess containerAccess) {
+      this.creationDate = creationDate.getTime();
+      this.containerAccess = containerAccess;
+   }
+
+   public Date getCreationDate() {
+      return new Date(creationDate);
+   }
+
+   public ContainerAccess getContainerAccess() {
+      return containerAccess;
+   }
+
+   public MVStoreContainer withContainerAccess(ContainerAccess containerAccess) {
+      return new MVStoreContainer(getCreationDate(), containerAccess);
+   }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.reference;
+
+/**
+ * Configuration properties of the h2 jdbc provider
+ */
+public final class H2JdbcConstants {
+
+    /**
+     * JDBC URL of the database. Any H2 setting, such as MV_STORE or MULTI_THREADED, can be appended to it.
+     */
+    public static final String PROPERTY_URL = "jclouds.h2.url";
+
+    public static final String DEFAULT_URL = "jdbc:h2:./jclouds-db";
+
+    /**
+     * Maximum number of pooled connections.
+     */
+    public static final String PROPERTY_POOL_SIZE = "jclouds.h2.pool-size";
+
+    public static final int DEFAULT_POOL_SIZE = 16;
+
+    /**
+     * Number of prepared statements H2 caches per connection, set as QUERY_CACHE_SIZE unless the URL already does.
+     */
+    public static final String PROPERTY_QUERY_CACHE_SIZE = "jclouds.h2.query-cache-size";
+
+    public static final int DEFAULT_QUERY_CACHE_SIZE = 64;
+
+    /**
+     * Size of the H2 page cache in KB, set as CACHE_SIZE unless the URL already does. 0 keeps the H2 default.
+     */
+    public static final String PROPERTY_CACHE_SIZE = "jclouds.h2.cache-size";
+
+    public static final int DEFAULT_CACHE_SIZE = 0;
+
+    /**
+     * Storage of the blobs: {@value #STORAGE_JPA} stores them in the database through JPA, {@value #STORAGE_MVSTORE}
+     * directly in H2 MVStore maps, bypassing JPA and SQL altogether.
+     */
+    public static final String PROPERTY_STORAGE = "jclouds.h2.storage";
+
+    public static final String STORAGE_JPA = "jpa";
+
+    public static final String STORAGE_MVSTORE = "mvstore";
+
+    /**
+     * File of the MVStore storage. Prefix it with "nioMapped:" to memory-map it, or leave it empty to keep the store
+     * off-heap in memory only.
+     */
+    public static final String PROPERTY_MVSTORE_FILE = "jclouds.h2.mvstore.file";
+
+    public static final String DEFAULT_MVSTORE_FILE = "./jclouds-mvstore.db";
+
+    private H2JdbcConstants() {
+        throw new AssertionError("Intentionally Unimplemented");
+    }
+}
@@ -0,0 +1,579 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.strategy;
+
+import static com.google.common.io.BaseEncoding.base16;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.jclouds.blobstore.ContainerNotFoundException;
+import org.jclouds.blobstore.LocalStorageStrategy;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.BlobBuilder;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
+import org.jclouds.blobstore.domain.MutableStorageMetadata;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.MutableBlobMetadataImpl;
+import org.jclouds.blobstore.domain.internal.MutableStorageMetadataImpl;
+import org.jclouds.blobstore.domain.internal.PageSetImpl;
+import org.jclouds.blobstore.options.CreateContainerOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.h2.jdbc.domain.MVStoreBlob;
+import org.jclouds.h2.jdbc.domain.MVStoreContainer;
+import org.jclouds.h2.jdbc.util.MVStoreByteSource;
+import org.jclouds.io.ContentMetadata;
+import org.jclouds.io.MutableContentMetadata;
+import org.jclouds.jdbc.predicates.validators.JdbcBlobKeyValidator;
+import org.jclouds.jdbc.predicates.validators.JdbcContainerNameValidator;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.util.Closeables2;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * MVStoreStorageStrategy stores blobs directly in H2 MVStore maps, without JPA nor SQL. Containers are kept in one
+ * map, and the blobs of every container in a map of their own sorted by key, so that listings seek straight to
+ * their prefix or marker. Payloads are split into chunks kept in a shared map keyed by chunk id.
+ */
+@Singleton
+public class MVStoreStorageStrategy implements LocalStorageStrategy {
+
+   private static final int DEFAULT_MAX_RESULTS = 1000;
+   private static final String CONTAINERS = "containers";
+   private static final String CHUNKS = "chunks";
+   private static final String BLOBS = "blobs.";
+
+   private final MVStore store;
+   private final MVMap<String, MVStoreContainer> containers;
+   private final MVMap<Long, byte[]> chunks;
+   private final AtomicLong nextChunkId;
+   private final Provider<BlobBuilder> blobBuilders;
+   private final JdbcContainerNameValidator containerNameValidator;
+   private final JdbcBlobKeyValidator blobKeyValidator;
+   private final Location location;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_SIZE)
+   private int chunkSize = JdbcConstants.DEFAULT_CHUNK_SIZE;
+
+   @Inject
+   MVStoreStorageStrategy(MVStore store, Provider<BlobBuilder> blobBuilders,
+         JdbcContainerNameValidator containerNameValidator, JdbcBlobKeyValidator blobKeyValidator) {
+      this.store = store;
+      this.containers = store.openMap(CONTAINERS);
+      this.chunks = store.openMap(CHUNKS);
+      Long lastChunkId = chunks.lastKey();
+      this.nextChunkId = new AtomicLong(lastChunkId == null ? 0 : lastChunkId + 1);
+      this.blobBuilders = blobBuilders;
+      this.containerNameValidator = containerNameValidator;
+      this.blobKeyValidator = blobKeyValidator;
+      this.location = new LocationBuilder()
+            .id("mvstore")
+            .scope(LocationScope.PROVIDER)
+            .description("http://localhost/mvstore")
+            .build();
+   }
+
+   @Override
+   public boolean containerExists(String container) {
+      containerNameValidator.validate(container);
+      return containers.containsKey(container);
+   }
+
+   @Override
+   public Collection<String> getAllContainerNames() {
+      return ImmutableList.copyOf(containers.keySet());
+   }
+
+   @Override
+   public boolean createContainerInLocation(String container, Location location,
+         CreateContainerOptions createContainerOptions) {
+      containerNameValidator.validate(container);
+      ContainerAccess containerAccess = createContainerOptions != null && createContainerOptions.isPublicRead()
+            ? ContainerAccess.PUBLIC_READ : ContainerAccess.PRIVATE;
+      return containers.putIfAbsent(container, new MVStoreContainer(new Date(), containerAccess)) == null;
+   }
+
+   @Override
+   public ContainerAccess getContainerAccess(String container) {
+      return container(container).getContainerAccess();
+   }
+
+   @Override
+   public void setContainerAccess(String container, ContainerAccess containerAccess) {
+      containers.put(container, container(container).withContainerAccess(containerAccess));
+   }
+
+   @Override
+   public void deleteContainer(String container) {
+      containerNameValidator.validate(container);
+      MVMap<String, MVStoreBlob> blobs = blobs(container);
+      if (blobs != null) {
+         clearContainer(container);
+         containers.remove(container);
+         store.removeMap(blobs);
+      }
+   }
+
+   @Override
+   public void clearContainer(String container) {
+      MVMap<String, MVStoreBlob> blobs = blobs(container);
+      if (blobs != null) {
+         deleteBlobs(blobs, null);
+      }
+   }
+
+   @Override
+   public void clearContainer(String container, ListContainerOptions options) {
+      Preconditions.checkArgument(options.getPrefix() == null, "prefix not yet implemented");
+      if (options.getDir() == null) {
+         clearContainer(container);
+         return;
+      }
+      MVMap<String, MVStoreBlob> blobs = blobs(container);
+      if (blobs != null) {
+         deleteBlobs(blobs, directoryPrefix(options.getDir()));
+      }
+   }
+
+   @Override
+   public StorageMetadata getContainerMetadata(String container) {
+      MVStoreContainer record = containers.get(container);
+      if (record == null) {
+         return null;
+      }
+      MutableStorageMetadata metadata = new MutableStorageMetadataImpl();
+      metadata.setName(container);
+      metadata.setType(StorageType.CONTAINER);
+      metadata.setLocation(location);
+      metadata.setCreationDate(record.getCreationDate());
+      return metadata;
+   }
+
+   @Override
+   public boolean blobExists(String container, String key) {
+      containerNameValidator.validate(container);
+      blobKeyValidator.validate(key);
+      MVMap<String, MVStoreBlob> blobs = blobs(container);
+      return blobs != null && blobs.containsKey(key);
+   }
+
+   @Override
+   public Iterable<String> getBlobKeysInsideContainer(String container) throws IOException {
+      MVMap<String, MVStoreBlob> blobs = blobs(container);
+      return blobs == null ? ImmutableList.<String> of() : ImmutableList.copyOf(blobs.keySet());
+   }
+
+   @Override
+   public Blob getBlob(String container, String key) {
+      MVMap<String, MVStoreBlob> blobs = blobs(container);
+      MVStoreBlob record = blobs == null ? null : blobs.get(key);
+      if (record == null) {
+         return null;
+      }
+      BlobBuilder builder = blobBuilders.get().name(key).userMetadata(record.getUserMetadata());
+      if (record.isDirectory()) {
+         builder.type(StorageType.FOLDER);
+      } else {
+         builder.payload(new MVStoreByteSource(chunks, record.getChunks(), record.getChunkSize(), record.getSize()));
+      }
+      Blob blob = builder.build();
+      copyMetadata(container, record, blob.getMetadata());
+      return blob;
+   }
+
+   /**
+    * Gets the metadata of a blob without building its payload
+    *
+    * @param container the name of the container containing the blob
+    * @param key the key of the blob
+    * @return the blob's metadata or null if the blob does not exist
+    */
+   public BlobMetadata getBlobMetadata(String container, String key) {
+      MVStoreBlob record = existingBlobs(container).get(key);
+      return record == null ? null : toBlobMetadata(container, key, record);
+   }
+
+   @Override
+   public String putBlob(String container, Blob blob) throws IOException {
+      String key = blob.getMetadata().getName();
+      containerNameValidator.validate(container);
+      blobKeyValidator.validate(key);
+      MVMap<String, MVStoreBlob> blobs = existingBlobs(container);
+
+      long[] chunkIds = new long[0];
+      int count = 0;
+      long size = 0;
+      HashingInputStream his = new HashingInputStream(Hashing.md5(), blob.getPayload().openStream());
+      try {
+         while (true) {
+            byte[] buffer = new byte[chunkSize];
+            int read = ByteStreams.read(his, buffer, 0, buffer.length);
+            if (read == 0) {
+               break;
+            }
+            long chunkId = nextChunkId.getAndIncrement();
+            chunks.put(chunkId, read == buffer.length ? buffer : Arrays.copyOf(buffer, read));
+            if (count == chunkIds.length) {
+               chunkIds = Arrays.copyOf(chunkIds, Math.max(16, count * 2));
+            }
+            chunkIds[count++] = chunkId;
+            size += read;
+            if (read < buffer.length) {
+               break;
+            }
+         }
+      } catch (IOException e) {
+         deleteChunks(chunkIds, count);
+         throw e;
+      } finally {
+         Closeables2.closeQuietly(his);
+      }
+      chunkIds = Arrays.copyOf(chunkIds, count);
+
+      HashCode actualHashCode = his.hash();
+      ContentMetadata contentMetadata = blob.getMetadata().getContentMetadata();
+      HashCode expectedHashCode = blob.getPayload().getContentMetadata().getContentMD5AsHashCode();
+      if (expectedHashCode != null && !actualHashCode.equals(expectedHashCode)) {
+         deleteChunks(chunkIds, count);
+         throw new IOException("MD5 hash code mismatch, actual: " + actualHashCode +
+               " expected: " + expectedHashCode);
+      }
+
+      MVStoreBlob previous = blobs.get(key);
+      MVStoreBlob record = MVStoreBlob.builder()
+            .chunks(chunkIds, chunkSize)
+            .size(size)
+            .etag(base16().lowerCase().encode(actualHashCode.asBytes()))
+            .contentMD5(actualHashCode.asBytes())
+            .creationDate(previous == null ? new Date() : previous.getCreationDate())
+            .tier(blob.getMetadata().getTier())
+            .cacheControl(contentMetadata.getCacheControl())
+            .contentType(contentMetadata.getContentType())
+            .contentDisposition(contentMetadata.getContentDisposition())
+            .contentEncoding(contentMetadata.getContentEncoding())
+            .contentLanguage(contentMetadata.getContentLanguage())
+            .expires(contentMetadata.getExpires())
+            .userMetadata(blob.getMetadata().getUserMetadata())
+            .build();
+      replaceBlob(blobs, key, record);
+      return record.getEtag();
+   }
+
+   @Override
+   public void removeBlob(String container, String key) {
+      MVMap<String, MVStoreBlob> blobs = blobs(container);
+      if (blobs != null) {
+         MVStoreBlob record = blobs.remove(key);
+         if (record != null) {
+            deleteChunks(record.getChunks(), record.getChunks().length);
+         }
+      }
+   }
+
+   @Override
+   public BlobAccess getBlobAccess(String container, String key) {
+      MVStoreBlob record = existingBlobs(container).get(key);
+      return record == null ? null : record.getBlobAccess();
+   }
+
+   @Override
+   public void setBlobAccess(String container, String key, BlobAccess blobAccess) {
+      MVMap<String, MVStoreBlob> blobs = existingBlobs(container);
+      MVStoreBlob record = blobs.get(key);
+      if (record != null) {
+         blobs.put(key, record.toBuilder().blobAccess(blobAccess).build());
+      }
+   }
+
+   @Override
+   public Location getLocation(String container) {
+      return location;
+   }
+
+   @Override
+   public String getSeparator() {
+      return "/";
+   }
+
+   /**
+    * Lists a page of the blobs in a container, iterating the sorted blob map from the prefix or marker on and
+    * skipping past every common prefix in one seek.
+    *
+    * @param container the name of the container
+    * @param options options to filter and page the listing
+    * @return the blobs and common prefixes of the page, with the marker of the next page if any
+    */
+   public PageSet<? extends StorageMetadata> list(String container, ListContainerOptions options) {
+      Preconditions.checkArgument(options.getDir() == null || options.getPrefix() == null,
+            "Cannot set both prefix and directory");
+      Preconditions.checkArgument(
+            (options.getDir() == null && !options.isRecursive()) || options.getDelimiter() == null,
+            "Cannot set the delimiter if directory or recursive is set");
+      MVMap<String, MVStoreBlob> blobs = existingBlobs(container);
+
+      String prefix = Strings.emptyToNull(options.getPrefix());
+      if (!Strings.isNullOrEmpty(options.getDir())) {
+         prefix = directoryPrefix(options.getDir());
+      }
+      // An empty delimiter lists every key on its own
+      String delimiter = options.getDelimiter();
+      if (delimiter == null && !options.isRecursive()) {
+         delimiter = getSeparator();
+      }
+      delimiter = Strings.emptyToNull(delimiter);
+      String marker = Strings.emptyToNull(options.getMarker());
+      int maxResults = options.getMaxResults() != null ? options.getMaxResults() : DEFAULT_MAX_RESULTS;
+
+      if (maxResults == 0) {
+         return new PageSetImpl<StorageMetadata>(ImmutableList.<StorageMetadata> of(), null);
+      }
+
+      // Collect one entry more than requested to know whether the listing is truncated
+      List<StorageMetadata> contents = Lists.newArrayList();
+      String from = prefix;
+      if (marker != null && (from == null || marker.compareTo(from) > 0)) {
+         from = marker;
+      }
+      Iterator<String> keys = blobs.keyIterator(from);
+      while (contents.size() <= maxResults && keys.hasNext()) {
+         String key = keys.next();
+         if (marker != null && key.compareTo(marker) <= 0) {
+            continue;
+         }
+         if (prefix != null && !key.startsWith(prefix)) {
+            break;
+         }
+         String commonPrefix = commonPrefix(key, prefix, delimiter);
+         if (commonPrefix != null) {
+            if (marker == null || commonPrefix.compareTo(marker) > 0) {
+               MutableStorageMetadata metadata = new MutableStorageMetadataImpl();
+               metadata.setName(commonPrefix);
+               metadata.setType(StorageType.RELATIVE_PATH);
+               contents.add(metadata);
+            }
+            keys = blobs.keyIterator(successor(commonPrefix));
+            continue;
+         }
+         MVStoreBlob record = blobs.get(key);
+         if (record != null) {
+            MutableBlobMetadata metadata = toBlobMetadata(container, key, record);
+            if (!options.isDetailed()) {
+               metadata.getUserMetadata().clear();
+            }
+            contents.add(metadata);
+         }
+      }
+
+      String nextMarker = null;
+      if (contents.size() > maxResults) {
+         contents = contents.subList(0, maxResults);
+         nextMarker = contents.get(maxResults - 1).getName();
+      }
+      return new PageSetImpl<StorageMetadata>(contents, nextMarker);
+   }
+
+   /**
+    * Counts the blobs in a container or in one of its directories
+    *
+    * @param container the name of the container
+    * @param options the whole container is counted unless a directory is set, and only that directory unless
+    *                recursive is set
+    * @return the number of blobs
+    */
+   public long countBlobs(String container, ListContainerOptions options) {
+      MVMap<String, MVStoreBlob> blobs = blobs(container);
+      if (blobs == null) {
+         return 0;
+      }
+      if (Strings.isNullOrEmpty(options.getDir())) {
+         return blobs.sizeAsLong();
+      }
+      String prefix = directoryPrefix(options.getDir());
+      long count = 0;
+      Iterator<String> keys = blobs.keyIterator(prefix);
+      while (keys.hasNext()) {
+         String key = keys.next();
+         if (!key.startsWith(prefix)) {
+            break;
+         }
+         if (options.isRecursive() || key.indexOf(getSeparator(), prefix.length()) == -1) {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   public boolean directoryExists(String container, String directory) {
+      MVMap<String, MVStoreBlob> blobs = blobs(container);
+      MVStoreBlob record = blobs == null ? null : blobs.get(directory);
+      return record != null && record.isDirectory();
+   }
+
+   public void createDirectory(String container, String directory) {
+      MVMap<String, MVStoreBlob> blobs = existingBlobs(container);
+      replaceBlob(blobs, directory, MVStoreBlob.builder()
+            .directory(true)
+            .contentType("application/directory")
+            .etag(base16().lowerCase().encode(Hashing.md5().hashBytes(new byte[0]).asBytes()))
+            .build());
+   }
+
+   public void deleteDirectory(String container, String directory) {
+      if (directoryExists(container, directory)) {
+         removeBlob(container, directory);
+      }
+   }
+
+   /**
+    * Returns the blob map of a container, or null if the container does not exist. Maps are only opened for
+    * existing containers, as opening a map creates it.
+    */
+   private MVMap<String, MVStoreBlob> blobs(String container) {
+      return containers.containsKey(container) ? store.<String, MVStoreBlob> openMap(BLOBS + container) : null;
+   }
+
+   private MVMap<String, MVStoreBlob> existingBlobs(String container) {
+      MVMap<String, MVStoreBlob> blobs = blobs(container);
+      if (blobs == null) {
+         throw new ContainerNotFoundException(container, String.format("container %s not found", container));
+      }
+      return blobs;
+   }
+
+   private MVStoreContainer container(String container) {
+      MVStoreContainer record = containers.get(container);
+      if (record == null) {
+         throw new ContainerNotFoundException(container, String.format("container %s not found", container));
+      }
+      return record;
+   }
+
+   private void replaceBlob(Map<String, MVStoreBlob> blobs, String key, MVStoreBlob record) {
+      MVStoreBlob previous = blobs.put(key, record);
+      if (previous != null) {
+         deleteChunks(previous.getChunks(), previous.getChunks().length);
+      }
+   }
+
+   /**
+    * Deletes the blobs whose key starts with the prefix, or all of them if the prefix is null.
+    */
+   private void deleteBlobs(MVMap<String, MVStoreBlob> blobs, String prefix) {
+      Iterator<String> keys = blobs.keyIterator(prefix);
+      while (keys.hasNext()) {
+         String key = keys.next();
+         if (prefix != null && !key.startsWith(prefix)) {
+            break;
+         }
+         MVStoreBlob record = blobs.remove(key);
+         if (record != null) {
+            deleteChunks(record.getChunks(), record.getChunks().length);
+         }
+      }
+   }
+
+   private void deleteChunks(long[] chunkIds, int count) {
+      for (int i = 0; i < count; i++) {
+         chunks.remove(chunkIds[i]);
+      }
+   }
+
+   private MutableBlobMetadata toBlobMetadata(String container, String key, MVStoreBlob record) {
+      MutableBlobMetadata metadata = new MutableBlobMetadataImpl();
+      metadata.setName(key);
+      metadata.setType(record.isDirectory() ? StorageType.FOLDER : StorageType.BLOB);
+      // User metadata keys are lowercased, like BlobStoreUtils.copy does for the blobs LocalBlobStore returns
+      for (Map.Entry<String, String> entry : record.getUserMetadata().entrySet()) {
+         metadata.getUserMetadata().put(entry.getKey().toLowerCase(), entry.getValue());
+      }
+      copyMetadata(container, record, metadata);
+      return metadata;
+   }
+
+   private static void copyMetadata(String container, MVStoreBlob record, MutableBlobMetadata metadata) {
+      metadata.setContainer(container);
+      metadata.setCreationDate(record.getCreationDate());
+      metadata.setLastModified(record.getLastModified());
+      metadata.setSize(record.getSize());
+      metadata.setETag(record.getEtag());
+      metadata.setTier(record.getTier());
+      MutableContentMetadata contentMetadata = metadata.getContentMetadata();
+      contentMetadata.setCacheControl(record.getCacheControl());
+      contentMetadata.setContentType(record.getContentType());
+      contentMetadata.setContentDisposition(record.getContentDisposition());
+      contentMetadata.setContentEncoding(record.getContentEncoding());
+      contentMetadata.setContentLanguage(record.getContentLanguage());
+      contentMetadata.setContentLength(record.getSize());
+      contentMetadata.setContentMD5(record.getContentMD5() == null ? null : HashCode.fromBytes(record.getContentMD5()));
+      contentMetadata.setExpires(record.getExpires());
+   }
+
+   private String directoryPrefix(String directory) {
+      return directory.endsWith(getSeparator()) ? directory : directory + getSeparator();
+   }
+
+   /**
+    * Returns the common prefix a key is rolled up into, or null if the key is listed on its own.
+    */
+   private static String commonPrefix(String key, String prefix, String delimiter) {
+      if (Strings.isNullOrEmpty(delimiter)) {
+         return null;
+      }
+      int start = prefix == null ? 0 : prefix.length();
+      int index = key.indexOf(delimiter, start);
+      return index == -1 ? null : key.substring(0, index + delimiter.length());
+   }
+
+   /**
+    * Returns the smallest string greater than all the strings starting with prefix.
+    */
+   private static String successor(String prefix) {
+      int last = prefix.length() - 1;
+      return prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+   }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteSource;
+
+/**
+ * Payload of a blob of the MVStore storage. Chunks are fetched one at a time as the stream reaches them, and are
+ * streamed from the arrays held by the store rather than copied. Slices only touch the chunks they overlap.
+ */
+public class MVStoreByteSource extends ByteSource {
+
+   private final Map<Long, byte[]> chunkMap;
+   private final long[] chunks;
+   private final int chunkSize;
+   private final long offset;
+   private final long length;
+
+   public MVStoreByteSource(Map<Long, byte[]> chunkMap, long[] chunks, int chunkSize, long size) {
+      this(chunkMap, chunks, chunkSize, 0, size);
+   }
+
+   private MVStoreByteSource(Map<Long, byte[]> chunkMap, long[] chunks, int chunkSize, long offset, long length) {
+      this.chunkMap = chunkMap;
+      this.chunks = chunks;
+      this.chunkSize = chunkSize;
+      this.offset = offset;
+      this.length = length;
+   }
+
+   @Override
+   public long size() {
+      return length;
+   }
+
+   @Override
+   public ByteSource slice(long offset, long length) {
+      checkArgument(offset >= 0, "offset (%s) may not be negative", offset);
+      checkArgument(length >= 0, "length (%s) may not be negative", length);
+      long start = Math.min(offset, this.length);
+      return new MVStoreByteSource(chunkMap, chunks, chunkSize, this.offset + start,
+            Math.min(length, this.length - start));
+   }
+
+   @Override
+   public InputStream openStream() throws IOException {
+      List<ByteSource> sources = Lists.newArrayList();
+      long position = offset;
+      long end = offset + length;
+      while (position < end) {
+         int index = (int) (position / chunkSize);
+         int from = (int) (position % chunkSize);
+         int count = (int) Math.min(chunkSize - from, end - position);
+         sources.add(new ChunkByteSource(chunks[index], from, count));
+         position += count;
+      }
+      return ByteSource.concat(sources).openStream();
+   }
+
+   private class ChunkByteSource extends ByteSource {
+      private final long chunk;
+      private final int from;
+      private final int count;
+
+      ChunkByteSource(long chunk, int from, int count) {
+         this.chunk = chunk;
+         this.from = from;
+         this.count = count;
+      }
+
+      @Override
+      public InputStream openStream() throws IOException {
+         byte[] data = chunkMap.get(chunk);
+         if (data == null || data.length < from + count) {
+            throw new IOException("Could not find chunk.");
+         }
+         return new ByteArrayInputStream(data, from, count);
+      }
+   }
+
+}
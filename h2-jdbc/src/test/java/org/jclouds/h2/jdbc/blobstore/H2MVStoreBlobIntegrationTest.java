@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.blobstore;
+
+import java.util.Properties;
+
+import org.jclouds.h2.jdbc.reference.H2JdbcConstants;
+import org.testng.annotations.Test;
+
+@Test(groups = { "integration" }, singleThreaded = true, testName = "blobstore.H2MVStoreBlobIntegrationTest")
+public class H2MVStoreBlobIntegrationTest extends H2JdbcBlobIntegrationTest {
+
+   @Override
+   protected Properties setupProperties() {
+      Properties properties = super.setupProperties();
+      properties.setProperty(H2JdbcConstants.PROPERTY_STORAGE, H2JdbcConstants.STORAGE_MVSTORE);
+      properties.setProperty(H2JdbcConstants.PROPERTY_MVSTORE_FILE, "");
+      return properties;
+   }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "H2DataSourceInitializerTest")
+public class H2DataSourceInitializerTest {
+
+   public void testAppendsSetting() {
+      assertThat(H2DataSourceInitializer.withSetting("jdbc:h2:./db", "QUERY_CACHE_SIZE", 64))
+            .isEqualTo("jdbc:h2:./db;QUERY_CACHE_SIZE=64");
+   }
+
+   public void testKeepsSettingOfUrl() {
+      assertThat(H2DataSourceInitializer.withSetting("jdbc:h2:./db;cache_size=1024", "CACHE_SIZE", 4096))
+            .isEqualTo("jdbc:h2:./db;cache_size=1024");
+   }
+
+   public void testIgnoresDefaultSetting() {
+      assertThat(H2DataSourceInitializer.withSetting("jdbc:h2:./db", "CACHE_SIZE", 0)).isEqualTo("jdbc:h2:./db");
+   }
+
+}
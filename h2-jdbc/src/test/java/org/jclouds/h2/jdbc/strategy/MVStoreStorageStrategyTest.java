@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.strategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.inject.Provider;
+
+import org.h2.mvstore.MVStore;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.BlobBuilder;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.jdbc.predicates.validators.JdbcBlobKeyValidator;
+import org.jclouds.jdbc.predicates.validators.JdbcContainerNameValidator;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+
+@Test(groups = "unit", testName = "MVStoreStorageStrategyTest", singleThreaded = true)
+public class MVStoreStorageStrategyTest {
+
+   private static final String CONTAINER_NAME = "jclouds-test-container";
+
+   private MVStore store;
+   private MVStoreStorageStrategy storageStrategy;
+
+   @BeforeMethod
+   protected void setUp() {
+      store = MVStore.open(null);
+      storageStrategy = new MVStoreStorageStrategy(store, new Provider<BlobBuilder>() {
+         @Override
+         public BlobBuilder get() {
+            return new BlobBuilderImpl();
+         }
+      }, new JdbcContainerNameValidator(), new JdbcBlobKeyValidator());
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+   }
+
+   @AfterMethod
+   protected void tearDown() {
+      store.close();
+   }
+
+   public void testPutAndGetBlob() throws IOException {
+      byte[] content = new byte[3 * 1024 * 1024 + 512];
+      for (int i = 0; i < content.length; i++) {
+         content[i] = (byte) i;
+      }
+      String eTag = storageStrategy.putBlob(CONTAINER_NAME,
+            new BlobBuilderImpl().name("blob").payload(content).contentType("text/plain").build());
+
+      Blob blob = storageStrategy.getBlob(CONTAINER_NAME, "blob");
+      assertThat(blob.getMetadata().getETag()).isEqualTo(eTag);
+      assertThat(blob.getMetadata().getContentMetadata().getContentType()).isEqualTo("text/plain");
+      assertThat(blob.getMetadata().getSize()).isEqualTo(content.length);
+      ByteSource payload = (ByteSource) blob.getPayload().getRawContent();
+      assertThat(payload.read()).isEqualTo(content);
+      // A range across a chunk boundary
+      assertThat(ByteStreams.toByteArray(payload.slice(1024 * 1024 - 10, 20).openStream()))
+            .isEqualTo(ByteSource.wrap(content).slice(1024 * 1024 - 10, 20).read());
+   }
+
+   public void testRemoveBlobDeletesChunks() throws IOException {
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("blob").payload(new byte[100]).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("blob").payload(new byte[200]).build());
+      assertThat(store.openMap("chunks").size()).isEqualTo(1);
+      storageStrategy.removeBlob(CONTAINER_NAME, "blob");
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, "blob")).isFalse();
+      assertThat(store.openMap("chunks").size()).isEqualTo(0);
+   }
+
+   public void testListRollsUpCommonPrefixes() throws IOException {
+      for (String key : new String[] { "a", "b/1", "b/2", "b/3", "c", "d/e/f" }) {
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(key).payload(key).build());
+      }
+
+      PageSet<? extends StorageMetadata> page = storageStrategy.list(CONTAINER_NAME,
+            new ListContainerOptions().maxResults(3));
+      assertThat(names(page)).containsExactly("a", "b/", "c");
+      assertThat(page.getNextMarker()).isEqualTo("c");
+
+      page = storageStrategy.list(CONTAINER_NAME, new ListContainerOptions().afterMarker("c"));
+      assertThat(names(page)).containsExactly("d/");
+      assertThat(page.getNextMarker()).isNull();
+
+      page = storageStrategy.list(CONTAINER_NAME, new ListContainerOptions().inDirectory("b"));
+      assertThat(names(page)).containsExactly("b/1", "b/2", "b/3");
+
+      page = storageStrategy.list(CONTAINER_NAME, new ListContainerOptions().recursive().afterMarker("b/2"));
+      assertThat(names(page)).containsExactly("b/3", "c", "d/e/f");
+
+      assertThat(storageStrategy.countBlobs(CONTAINER_NAME, new ListContainerOptions().inDirectory("b")))
+            .isEqualTo(3);
+   }
+
+   public void testListWithEmptyDelimiterAndDetails() throws IOException {
+      for (String key : new String[] { "a", "b/1", "c" }) {
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(key).payload(key)
+               .userMetadata(ImmutableMap.of("Mixed-Case", key)).build());
+      }
+
+      PageSet<? extends StorageMetadata> page = storageStrategy.list(CONTAINER_NAME,
+            new ListContainerOptions().prefix("").delimiter("").afterMarker("").withDetails());
+      assertThat(names(page)).containsExactly("a", "b/1", "c");
+      assertThat(((BlobMetadata) page.iterator().next()).getUserMetadata()).containsEntry("mixed-case", "a");
+      assertThat(storageStrategy.getBlobMetadata(CONTAINER_NAME, "c").getUserMetadata())
+            .containsEntry("mixed-case", "c");
+   }
+
+   public void testDeleteContainer() throws IOException {
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("blob").payload("data").build());
+      storageStrategy.deleteContainer(CONTAINER_NAME);
+      assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
+      assertThat(store.openMap("chunks").size()).isEqualTo(0);
+   }
+
+   private static Iterable<String> names(PageSet<? extends StorageMetadata> page) {
+      List<String> names = Lists.newArrayList();
+      for (StorageMetadata metadata : page) {
+         names.add(metadata.getName());
+      }
+      return names;
+   }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmarks;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.h2.jdbc.reference.H2JdbcConstants;
+import org.jclouds.logging.config.NullLoggingModule;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Module;
+
+/**
+ * Shared state of the benchmarks: a jdbc blobstore backed by a private in-memory h2 database, so that runs do not
+ * interfere with each other and nothing is left on disk. Every benchmark runs against both the JPA and the MVStore
+ * storage of the h2 provider.
+ */
+@State(Scope.Benchmark)
+public abstract class BaseJdbcBlobStoreBenchmark {
+
+   protected static final String CONTAINER_NAME = "jclouds-benchmark";
+
+   @Param({ H2JdbcConstants.STORAGE_JPA, H2JdbcConstants.STORAGE_MVSTORE })
+   public String storage;
+
+   protected BlobStoreContext context;
+   protected BlobStore blobStore;
+
+   protected void openBlobStore() {
+      Properties overrides = new Properties();
+      overrides.setProperty(H2JdbcConstants.PROPERTY_URL, "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+      overrides.setProperty(H2JdbcConstants.PROPERTY_STORAGE, storage);
+      overrides.setProperty(H2JdbcConstants.PROPERTY_MVSTORE_FILE, "");
+
+      context = ContextBuilder.newBuilder("h2-jdbc")
+            .overrides(overrides)
+            .modules(ImmutableSet.<Module> of(new NullLoggingModule()))
+            .buildView(BlobStoreContext.class);
+      blobStore = context.getBlobStore();
+      blobStore.createContainerInLocation(null, CONTAINER_NAME);
+   }
+
+   protected void closeBlobStore() {
+      if (context != null) {
+         context.close();
+      }
+   }
+
+   protected String putBlob(String name, byte[] payload) {
+      return blobStore.putBlob(CONTAINER_NAME, blobStore.blobBuilder(name)
+            .payload(payload)
+            .contentLength(payload.length)
+            .build());
+   }
+
+   /**
+    * Pseudo-random but reproducible payload, so that chunk deduplication does not flatter the numbers.
+    */
+   protected static byte[] payload(int size, long seed) {
+      byte[] bytes = new byte[size];
+      new Random(seed).nextBytes(bytes);
+      return bytes;
+   }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmarks;
+
+import static org.jclouds.blobstore.options.ListContainerOptions.Builder.inDirectory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures listing and counting across container cardinalities. Blobs are spread over {@link #DIRECTORIES}
+ * directories so that the delimited listing has common prefixes to roll up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ContainerBenchmark extends BaseJdbcBlobStoreBenchmark {
+
+   static final int DIRECTORIES = 10;
+   static final int BLOB_SIZE = 128;
+
+   @Param({ "100", "1000", "10000" })
+   public int blobCount;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      openBlobStore();
+      populate(this, blobCount);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      closeBlobStore();
+   }
+
+   @Benchmark
+   public PageSet<? extends StorageMetadata> list() {
+      return blobStore.list(CONTAINER_NAME);
+   }
+
+   @Benchmark
+   public PageSet<? extends StorageMetadata> listRecursive() {
+      return blobStore.list(CONTAINER_NAME, ListContainerOptions.Builder.recursive());
+   }
+
+   @Benchmark
+   public PageSet<? extends StorageMetadata> listDirectory() {
+      return blobStore.list(CONTAINER_NAME, inDirectory("dir-0"));
+   }
+
+   @Benchmark
+   public long countBlobs() {
+      return blobStore.countBlobs(CONTAINER_NAME);
+   }
+
+   static void populate(BaseJdbcBlobStoreBenchmark benchmark, int blobCount) {
+      for (int i = 0; i < blobCount; i++) {
+         benchmark.putBlob("dir-" + (i % DIRECTORIES) + "/blob-" + i, payload(BLOB_SIZE, i));
+      }
+   }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmarks;
+
+import static org.jclouds.blobstore.options.GetOptions.Builder.range;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.blobstore.domain.Blob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Measures full and ranged reads through {@code getBlob}. The payload is drained so that lazily fetched chunks are
+ * part of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GetBlobBenchmark extends BaseJdbcBlobStoreBenchmark {
+
+   private static final String BLOB_NAME = "blob";
+   private static final int RANGE_LENGTH = 64 * 1024;
+
+   @Param({ "1024", "1048576", "16777216" })
+   public int payloadSize;
+
+   private long rangeStart;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      openBlobStore();
+      putBlob(BLOB_NAME, payload(payloadSize, payloadSize));
+      // read from the middle of the blob, which crosses a chunk boundary for multi-chunk payloads
+      rangeStart = Math.max(0, payloadSize / 2 - RANGE_LENGTH / 2);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      closeBlobStore();
+   }
+
+   @Benchmark
+   public long getBlob() throws IOException {
+      return drain(blobStore.getBlob(CONTAINER_NAME, BLOB_NAME));
+   }
+
+   @Benchmark
+   public long getBlobRange() throws IOException {
+      long end = Math.min(payloadSize, rangeStart + RANGE_LENGTH) - 1;
+      return drain(blobStore.getBlob(CONTAINER_NAME, BLOB_NAME, range(rangeStart, end)));
+   }
+
+   private static long drain(Blob blob) throws IOException {
+      InputStream in = blob.getPayload().openStream();
+      try {
+         return ByteStreams.copy(in, ByteStreams.nullOutputStream());
+      } finally {
+         in.close();
+      }
+   }
+
+}
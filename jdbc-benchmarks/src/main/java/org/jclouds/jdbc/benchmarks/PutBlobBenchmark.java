@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code putBlob} across payload sizes below, at and well above the default chunk size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PutBlobBenchmark extends BaseJdbcBlobStoreBenchmark {
+
+   @Param({ "1024", "1048576", "16777216" })
+   public int payloadSize;
+
+   private byte[] payload;
+   private long counter;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      openBlobStore();
+      payload = payload(payloadSize, payloadSize);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      closeBlobStore();
+   }
+
+   @TearDown(Level.Iteration)
+   public void clear() {
+      blobStore.clearContainer(CONTAINER_NAME);
+   }
+
+   @Benchmark
+   public String putBlob() {
+      return putBlob("blob-" + counter++, payload);
+   }
+
+}
@@ -23,8 +23,10 @@ import org.jclouds.apis.ApiMetadata;
 import org.jclouds.apis.internal.BaseApiMetadata;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.jdbc.config.JdbcBlobStoreContextModule;
+import org.jclouds.jdbc.reference.JdbcConstants;
 
 import java.net.URI;
+import java.util.Properties;
 
 /**
  * Implementation of {@link ApiMetadata} for jclouds Jdbc BlobStore
@@ -58,9 +60,31 @@ public class JdbcApiMetadata extends BaseApiMetadata {
          .version("1")
          .documentation(URI.create("http://www.jclouds.org/documentation/userguide/blobstore-guide"))
          .view(BlobStoreContext.class)
+         .defaultProperties(defaultProperties())
          .defaultModules(ImmutableSet.<Class<? extends Module>>of(JdbcBlobStoreContextModule.class));
       }
 
+      private Properties defaultProperties() {
+         Properties defaultProperties = BaseApiMetadata.defaultProperties();
+         defaultProperties.setProperty(JdbcConstants.PROPERTY_CHUNK_SIZE,
+               String.valueOf(JdbcConstants.DEFAULT_CHUNK_SIZE));
+         defaultProperties.setProperty(JdbcConstants.PROPERTY_WRITE_BATCH_SIZE,
+               String.valueOf(JdbcConstants.DEFAULT_WRITE_BATCH_SIZE));
+         defaultProperties.setProperty(JdbcConstants.PROPERTY_DEDUPLICATE_CHUNKS, "false");
+         defaultProperties.setProperty(JdbcConstants.PROPERTY_PREFETCH_CHUNKS,
+               String.valueOf(JdbcConstants.DEFAULT_PREFETCH_CHUNKS));
+         defaultProperties.setProperty(JdbcConstants.PROPERTY_DELETE_BATCH_SIZE,
+               String.valueOf(JdbcConstants.DEFAULT_DELETE_BATCH_SIZE));
+         defaultProperties.setProperty(JdbcConstants.PROPERTY_STAGED_UPLOADS, "false");
+         defaultProperties.setProperty(JdbcConstants.PROPERTY_ORPHAN_CHUNK_AGE,
+               String.valueOf(JdbcConstants.DEFAULT_ORPHAN_CHUNK_AGE));
+         defaultProperties.setProperty(JdbcConstants.PROPERTY_COMPRESSION_LEVEL,
+               String.valueOf(JdbcConstants.DEFAULT_COMPRESSION_LEVEL));
+         defaultProperties.setProperty(JdbcConstants.PROPERTY_SLOW_OPERATION_THRESHOLD,
+               String.valueOf(JdbcConstants.DEFAULT_SLOW_OPERATION_THRESHOLD));
+         return defaultProperties;
+      }
+
       @Override
       public JdbcApiMetadata build() {
          return new JdbcApiMetadata(this);
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.blobstore;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.inject.Provider;
+
+import org.jclouds.blobstore.LocalStorageStrategy;
+import org.jclouds.blobstore.config.LocalBlobStore;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.CopyOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.io.Payload;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.strategy.JdbcStorageStrategy;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+
+/**
+ * {@link LocalBlobStore} backed by a {@link JdbcStorageStrategy}, which lets the database do the work the local
+ * blob store would otherwise do in memory, such as filtering and paging container listings, or reads the whole
+ * blob for, such as fetching blob metadata, copying blobs and completing multipart uploads.
+ */
+public class JdbcBlobStore extends DelegatingLocalBlobStore {
+
+   /** Naming of the parts {@link LocalBlobStore} stores as blobs while a multipart upload is in progress. */
+   private static final String MULTIPART_PREFIX = ".mpus-";
+
+   private final JdbcStorageStrategy storageStrategy;
+
+   @Inject
+   JdbcBlobStore(Provider<LocalBlobStore> localBlobStore, LocalStorageStrategy storageStrategy) {
+      super(localBlobStore);
+      this.storageStrategy = (JdbcStorageStrategy) storageStrategy;
+   }
+
+   @Override
+   public BlobMetadata blobMetadata(String container, String key) {
+      return storageStrategy.getBlobMetadata(container, key);
+   }
+
+   @Override
+   public PageSet<? extends StorageMetadata> list(String container) {
+      return list(container, ListContainerOptions.NONE);
+   }
+
+   @Override
+   public PageSet<? extends StorageMetadata> list(String container, ListContainerOptions options) {
+      return storageStrategy.list(container, options);
+   }
+
+   @Override
+   public String copyBlob(String fromContainer, String fromName, String toContainer, String toName,
+         CopyOptions options) {
+      return storageStrategy.copyBlob(fromContainer, fromName, toContainer, toName, options);
+   }
+
+   /**
+    * Completes the upload by concatenating the chunk lists of the parts instead of streaming them into a new blob.
+    */
+   @Override
+   public String completeMultipartUpload(MultipartUpload mpu, List<MultipartPart> parts) {
+      String partPrefix = MULTIPART_PREFIX + mpu.id() + "-" + mpu.blobName() + "-";
+      List<String> partKeys = Lists.newArrayListWithCapacity(parts.size());
+      for (MultipartPart part : parts) {
+         partKeys.add(partPrefix + part.partNumber());
+      }
+      String eTag = storageStrategy.completeMultipartUpload(mpu.containerName(), mpu.blobMetadata(),
+            mpu.putOptions().getBlobAccess(), partKeys);
+      removeBlob(mpu.containerName(), partPrefix + "stub");
+      return eTag;
+   }
+
+   /**
+    * Starts a staged upload, which commits its data batch by batch and can be continued after a failure.
+    *
+    * @return the id the upload is continued with
+    * @throws IllegalStateException if {@link JdbcConstants#PROPERTY_STAGED_UPLOADS} is disabled
+    */
+   public String initiateStagedUpload() {
+      return storageStrategy.initiateStagedUpload();
+   }
+
+   /**
+    * Appends a payload to a staged upload. When this fails, the client continues the upload with its data from
+    * the offset {@link #getStagedUploadSize(String)} returns.
+    *
+    * @return the number of bytes staged so far
+    */
+   public long appendStagedUpload(String uploadId, Payload payload) {
+      try {
+         return storageStrategy.appendStagedUpload(uploadId, payload);
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      }
+   }
+
+   /**
+    * @return the number of bytes a staged upload committed, or null if the upload does not exist
+    */
+   public Long getStagedUploadSize(String uploadId) {
+      return storageStrategy.getStagedUploadSize(uploadId);
+   }
+
+   /**
+    * Publishes a staged upload as a blob.
+    *
+    * @return the blob's etag
+    */
+   public String completeStagedUpload(String container, BlobMetadata blobMetadata, PutOptions options,
+         String uploadId) {
+      try {
+         return storageStrategy.completeStagedUpload(container, blobMetadata, options.getBlobAccess(), uploadId);
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      }
+   }
+
+   public void abortStagedUpload(String uploadId) {
+      storageStrategy.abortStagedUpload(uploadId);
+   }
+
+}
@@ -23,8 +23,8 @@ import org.jclouds.blobstore.LocalBlobRequestSigner;
 import org.jclouds.blobstore.LocalStorageStrategy;
 import org.jclouds.blobstore.attr.ConsistencyModel;
 import org.jclouds.blobstore.config.BlobStoreObjectModule;
-import org.jclouds.blobstore.config.LocalBlobStore;
 import org.jclouds.blobstore.util.BlobUtils;
+import org.jclouds.jdbc.blobstore.JdbcBlobStore;
 import org.jclouds.jdbc.strategy.JdbcStorageStrategy;
 import org.jclouds.jdbc.util.JdbcBlobUtils;
 
@@ -32,13 +32,24 @@ public class JdbcBlobStoreContextModule extends AbstractModule {
 
    @Override
    protected void configure() {
-      bind(JPAInitializer.class).asEagerSingleton();
-      bind(BlobStore.class).to(LocalBlobStore.class);
       install(new BlobStoreObjectModule());
       bind(ConsistencyModel.class).toInstance(ConsistencyModel.STRICT);
+      bind(BlobRequestSigner.class).to(LocalBlobRequestSigner.class);
+      // Installed before the storage so that transactions are timed from their beginning to their commit
+      install(new JdbcMetricsModule());
+      bindStorage();
+   }
+
+   /**
+    * Binds the blob store, its storage strategy and what they need to run. Providers with another storage than the
+    * JPA one override it.
+    */
+   protected void bindStorage() {
+      bind(JPAInitializer.class).asEagerSingleton();
+      bind(OrphanChunkSweeper.class).asEagerSingleton();
+      bind(BlobStore.class).to(JdbcBlobStore.class);
       bind(LocalStorageStrategy.class).to(JdbcStorageStrategy.class);
       bind(BlobUtils.class).to(JdbcBlobUtils.class);
-      bind(BlobRequestSigner.class).to(LocalBlobRequestSigner.class);
    }
 
 }
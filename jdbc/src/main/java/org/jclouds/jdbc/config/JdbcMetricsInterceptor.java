@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.config;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.service.JdbcService;
+import org.jclouds.logging.Logger;
+
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.google.inject.persist.Transactional;
+
+/**
+ * Times the operations of the storage strategy and of the jdbc service, reports them to the {@link JdbcMetrics} and
+ * logs the outermost operations slower than {@link JdbcConstants#PROPERTY_SLOW_OPERATION_THRESHOLD}. When neither is
+ * enabled operations are not timed at all.
+ * <p>
+ * Operations nest, as the storage strategy calls the service and the service calls itself. Each level is recorded as
+ * an operation, while a transaction is only recorded for the outermost transactional method, the one that actually
+ * begins and commits it.
+ */
+public class JdbcMetricsInterceptor implements MethodInterceptor {
+
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   @Inject
+   private JdbcMetrics metrics;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_SLOW_OPERATION_THRESHOLD)
+   private long slowOperationThreshold = JdbcConstants.DEFAULT_SLOW_OPERATION_THRESHOLD;
+
+   private final ConcurrentMap<Method, String> operationNames = Maps.newConcurrentMap();
+
+   private final ThreadLocal<Nesting> nesting = new ThreadLocal<Nesting>() {
+      @Override
+      protected Nesting initialValue() {
+         return new Nesting();
+      }
+   };
+
+   @Override
+   public Object invoke(MethodInvocation invocation) throws Throwable {
+      JdbcMetrics metrics = this.metrics;
+      boolean enabled = metrics != null && metrics.isEnabled();
+      if (!enabled && slowOperationThreshold <= 0) {
+         return invocation.proceed();
+      }
+
+      Method method = invocation.getMethod();
+      Nesting nesting = this.nesting.get();
+      boolean outermost = nesting.operations == 0;
+      boolean transaction = enabled && nesting.transactions == 0 && method.isAnnotationPresent(Transactional.class);
+      nesting.operations++;
+      if (transaction) {
+         nesting.transactions++;
+      }
+      boolean failed = true;
+      long start = System.nanoTime();
+      try {
+         Object result = invocation.proceed();
+         failed = false;
+         if (enabled && result instanceof Collection && JdbcService.class.equals(method.getDeclaringClass())) {
+            metrics.recordRowsLoaded(operationName(method), ((Collection<?>) result).size());
+         }
+         return result;
+      } finally {
+         long nanos = System.nanoTime() - start;
+         nesting.operations--;
+         if (transaction) {
+            nesting.transactions--;
+         }
+         if (enabled) {
+            metrics.recordOperation(operationName(method), nanos, failed);
+            if (transaction) {
+               metrics.recordTransaction(operationName(method), nanos);
+            }
+         }
+         if (outermost && slowOperationThreshold > 0
+               && nanos >= TimeUnit.MILLISECONDS.toNanos(slowOperationThreshold)) {
+            logger.warn("slow operation %s%s took %d ms%s", operationName(method),
+                  Arrays.toString(invocation.getArguments()), TimeUnit.NANOSECONDS.toMillis(nanos),
+                  failed ? " and failed" : "");
+         }
+      }
+   }
+
+   private String operationName(Method method) {
+      String name = operationNames.get(method);
+      if (name == null) {
+         name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+         operationNames.put(method, name);
+      }
+      return name;
+   }
+
+   private static class Nesting {
+      int operations;
+      int transactions;
+   }
+
+}
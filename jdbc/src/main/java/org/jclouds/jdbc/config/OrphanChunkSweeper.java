@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.config;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.service.JdbcService;
+import org.jclouds.lifecycle.Closer;
+import org.jclouds.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+
+/**
+ * Periodically drops the staged uploads that were abandoned, for instance because the client died mid-upload, and
+ * deletes their chunks. Nothing is scheduled unless staged uploads are enabled, in which case the sweeper runs on its own
+ * daemon thread, stopped when the context is closed.
+ */
+public class OrphanChunkSweeper implements Runnable {
+
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final JdbcService jdbcService;
+
+   @Inject
+   private OrphanChunkSweeper(JdbcService jdbcService, Closer closer,
+         @Named(JdbcConstants.PROPERTY_STAGED_UPLOADS) boolean stagedUploads,
+         @Named(JdbcConstants.PROPERTY_ORPHAN_CHUNK_AGE) long orphanChunkAge) {
+      this.jdbcService = jdbcService;
+      if (stagedUploads) {
+         final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+               new ThreadFactoryBuilder().setNameFormat("jdbc-orphan-chunk-sweeper").setDaemon(true).build());
+         scheduler.scheduleWithFixedDelay(this, orphanChunkAge, orphanChunkAge, TimeUnit.MILLISECONDS);
+         closer.addToClose(new Closeable() {
+            @Override
+            public void close() {
+               scheduler.shutdownNow();
+            }
+         });
+      }
+   }
+
+   @Override
+   public void run() {
+      try {
+         int dropped = jdbcService.deleteExpiredStagedUploads();
+         if (dropped > 0) {
+            logger.debug("dropped %d expired staged uploads", dropped);
+         }
+      } catch (RuntimeException e) {
+         // Keep the task scheduled, the next run may succeed
+         logger.warn(e, "could not drop expired staged uploads");
+      }
+   }
+
+}
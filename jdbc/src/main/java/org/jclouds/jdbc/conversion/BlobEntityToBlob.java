@@ -18,25 +18,37 @@ package org.jclouds.jdbc.conversion;
 
 import com.google.common.base.Function;
 import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import org.jclouds.Constants;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobBuilder;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.PayloadEntity;
+import org.jclouds.jdbc.reference.JdbcConstants;
 import org.jclouds.jdbc.service.JdbcService;
-import org.jclouds.jdbc.util.JdbcInputStream;
+import org.jclouds.jdbc.util.JdbcByteSource;
+
+import javax.inject.Named;
 
 public class BlobEntityToBlob implements Function<BlobEntity, Blob> {
 
    private final Provider<BlobBuilder> blobBuilders;
    private final JdbcService jdbcService;
+   private final ListeningExecutorService userExecutor;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_PREFETCH_CHUNKS)
+   private int prefetchChunks = JdbcConstants.DEFAULT_PREFETCH_CHUNKS;
 
    @Inject
-   BlobEntityToBlob(Provider<BlobBuilder> blobBuilders, JdbcService jdbcService) {
+   BlobEntityToBlob(Provider<BlobBuilder> blobBuilders, JdbcService jdbcService,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
       this.blobBuilders = blobBuilders;
       this.jdbcService = jdbcService;
+      this.userExecutor = userExecutor;
    }
 
    @Override
@@ -46,6 +58,7 @@ public class BlobEntityToBlob implements Function<BlobEntity, Blob> {
       }
 
       PayloadEntity payload = blobEntity.getPayload();
+      Long contentLength = payload.getContentLength();
       BlobBuilder builder = blobBuilders.get()
             .name(blobEntity.getKey())
             .userMetadata(blobEntity.getUserMetadata());
@@ -54,7 +67,9 @@ public class BlobEntityToBlob implements Function<BlobEntity, Blob> {
          builder.type(StorageType.FOLDER);
       }
       else {
-         builder.payload(new JdbcInputStream(jdbcService, blobEntity.getPayload().getChunks()));
+         contentLength = contentLength(payload);
+         builder.payload(new JdbcByteSource(jdbcService, payload.getId(), contentLength, userExecutor,
+               prefetchChunks));
       }
 
       Blob blob = builder.build();
@@ -70,7 +85,7 @@ public class BlobEntityToBlob implements Function<BlobEntity, Blob> {
       blob.getMetadata().getContentMetadata().setContentDisposition(payload.getContentDisposition());
       blob.getMetadata().getContentMetadata().setContentEncoding(payload.getContentEncoding());
       blob.getMetadata().getContentMetadata().setContentLanguage(payload.getContentLanguage());
-      blob.getMetadata().getContentMetadata().setContentLength(payload.getContentLength());
+      blob.getMetadata().getContentMetadata().setContentLength(contentLength);
       blob.getMetadata().getContentMetadata().setContentMD5(payload.getContentMD5() == null ?
             null :
             HashCode.fromBytes(payload.getContentMD5()));
@@ -80,4 +95,15 @@ public class BlobEntityToBlob implements Function<BlobEntity, Blob> {
       return blob;
    }
 
+   private long contentLength(PayloadEntity payload) {
+      if (payload.getContentLength() != null) {
+         return payload.getContentLength();
+      }
+      long contentLength = 0;
+      for (Integer size : jdbcService.findChunkSizes(jdbcService.findChunkIds(payload.getId()))) {
+         contentLength += size == null ? 0 : size;
+      }
+      return contentLength;
+   }
+
 }
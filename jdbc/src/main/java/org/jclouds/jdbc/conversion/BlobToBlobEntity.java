@@ -17,8 +17,9 @@
 package org.jclouds.jdbc.conversion;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Maps;
 import org.jclouds.blobstore.domain.Blob;
-import org.jclouds.blobstore.domain.MutableBlobMetadata;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.io.ContentMetadata;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.PayloadEntity;
@@ -26,7 +27,15 @@ import org.jclouds.jdbc.entity.PayloadEntity;
 public class BlobToBlobEntity implements Function<Blob, BlobEntity> {
    @Override
    public BlobEntity apply(Blob blob) {
-      MutableBlobMetadata metadata = blob.getMetadata();
+      BlobEntity blobEntity = fromMetadata(blob.getMetadata());
+      blobEntity.setSize(blob.getPayload().getContentMetadata().getContentLength());
+      return blobEntity;
+   }
+
+   /**
+    * Converts the metadata of a blob whose payload is not at hand, such as one assembled from multipart parts.
+    */
+   public BlobEntity fromMetadata(BlobMetadata metadata) {
       ContentMetadata contentMetadata = metadata.getContentMetadata();
       PayloadEntity payload = PayloadEntity.builder()
             .cacheControl(contentMetadata.getCacheControl())
@@ -42,8 +51,7 @@ public class BlobToBlobEntity implements Function<Blob, BlobEntity> {
             .build();
       return BlobEntity.builder(null, null)
             .payload(payload)
-            .userMetadata(metadata.getUserMetadata())
-            .size(blob.getPayload().getContentMetadata().getContentLength())
+            .userMetadata(Maps.newHashMap(metadata.getUserMetadata()))
             .build();
    }
 }
@@ -38,6 +38,23 @@ import java.util.Map;
 @IdClass(value = BlobEntityPK.class)
 public class BlobEntity {
 
+   /**
+    * Selects the {@link BlobSummary} of the blobs, for the queries that don't need their chunks or user metadata.
+    */
+   public static final String SELECT_SUMMARY = "SELECT NEW org.jclouds.jdbc.entity.BlobSummary(b.key, b.directory, "
+         + "b.size, b.etag, b.creationDate, b.lastModified, b.tier, p.cacheControl, p.contentType, p.contentLength, "
+         + "p.contentMD5, p.contentDisposition, p.contentLanguage, p.contentEncoding, p.expires) "
+         + "FROM BlobEntity b JOIN b.payload p";
+
+   public static final String COUNT_BY_KEY = "SELECT COUNT(b) FROM BlobEntity b "
+         + "WHERE b.containerEntity.id = :containerId AND b.key = :key";
+   public static final String FIND_ACCESS_BY_KEY = "SELECT b.blobAccess FROM BlobEntity b "
+         + "WHERE b.containerEntity.id = :containerId AND b.key = :key";
+   public static final String FIND_SUMMARY_BY_KEY = SELECT_SUMMARY
+         + " WHERE b.containerEntity.id = :containerId AND b.key = :key";
+   public static final String FIND_KEYS = "SELECT b.key FROM BlobEntity b "
+         + "WHERE b.containerEntity.id = :containerId ORDER BY b.key";
+
    @Id
    @ManyToOne
    @JoinColumn(name = "id")
@@ -46,7 +63,7 @@ public class BlobEntity {
    @Id
    private String key;
 
-   @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+   @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
    private PayloadEntity payload;
 
    @ElementCollection(fetch = FetchType.EAGER)
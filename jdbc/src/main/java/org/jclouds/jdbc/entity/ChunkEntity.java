@@ -18,30 +18,60 @@ package org.jclouds.jdbc.entity;
 
 import org.jclouds.jdbc.reference.JdbcConstants;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Lob;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
 
 @Entity
-@Table
+@Table(indexes = @Index(name = "chunk_content_hash", columnList = "contentHash"))
+@Cacheable(false)
 public class ChunkEntity {
 
+   // Identity columns would prevent the persistence provider from batching inserts
    @Id
-   @GeneratedValue
+   @TableGenerator(name = "chunkIds", allocationSize = 64)
+   @GeneratedValue(strategy = GenerationType.TABLE, generator = "chunkIds")
    private Long id;
 
    @Lob
-   @Column(length = JdbcConstants.DEFAULT_CHUNK_SIZE)
+   @Column(length = JdbcConstants.MAX_CHUNK_SIZE)
    private byte[] data;
 
+   /**
+    * Size of the chunk content, which is also the length of the data unless it is compressed.
+    */
    private int size;
 
+   /**
+    * Codec the data is encoded with, null when it is stored as is.
+    */
+   @Enumerated(EnumType.STRING)
+   @Column(length = 16)
+   private ChunkCodec codec;
+
+   /**
+    * SHA-256 of the chunk data, only set when chunk deduplication is enabled.
+    */
+   private String contentHash;
+
+   /**
+    * Number of blob payload positions referencing this chunk. The chunk is deleted when it drops to zero.
+    */
+   private int refCount;
+
    public ChunkEntity(byte[] data, int size) {
       this.data = data;
       this.size = size;
+      this.refCount = 1;
    }
 
    public ChunkEntity() {
@@ -70,4 +100,28 @@ public class ChunkEntity {
    public void setSize(int size) {
       this.size = size;
    }
+
+   public ChunkCodec getCodec() {
+      return codec;
+   }
+
+   public void setCodec(ChunkCodec codec) {
+      this.codec = codec;
+   }
+
+   public String getContentHash() {
+      return contentHash;
+   }
+
+   public void setContentHash(String contentHash) {
+      this.contentHash = contentHash;
+   }
+
+   public int getRefCount() {
+      return refCount;
+   }
+
+   public void setRefCount(int refCount) {
+      this.refCount = refCount;
+   }
 }
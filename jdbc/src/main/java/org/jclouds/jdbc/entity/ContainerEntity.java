@@ -30,6 +30,10 @@ import java.util.Date;
 @Table
 public class ContainerEntity {
 
+   public static final String FIND_BY_NAME = "SELECT c FROM ContainerEntity c WHERE c.name = :name";
+   public static final String FIND_ID_BY_NAME = "SELECT c.id FROM ContainerEntity c WHERE c.name = :name";
+   public static final String FIND_ALL = "SELECT c FROM ContainerEntity c";
+
    @Id
    @GeneratedValue
    private Long id;
@@ -23,17 +23,22 @@ import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.OrderColumn;
 import java.util.Date;
 import java.util.List;
 
 @Entity
 public class PayloadEntity {
 
+   public static final String FIND_CHUNK_IDS = "SELECT c FROM PayloadEntity p JOIN p.chunks c "
+         + "WHERE p.id = :id ORDER BY INDEX(c)";
+
    @Id
    @GeneratedValue
    private Long id;
 
-   @ElementCollection(fetch = FetchType.EAGER)
+   @ElementCollection(fetch = FetchType.LAZY)
+   @OrderColumn
    private List<Long> chunks;
 
    private String cacheControl;
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.entity;
+
+import com.google.common.collect.Lists;
+
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.OrderColumn;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Chunks of an upload committed so far, which a client continues by its id until the upload is published as a blob
+ * or aborted. The upload holds one reference to each of its chunks, which moves to the blob when it is published.
+ */
+@Entity
+public class StagedUploadEntity {
+
+   public static final String FIND_EXPIRED = "SELECT u FROM StagedUploadEntity u WHERE u.lastModified < :date";
+
+   @Id
+   private String id;
+
+   @ElementCollection(fetch = FetchType.LAZY)
+   @OrderColumn
+   private List<Long> chunks;
+
+   /**
+    * Number of bytes staged, the offset at which the upload continues.
+    */
+   private long size;
+
+   private Date lastModified;
+
+   public StagedUploadEntity(String id) {
+      this.id = id;
+      this.chunks = Lists.newArrayList();
+      this.lastModified = new Date();
+   }
+
+   public StagedUploadEntity() {
+   }
+
+   public String getId() {
+      return id;
+   }
+
+   public void setId(String id) {
+      this.id = id;
+   }
+
+   public List<Long> getChunks() {
+      return chunks;
+   }
+
+   public void setChunks(List<Long> chunks) {
+      this.chunks = chunks;
+   }
+
+   public long getSize() {
+      return size;
+   }
+
+   public void setSize(long size) {
+      this.size = size;
+   }
+
+   public Date getLastModified() {
+      return lastModified;
+   }
+
+   public void setLastModified(Date lastModified) {
+      this.lastModified = lastModified;
+   }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Receives measurements of the jdbc blob store: latencies of the {@code JdbcStorageStrategy} and {@code JdbcService}
+ * operations and of the transactions they run, plus the data and rows they move.
+ * <p>
+ * Nothing is recorded by default. Bind another implementation, such as {@link StatisticsJdbcMetrics}, in a module
+ * passed to the context builder to collect measurements. Implementations are called concurrently from every thread
+ * using the blob store and must be thread safe and cheap.
+ */
+@ImplementedBy(NoopJdbcMetrics.class)
+public interface JdbcMetrics {
+
+   /**
+    * @return false if nothing is recorded, in which case operations are not even timed
+    */
+   boolean isEnabled();
+
+   /**
+    * @param operation the operation, such as {@code JdbcService.findChunkById}
+    * @param nanos duration of the operation, including the operations it called
+    * @param failed whether the operation threw an exception
+    */
+   void recordOperation(String operation, long nanos, boolean failed);
+
+   /**
+    * @param operation the operation that started the transaction
+    * @param nanos duration of the transaction, from its start to its commit or rollback
+    */
+   void recordTransaction(String operation, long nanos);
+
+   /**
+    * @param operation the operation that loaded the rows
+    * @param rows number of entities or rows returned by the operation
+    */
+   void recordRowsLoaded(String operation, int rows);
+
+   void recordBytesRead(long bytes);
+
+   void recordBytesWritten(long bytes);
+
+   void recordChunksRead(int chunks);
+
+   /**
+    * @param chunks number of chunks inserted, chunks found to be duplicates of stored ones are not counted
+    */
+   void recordChunksWritten(int chunks);
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+/**
+ * Records nothing, so that operations are not measured at all.
+ */
+public class NoopJdbcMetrics implements JdbcMetrics {
+
+   @Override
+   public boolean isEnabled() {
+      return false;
+   }
+
+   @Override
+   public void recordOperation(String operation, long nanos, boolean failed) {
+   }
+
+   @Override
+   public void recordTransaction(String operation, long nanos) {
+   }
+
+   @Override
+   public void recordRowsLoaded(String operation, int rows) {
+   }
+
+   @Override
+   public void recordBytesRead(long bytes) {
+   }
+
+   @Override
+   public void recordBytesWritten(long bytes) {
+   }
+
+   @Override
+   public void recordChunksRead(int chunks) {
+   }
+
+   @Override
+   public void recordChunksWritten(int chunks) {
+   }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.inject.Singleton;
+
+/**
+ * Keeps in memory a latency histogram per operation and per transaction, along with totals of the data moved.
+ * <p>
+ * Histograms have power of two buckets of microseconds, so that recording is a few atomic increments and the
+ * percentiles are accurate within a factor of two.
+ */
+@Singleton
+public class StatisticsJdbcMetrics implements JdbcMetrics {
+
+   private final ConcurrentMap<String, LatencyHistogram> operations = Maps.newConcurrentMap();
+   private final ConcurrentMap<String, LatencyHistogram> transactions = Maps.newConcurrentMap();
+   private final ConcurrentMap<String, AtomicLong> rowsLoaded = Maps.newConcurrentMap();
+   private final AtomicLong bytesRead = new AtomicLong();
+   private final AtomicLong bytesWritten = new AtomicLong();
+   private final AtomicLong chunksRead = new AtomicLong();
+   private final AtomicLong chunksWritten = new AtomicLong();
+
+   @Override
+   public boolean isEnabled() {
+      return true;
+   }
+
+   @Override
+   public void recordOperation(String operation, long nanos, boolean failed) {
+      histogram(operations, operation).record(nanos, failed);
+   }
+
+   @Override
+   public void recordTransaction(String operation, long nanos) {
+      histogram(transactions, operation).record(nanos, false);
+   }
+
+   @Override
+   public void recordRowsLoaded(String operation, int rows) {
+      AtomicLong counter = rowsLoaded.get(operation);
+      if (counter == null) {
+         AtomicLong existing = rowsLoaded.putIfAbsent(operation, counter = new AtomicLong());
+         if (existing != null) {
+            counter = existing;
+         }
+      }
+      counter.addAndGet(rows);
+   }
+
+   @Override
+   public void recordBytesRead(long bytes) {
+      bytesRead.addAndGet(bytes);
+   }
+
+   @Override
+   public void recordBytesWritten(long bytes) {
+      bytesWritten.addAndGet(bytes);
+   }
+
+   @Override
+   public void recordChunksRead(int chunks) {
+      chunksRead.addAndGet(chunks);
+   }
+
+   @Override
+   public void recordChunksWritten(int chunks) {
+      chunksWritten.addAndGet(chunks);
+   }
+
+   public Map<String, LatencyHistogram> getOperations() {
+      return ImmutableSortedMap.copyOf(operations);
+   }
+
+   public Map<String, LatencyHistogram> getTransactions() {
+      return ImmutableSortedMap.copyOf(transactions);
+   }
+
+   public Map<String, Long> getRowsLoaded() {
+      ImmutableSortedMap.Builder<String, Long> result = ImmutableSortedMap.naturalOrder();
+      for (Map.Entry<String, AtomicLong> entry : rowsLoaded.entrySet()) {
+         result.put(entry.getKey(), entry.getValue().get());
+      }
+      return result.build();
+   }
+
+   public long getBytesRead() {
+      return bytesRead.get();
+   }
+
+   public long getBytesWritten() {
+      return bytesWritten.get();
+   }
+
+   public long getChunksRead() {
+      return chunksRead.get();
+   }
+
+   public long getChunksWritten() {
+      return chunksWritten.get();
+   }
+
+   /**
+    * Forgets everything recorded so far, for instance between two runs of a benchmark.
+    */
+   public void reset() {
+      operations.clear();
+      transactions.clear();
+      rowsLoaded.clear();
+      bytesRead.set(0);
+      bytesWritten.set(0);
+      chunksRead.set(0);
+      chunksWritten.set(0);
+   }
+
+   @Override
+   public String toString() {
+      StringBuilder result = new StringBuilder();
+      for (Map.Entry<String, LatencyHistogram> entry : getOperations().entrySet()) {
+         result.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+      }
+      for (Map.Entry<String, LatencyHistogram> entry : getTransactions().entrySet()) {
+         result.append("transaction ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+      }
+      return result.append(String.format("read %d bytes in %d chunks, wrote %d bytes in %d chunks",
+            getBytesRead(), getChunksRead(), getBytesWritten(), getChunksWritten())).toString();
+   }
+
+   private static LatencyHistogram histogram(ConcurrentMap<String, LatencyHistogram> histograms, String name) {
+      LatencyHistogram histogram = histograms.get(name);
+      if (histogram == null) {
+         LatencyHistogram existing = histograms.putIfAbsent(name, histogram = new LatencyHistogram());
+         if (existing != null) {
+            histogram = existing;
+         }
+      }
+      return histogram;
+   }
+
+   /**
+    * Latencies of one operation. Bucket {@code i} counts the durations below {@code 2^i} microseconds that do not
+    * fall in a lower bucket.
+    */
+   public static class LatencyHistogram {
+
+      private static final int BUCKETS = 40;
+
+      private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+      private final AtomicLong count = new AtomicLong();
+      private final AtomicLong failures = new AtomicLong();
+      private final AtomicLong totalNanos = new AtomicLong();
+      private final AtomicLong maxNanos = new AtomicLong();
+
+      void record(long nanos, boolean failed) {
+         long micros = nanos / 1000;
+         int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+         buckets.incrementAndGet(bucket);
+         count.incrementAndGet();
+         if (failed) {
+            failures.incrementAndGet();
+         }
+         totalNanos.addAndGet(nanos);
+         long max = maxNanos.get();
+         while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+         }
+      }
+
+      public long getCount() {
+         return count.get();
+      }
+
+      public long getFailures() {
+         return failures.get();
+      }
+
+      public long getTotalNanos() {
+         return totalNanos.get();
+      }
+
+      public long getMaxNanos() {
+         return maxNanos.get();
+      }
+
+      public long getMeanNanos() {
+         long count = getCount();
+         return count == 0 ? 0 : getTotalNanos() / count;
+      }
+
+      /**
+       * @param quantile between 0 and 1, such as 0.99
+       * @return upper bound in nanoseconds of the bucket holding the quantile, at most the longest duration
+       */
+      public long getQuantileNanos(double quantile) {
+         checkArgument(quantile >= 0 && quantile <= 1, "quantile must be between 0 and 1");
+         long count = getCount();
+         if (count == 0) {
+            return 0;
+         }
+         long rank = (long) Math.ceil(quantile * count);
+         long seen = 0;
+         for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+               return Math.min((1L << i) * 1000, getMaxNanos());
+            }
+         }
+         return getMaxNanos();
+      }
+
+      @Override
+      public String toString() {
+         return String.format("count=%d failures=%d mean=%dus p50=%dus p99=%dus max=%dus", getCount(), getFailures(),
+               getMeanNanos() / 1000, getQuantileNanos(0.5) / 1000, getQuantileNanos(0.99) / 1000,
+               getMaxNanos() / 1000);
+      }
+   }
+
+}
@@ -21,8 +21,79 @@ package org.jclouds.jdbc.reference;
  */
 public final class JdbcConstants {
 
+    /**
+     * Size in bytes of the chunks blob payloads are split into. It can't exceed {@link #MAX_CHUNK_SIZE}.
+     */
+    public static final String PROPERTY_CHUNK_SIZE = "jclouds.jdbc.chunk-size";
+
     public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
 
+    /**
+     * Largest supported chunk size, used as the length of the chunk data column.
+     */
+    public static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Number of chunk rows inserted before the pending inserts are flushed to the database. Configure the JDBC
+     * batch size of the persistence provider accordingly, for example with hibernate.jdbc.batch_size.
+     */
+    public static final String PROPERTY_WRITE_BATCH_SIZE = "jclouds.jdbc.write-batch-size";
+
+    public static final int DEFAULT_WRITE_BATCH_SIZE = 16;
+
+    /**
+     * Whether chunks with identical content are stored once and shared between blobs. Chunks are keyed by their
+     * SHA-256 and reference counted, so they are only deleted once no blob references them anymore.
+     */
+    public static final String PROPERTY_DEDUPLICATE_CHUNKS = "jclouds.jdbc.deduplicate-chunks";
+
+    /**
+     * Number of chunks read ahead in the background while a blob payload is consumed.
+     * Set it to 0 to read every chunk synchronously.
+     */
+    public static final String PROPERTY_PREFETCH_CHUNKS = "jclouds.jdbc.prefetch-chunks";
+
+    public static final int DEFAULT_PREFETCH_CHUNKS = 2;
+
+    /**
+     * Number of blobs deleted per transaction when a container or a directory is cleared, which bounds the size of
+     * the transactions needed to clear very large containers.
+     */
+    public static final String PROPERTY_DELETE_BATCH_SIZE = "jclouds.jdbc.delete-batch-size";
+
+    public static final int DEFAULT_DELETE_BATCH_SIZE = 500;
+
+    /**
+     * Whether blob uploads are staged: chunks are committed in small transactions, one per write batch, and a
+     * final short transaction publishes the blob. Large uploads then no longer hold one long transaction. Staged
+     * uploads can also be run and resumed explicitly through the staged upload methods of the JDBC blob store.
+     */
+    public static final String PROPERTY_STAGED_UPLOADS = "jclouds.jdbc.staged-uploads";
+
+    /**
+     * Time in milliseconds after which a staged upload that was not appended to is considered abandoned, and
+     * dropped along with its chunks. Abandoned uploads are looked for at the same interval.
+     */
+    public static final String PROPERTY_ORPHAN_CHUNK_AGE = "jclouds.jdbc.orphan-chunk-age";
+
+    public static final long DEFAULT_ORPHAN_CHUNK_AGE = 60 * 60 * 1000L;
+
+    /**
+     * Deflate level chunks are compressed with, from 1 (fastest) to 9 (smallest). 0 disables compression. Chunks
+     * that don't shrink are stored uncompressed, so incompressible payloads only cost the compression attempt.
+     */
+    public static final String PROPERTY_COMPRESSION_LEVEL = "jclouds.jdbc.compression-level";
+
+    public static final int DEFAULT_COMPRESSION_LEVEL = 0;
+
+    /**
+     * Duration in milliseconds above which an operation of the storage strategy is logged as slow, with its
+     * arguments. 0 disables the log.
+     */
+    public static final String PROPERTY_SLOW_OPERATION_THRESHOLD = "jclouds.jdbc.slow-operation-threshold";
+
+    public static final long DEFAULT_SLOW_OPERATION_THRESHOLD = 1000;
+
     private JdbcConstants() {
         throw new AssertionError("Intentionally Unimplemented");
     }
@@ -16,39 +16,180 @@
  */
 package org.jclouds.jdbc.repository;
 
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
+import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.BlobEntityPK;
-import org.jclouds.jdbc.entity.ContainerEntity;
+import org.jclouds.jdbc.entity.BlobStatistics;
+import org.jclouds.jdbc.entity.BlobSummary;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Singleton
 public class BlobRepository extends GenericRepository<BlobEntity, BlobEntityPK> {
 
+   private static final int MAX_PARAMETERS = 500;
+   private static final String LIKE_ESCAPE = "ESCAPE '\\'";
+
    @Inject
    private BlobRepository(Provider<EntityManager> entityManager) {
       super(entityManager);
    }
 
-    public List<BlobEntity> findBlobsByContainer(ContainerEntity containerEntity) {
-        return entityManager.get().createQuery("SELECT b FROM " + entityClass.getName() + " b "
-              + "WHERE"
-              + " b.containerEntity = :containerEntity", entityClass)
-                .setParameter("containerEntity", containerEntity)
-                .getResultList();
-    }
-
-   public List<BlobEntity> findBlobsByDirectory(ContainerEntity containerEntity, String directory) {
-      return entityManager.get().createQuery("SELECT b FROM " + entityClass.getName() + " b "
-            + "WHERE b.containerEntity = :containerEntity AND b.key != :directoryName AND b.key LIKE :directoryLike ", entityClass)
-            .setParameter("containerEntity", containerEntity)
-            .setParameter("directoryName", directory)
-            .setParameter("directoryLike", directory + "%")
+   public boolean blobExists(Long containerId, String key) {
+      return entityManager.get().createQuery(BlobEntity.COUNT_BY_KEY, Long.class)
+            .setParameter("containerId", containerId)
+            .setParameter("key", key)
+            .getSingleResult() > 0;
+   }
+
+   public BlobAccess findBlobAccess(Long containerId, String key) {
+      List<BlobAccess> result = entityManager.get().createQuery(BlobEntity.FIND_ACCESS_BY_KEY, BlobAccess.class)
+            .setParameter("containerId", containerId)
+            .setParameter("key", key)
+            .getResultList();
+      return result.isEmpty() ? null : result.get(0);
+   }
+
+   /**
+    * Returns the metadata columns of a blob without loading its chunk list or user metadata, or null if the blob
+    * does not exist.
+    */
+   public BlobSummary findBlobSummary(Long containerId, String key) {
+      List<BlobSummary> result = entityManager.get()
+            .createQuery(BlobEntity.FIND_SUMMARY_BY_KEY, BlobSummary.class)
+            .setParameter("containerId", containerId)
+            .setParameter("key", key)
             .getResultList();
+      return result.isEmpty() ? null : result.get(0);
+   }
+
+   /**
+    * Counts the blobs of a container and sums their sizes with a single aggregate query. Only the blobs whose key
+    * starts with prefix are taken into account, and when a delimiter is given only those without a delimiter after
+    * the prefix. Both prefix and delimiter may be null.
+    */
+   public BlobStatistics findBlobStatistics(Long containerId, String prefix, String delimiter) {
+      StringBuilder query = new StringBuilder("SELECT NEW " + BlobStatistics.class.getName()
+            + "(COUNT(b), SUM(b.size)) FROM " + entityClass.getName() + " b "
+            + "WHERE b.containerEntity.id = :containerId");
+      if (prefix != null) {
+         query.append(" AND b.key LIKE :prefix " + LIKE_ESCAPE);
+      }
+      if (delimiter != null) {
+         query.append(" AND b.key NOT LIKE :nested " + LIKE_ESCAPE);
+      }
+      TypedQuery<BlobStatistics> result = entityManager.get().createQuery(query.toString(), BlobStatistics.class)
+            .setParameter("containerId", containerId);
+      if (prefix != null) {
+         result.setParameter("prefix", startsWith(prefix));
+      }
+      if (delimiter != null) {
+         result.setParameter("nested", startsWith(Strings.nullToEmpty(prefix)) + escape(delimiter) + "%");
+      }
+      return result.getSingleResult();
+   }
+
+   /**
+    * Returns up to maxResults blobs of a container. When a directory is given, only the blobs whose key starts with
+    * it are returned, and directory blobs are only returned when includeDirectories is set.
+    */
+   public List<BlobEntity> findBlobs(Long containerId, String directory, boolean includeDirectories,
+         int maxResults) {
+      StringBuilder query = new StringBuilder("SELECT b FROM " + entityClass.getName() + " b "
+            + "WHERE b.containerEntity.id = :containerId");
+      if (directory != null) {
+         query.append(" AND b.key != :directoryName AND b.key LIKE :directoryLike " + LIKE_ESCAPE);
+      }
+      if (!includeDirectories) {
+         query.append(" AND b.directory = false");
+      }
+      TypedQuery<BlobEntity> result = entityManager.get().createQuery(query.toString(), entityClass)
+            .setParameter("containerId", containerId)
+            .setMaxResults(maxResults);
+      if (directory != null) {
+         result.setParameter("directoryName", directory)
+               .setParameter("directoryLike", startsWith(directory));
+      }
+      return result.getResultList();
+   }
+
+   public List<String> findBlobKeys(Long containerId) {
+      return entityManager.get().createQuery(BlobEntity.FIND_KEYS, String.class)
+            .setParameter("containerId", containerId)
+            .getResultList();
+   }
+
+   /**
+    * Keyset query on the blob primary key: returns, in key order, the metadata of up to maxResults blobs whose key
+    * starts with prefix and sorts after from, or at from when inclusive is set. Both prefix and from may be null.
+    */
+   public List<BlobSummary> findBlobSummaries(Long containerId, String prefix, String from,
+         boolean inclusive, int maxResults) {
+      StringBuilder query = new StringBuilder(BlobEntity.SELECT_SUMMARY
+            + " WHERE b.containerEntity.id = :containerId");
+      if (prefix != null) {
+         query.append(" AND b.key LIKE :prefix " + LIKE_ESCAPE);
+      }
+      if (from != null) {
+         query.append(inclusive ? " AND b.key >= :from" : " AND b.key > :from");
+      }
+      query.append(" ORDER BY b.key");
+      TypedQuery<BlobSummary> result = entityManager.get().createQuery(query.toString(), BlobSummary.class)
+            .setParameter("containerId", containerId)
+            .setMaxResults(maxResults);
+      if (prefix != null) {
+         result.setParameter("prefix", startsWith(prefix));
+      }
+      if (from != null) {
+         result.setParameter("from", from);
+      }
+      return result.getResultList();
+   }
+
+   /**
+    * Loads the user metadata of the given blobs, keyed by blob key.
+    */
+   public Map<String, Map<String, String>> findUserMetadata(Long containerId, Collection<String> keys) {
+      Map<String, Map<String, String>> result = Maps.newHashMap();
+      for (List<String> partition : Lists.partition(ImmutableList.copyOf(keys), MAX_PARAMETERS)) {
+         List<Object[]> rows = entityManager.get().createQuery("SELECT b.key, KEY(m), VALUE(m) FROM "
+               + entityClass.getName() + " b JOIN b.userMetadata m "
+               + "WHERE b.containerEntity.id = :containerId AND b.key IN :keys", Object[].class)
+               .setParameter("containerId", containerId)
+               .setParameter("keys", partition)
+               .getResultList();
+         for (Object[] row : rows) {
+            Map<String, String> userMetadata = result.get(row[0]);
+            if (userMetadata == null) {
+               userMetadata = Maps.newHashMap();
+               result.put((String) row[0], userMetadata);
+            }
+            userMetadata.put((String) row[1], (String) row[2]);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Builds a LIKE pattern matching the strings starting with prefix, to be used with {@link #LIKE_ESCAPE}.
+    */
+   private static String startsWith(String prefix) {
+      return escape(prefix) + "%";
+   }
+
+   private static String escape(String value) {
+      return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
    }
 
 }
@@ -16,19 +16,132 @@
  */
 package org.jclouds.jdbc.repository;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.entity.PayloadEntity;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 @Singleton
 public class ChunkRepository extends GenericRepository<ChunkEntity, Long> {
 
+   private static final int MAX_PARAMETERS = 500;
+
    @Inject
    private ChunkRepository(Provider<EntityManager> entityManager) {
       super(entityManager);
    }
 
+   /**
+    * Looks up the size of the given chunks without loading their data.
+    */
+   public Map<Long, Integer> findChunkSizes(List<Long> ids) {
+      Map<Long, Integer> result = Maps.newHashMap();
+      for (List<Long> partition : Lists.partition(ids, MAX_PARAMETERS)) {
+         List<Object[]> rows = entityManager.get().createQuery("SELECT c.id, c.size FROM " + entityClass.getName()
+               + " c WHERE c.id IN :ids", Object[].class)
+               .setParameter("ids", partition)
+               .getResultList();
+         for (Object[] row : rows) {
+            result.put((Long) row[0], (Integer) row[1]);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Returns the chunk ids of a payload, in order.
+    */
+   public List<Long> findChunkIdsByPayload(Long payloadId) {
+      return entityManager.get().createQuery(PayloadEntity.FIND_CHUNK_IDS, Long.class)
+            .setParameter("id", payloadId)
+            .getResultList();
+   }
+
+   /**
+    * Returns the chunk ids referenced by the given payloads, once per reference.
+    */
+   public List<Long> findChunkIdsByPayload(List<Long> payloadIds) {
+      ImmutableList.Builder<Long> result = ImmutableList.builder();
+      for (List<Long> partition : Lists.partition(payloadIds, MAX_PARAMETERS)) {
+         result.addAll(entityManager.get().createQuery("SELECT c FROM " + PayloadEntity.class.getName() + " p "
+               + "JOIN p.chunks c WHERE p.id IN :ids", Long.class)
+               .setParameter("ids", partition)
+               .getResultList());
+      }
+      return result.build();
+   }
+
+   /**
+    * Looks up the ids of the chunks with the given content hashes.
+    */
+   public Map<String, Long> findChunkIdsByHash(Collection<String> hashes) {
+      Map<String, Long> result = Maps.newHashMap();
+      for (List<String> partition : Lists.partition(ImmutableList.copyOf(hashes), MAX_PARAMETERS)) {
+         List<Object[]> rows = entityManager.get().createQuery("SELECT c.contentHash, c.id FROM "
+               + entityClass.getName() + " c WHERE c.contentHash IN :hashes", Object[].class)
+               .setParameter("hashes", partition)
+               .getResultList();
+         for (Object[] row : rows) {
+            result.put((String) row[0], (Long) row[1]);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Adds one reference to the given chunks for every time they appear in the multiset.
+    *
+    * @return false if some of the chunks no longer exist
+    */
+   public boolean retainChunks(Multiset<Long> chunkIds) {
+      return updateReferenceCounts(chunkIds, 1) == chunkIds.elementSet().size();
+   }
+
+   /**
+    * Removes one reference from the given chunks for every time they appear in the list, and deletes the chunks
+    * that are no longer referenced.
+    */
+   public void releaseChunks(List<Long> chunkIds) {
+      Multiset<Long> references = HashMultiset.create(chunkIds);
+      updateReferenceCounts(references, -1);
+      for (List<Long> partition : Lists.partition(ImmutableList.copyOf(references.elementSet()), MAX_PARAMETERS)) {
+         entityManager.get().createQuery("DELETE FROM " + entityClass.getName() + " c "
+               + "WHERE c.id IN :ids AND c.refCount <= 0")
+               .setParameter("ids", partition)
+               .executeUpdate();
+      }
+   }
+
+   private int updateReferenceCounts(Multiset<Long> chunkIds, int sign) {
+      // One statement per distinct number of occurrences, as a chunk can appear several times in a blob
+      Multimap<Integer, Long> idsByCount = ArrayListMultimap.create();
+      for (Multiset.Entry<Long> entry : chunkIds.entrySet()) {
+         idsByCount.put(entry.getCount(), entry.getElement());
+      }
+      int updated = 0;
+      for (Map.Entry<Integer, Collection<Long>> entry : idsByCount.asMap().entrySet()) {
+         for (List<Long> partition : Lists.partition(ImmutableList.copyOf(entry.getValue()), MAX_PARAMETERS)) {
+            updated += entityManager.get().createQuery("UPDATE " + entityClass.getName() + " c "
+                  + "SET c.refCount = c.refCount + :delta WHERE c.id IN :ids")
+                  .setParameter("delta", sign * entry.getKey())
+                  .setParameter("ids", partition)
+                  .executeUpdate();
+         }
+      }
+      return updated;
+   }
+
 }
@@ -35,7 +35,7 @@ public class ContainerRepository extends GenericRepository<ContainerEntity, Long
 
    public ContainerEntity findContainerByName(String name) {
       try {
-         return entityManager.get().createQuery("SELECT c FROM " + entityClass.getName() + " c WHERE c.name = :name", entityClass)
+         return entityManager.get().createQuery(ContainerEntity.FIND_BY_NAME, entityClass)
                .setParameter("name", name)
                .getSingleResult();
       } catch (NoResultException e) {
@@ -43,8 +43,15 @@ public class ContainerRepository extends GenericRepository<ContainerEntity, Long
       }
    }
 
+   public Long findContainerIdByName(String name) {
+      List<Long> result = entityManager.get().createQuery(ContainerEntity.FIND_ID_BY_NAME, Long.class)
+            .setParameter("name", name)
+            .getResultList();
+      return result.isEmpty() ? null : result.get(0);
+   }
+
    public List<ContainerEntity> findAllContainers() {
-      return entityManager.get().createQuery("SELECT c FROM " + entityClass.getName() + " c", entityClass)
+      return entityManager.get().createQuery(ContainerEntity.FIND_ALL, entityClass)
             .getResultList();
    }
 
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.repository;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import org.jclouds.jdbc.entity.StagedUploadEntity;
+
+import javax.persistence.EntityManager;
+import java.util.Date;
+import java.util.List;
+
+@Singleton
+public class StagedUploadRepository extends GenericRepository<StagedUploadEntity, String> {
+
+   @Inject
+   private StagedUploadRepository(Provider<EntityManager> entityManager) {
+      super(entityManager);
+   }
+
+   /**
+    * Returns the uploads last appended to before the given date.
+    */
+   public List<StagedUploadEntity> findExpired(Date modifiedBefore) {
+      return entityManager.get().createQuery(StagedUploadEntity.FIND_EXPIRED, StagedUploadEntity.class)
+            .setParameter("date", modifiedBefore)
+            .getResultList();
+   }
+
+}
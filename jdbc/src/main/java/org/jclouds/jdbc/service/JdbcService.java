@@ -16,54 +16,145 @@
  */
 package org.jclouds.jdbc.service;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
 import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingInputStream;
 import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.persist.Transactional;
+import org.jclouds.Constants;
+import org.jclouds.blobstore.KeyNotFoundException;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.io.ContentMetadata;
 import org.jclouds.jdbc.conversion.BlobToBlobEntity;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.BlobEntityPK;
+import org.jclouds.jdbc.entity.BlobStatistics;
+import org.jclouds.jdbc.entity.BlobSummary;
+import org.jclouds.jdbc.entity.ChunkCodec;
 import org.jclouds.jdbc.entity.ChunkEntity;
 import org.jclouds.jdbc.entity.ContainerEntity;
 import org.jclouds.jdbc.entity.PayloadEntity;
+import org.jclouds.jdbc.entity.StagedUploadEntity;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
 import org.jclouds.jdbc.reference.JdbcConstants;
 import org.jclouds.jdbc.repository.BlobRepository;
 import org.jclouds.jdbc.repository.ChunkRepository;
 import org.jclouds.jdbc.repository.ContainerRepository;
+import org.jclouds.jdbc.repository.StagedUploadRepository;
+import org.jclouds.jdbc.util.ChunkBufferPool;
+import org.jclouds.jdbc.util.ChunkCompression;
+import org.jclouds.jdbc.util.JdbcByteSource;
 import org.jclouds.util.Closeables2;
 
+import javax.inject.Named;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.io.BaseEncoding.base16;
 
 @Singleton
 public class JdbcService {
 
    private static final String DIRECTORY_MD5 = Hashing.md5().hashBytes(new byte[0]).toString();
+   private static final int CONTAINER_CACHE_SIZE = 1024;
 
    private final ContainerRepository containerRepository;
    private final BlobRepository blobRepository;
    private final ChunkRepository chunkRepository;
+   private final StagedUploadRepository stagedUploadRepository;
    private final BlobToBlobEntity blobToBlobEntity;
+   private final ListeningExecutorService userExecutor;
+   private final JdbcMetrics metrics;
+   private volatile ChunkBufferPool bufferPool;
+
+   /**
+    * Container ids by name, as almost every operation starts by resolving its container. Entries expire after a
+    * while so that containers deleted through another client of the same database are eventually noticed.
+    */
+   private final Cache<String, Long> containerIds = CacheBuilder.newBuilder()
+         .maximumSize(CONTAINER_CACHE_SIZE)
+         .expireAfterWrite(1, TimeUnit.MINUTES)
+         .build();
+
+   /**
+    * Incremented whenever a container is deleted, guarded by {@link #containerIds}. A lookup only caches the id it
+    * loaded if no container was deleted meanwhile, as the id may belong to the deleted container.
+    */
+   private long containerGeneration;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_CHUNK_SIZE)
+   private int chunkSize = JdbcConstants.DEFAULT_CHUNK_SIZE;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_WRITE_BATCH_SIZE)
+   private int writeBatchSize = JdbcConstants.DEFAULT_WRITE_BATCH_SIZE;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_DEDUPLICATE_CHUNKS)
+   private boolean deduplicateChunks = false;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_DELETE_BATCH_SIZE)
+   private int deleteBatchSize = JdbcConstants.DEFAULT_DELETE_BATCH_SIZE;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_STAGED_UPLOADS)
+   private boolean stagedUploads = false;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_ORPHAN_CHUNK_AGE)
+   private long orphanChunkAge = JdbcConstants.DEFAULT_ORPHAN_CHUNK_AGE;
+
+   @Inject(optional = true)
+   @Named(JdbcConstants.PROPERTY_COMPRESSION_LEVEL)
+   private int compressionLevel = JdbcConstants.DEFAULT_COMPRESSION_LEVEL;
 
    @Inject
    JdbcService(ContainerRepository containerRepository, BlobRepository blobRepository, ChunkRepository chunkRepository,
-         BlobToBlobEntity blobToBlobEntity) {
+         StagedUploadRepository stagedUploadRepository, BlobToBlobEntity blobToBlobEntity,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor, JdbcMetrics metrics) {
       this.containerRepository = containerRepository;
       this.blobRepository = blobRepository;
       this.chunkRepository = chunkRepository;
+      this.stagedUploadRepository = stagedUploadRepository;
       this.blobToBlobEntity = blobToBlobEntity;
+      this.userExecutor = userExecutor;
+      this.metrics = metrics;
    }
 
    @Transactional
@@ -86,8 +177,61 @@ public class JdbcService {
       return containerRepository.findContainerByName(containerName);
    }
 
-   @Transactional
+   /**
+    * Returns the id of a container, or null if it does not exist. Ids are cached, and since the cache only holds
+    * containers that exist, creating a container needs no invalidation.
+    */
+   public Long findContainerId(String containerName) {
+      Long containerId = containerIds.getIfPresent(containerName);
+      if (containerId == null) {
+         long generation;
+         synchronized (containerIds) {
+            generation = containerGeneration;
+         }
+         containerId = loadContainerId(containerName);
+         if (containerId != null) {
+            synchronized (containerIds) {
+               if (generation == containerGeneration) {
+                  containerIds.put(containerName, containerId);
+               }
+            }
+         }
+      }
+      return containerId;
+   }
+
+   /**
+    * Always asks the database, so that containers deleted or recreated by another client of the same database are
+    * noticed right away. A cached id that no longer matches is dropped.
+    */
+   public boolean containerExists(String containerName) {
+      Long containerId = loadContainerId(containerName);
+      Long cachedId = containerIds.getIfPresent(containerName);
+      if (cachedId != null && !cachedId.equals(containerId)) {
+         containerIds.invalidate(containerName);
+      }
+      return containerId != null;
+   }
+
    public void deleteContainerByName(String containerName) {
+      try {
+         deleteContainer(containerName);
+      } finally {
+         // Once the deletion is committed; lookups that loaded the id before that won't cache it
+         synchronized (containerIds) {
+            containerGeneration++;
+            containerIds.invalidate(containerName);
+         }
+      }
+   }
+
+   @Transactional
+   protected Long loadContainerId(String containerName) {
+      return containerRepository.findContainerIdByName(containerName);
+   }
+
+   @Transactional
+   protected void deleteContainer(String containerName) {
       containerRepository.deleteContainerByName(containerName);
    }
 
@@ -100,15 +244,197 @@ public class JdbcService {
 
    @Transactional
    public boolean blobExists(String containerName, String key) {
-      return findBlobById(containerName, key) != null;
+      return blobRepository.blobExists(findContainerId(containerName), key);
    }
 
-   @Transactional(rollbackOn = IOException.class)
+   /**
+    * Stores a blob, replacing any previous version. Unless staged uploads are enabled, the whole upload is a single
+    * transaction.
+    */
    public BlobEntity createOrModifyBlob(String containerName, Blob blob, BlobAccess blobAccess) throws IOException {
+      return stagedUploads ? stageBlob(containerName, blob, blobAccess) : storeBlob(containerName, blob, blobAccess);
+   }
+
+   public BlobEntity createOrModifyBlob(String containerName, Blob blob) throws IOException {
+      return createOrModifyBlob(containerName, blob, null);
+   }
+
+   @Transactional(rollbackOn = IOException.class)
+   protected BlobEntity storeBlob(String containerName, Blob blob, BlobAccess blobAccess) throws IOException {
+      BlobEntity blobEntity = readBlob(blob, blobAccess, null);
+      return replaceBlob(containerName, blob.getMetadata().getName(), blobEntity);
+   }
+
+   /**
+    * Stores a blob as a staged upload, published once its whole payload is staged. The upload is aborted if that
+    * fails, as the caller has no id to continue it with.
+    */
+   private BlobEntity stageBlob(String containerName, Blob blob, BlobAccess blobAccess) throws IOException {
+      String uploadId = initiateStagedUpload();
+      boolean published = false;
+      try {
+         BlobEntity blobEntity = readBlob(blob, blobAccess, uploadId);
+         BlobEntity result = publishStagedUpload(containerName, blob.getMetadata().getName(), blobEntity, uploadId);
+         published = true;
+         return result;
+      } finally {
+         if (!published) {
+            try {
+               abortStagedUpload(uploadId);
+            } catch (RuntimeException ignored) {
+               // The sweeper drops it eventually
+            }
+         }
+      }
+   }
+
+   /**
+    * Starts a staged upload. Data is appended to it with {@link #appendStagedUpload}, then it is published as a blob
+    * with {@link #completeStagedUpload} or dropped with {@link #abortStagedUpload}. Uploads not appended to for
+    * longer than the orphan chunk age are dropped by {@link #deleteExpiredStagedUploads()}.
+    *
+    * @return the id the upload is continued with
+    * @throws IllegalStateException if staged uploads are disabled
+    */
+   @Transactional
+   public String initiateStagedUpload() {
+      checkState(stagedUploads, "Staged uploads are disabled, see %s", JdbcConstants.PROPERTY_STAGED_UPLOADS);
+      return stagedUploadRepository.create(new StagedUploadEntity(UUID.randomUUID().toString())).getId();
+   }
+
+   /**
+    * Appends data to a staged upload. Every write batch of chunks commits along with the new size of the upload, so
+    * when an append fails the client continues it from the size {@link #findStagedUploadSize} returns. Appends to
+    * the same upload must not run concurrently.
+    *
+    * @return the number of bytes staged so far
+    * @throws IllegalArgumentException if the upload does not exist
+    */
+   public long appendStagedUpload(String uploadId, InputStream data) throws IOException {
+      checkArgument(findStagedUploadSize(uploadId) != null, "Staged upload %s does not exist", uploadId);
+      CountingInputStream cis = new CountingInputStream(data);
+      try {
+         storeData(cis, uploadId);
+      } finally {
+         metrics.recordBytesWritten(cis.getCount());
+      }
+      return findStagedUploadSize(uploadId);
+   }
+
+   /**
+    * @return the number of bytes staged by an upload, or null if the upload does not exist
+    */
+   @Transactional
+   public Long findStagedUploadSize(String uploadId) {
+      StagedUploadEntity upload = stagedUploadRepository.find(uploadId);
+      return upload == null ? null : upload.getSize();
+   }
+
+   /**
+    * Publishes a staged upload as a blob, replacing any previous version. The data may have been appended in
+    * several runs, so its MD5 is computed by reading it back before a short transaction publishes the blob.
+    *
+    * @throws IllegalArgumentException if the upload does not exist
+    * @throws IOException if the MD5 of the metadata does not match the staged data
+    */
+   public BlobEntity completeStagedUpload(String containerName, String key, BlobMetadata metadata,
+         BlobAccess blobAccess, String uploadId) throws IOException {
+      StagedUploadEntity upload = findStagedUpload(uploadId);
+      HashCode actualHashCode = new JdbcByteSource(this, upload.getChunks(), upload.getSize(), userExecutor,
+            JdbcConstants.DEFAULT_PREFETCH_CHUNKS).hash(Hashing.md5());
+      HashCode expectedHashCode = metadata.getContentMetadata().getContentMD5AsHashCode();
+      if (expectedHashCode != null && !actualHashCode.equals(expectedHashCode)) {
+         throw new IOException("MD5 hash code mismatch, actual: " + actualHashCode +
+               " expected: " + expectedHashCode);
+      }
+
+      BlobEntity blobEntity = blobToBlobEntity.fromMetadata(metadata);
+      blobEntity.setBlobAccess(blobAccess);
+      blobEntity.setTier(metadata.getTier());
+      blobEntity.setEtag(base16().lowerCase().encode(actualHashCode.asBytes()));
+      blobEntity.getPayload().setContentMD5(actualHashCode.asBytes());
+      blobEntity.getPayload().setContentLength(upload.getSize());
+      blobEntity.setSize(upload.getSize());
+      return publishStagedUpload(containerName, key, blobEntity, uploadId);
+   }
+
+   /**
+    * Drops a staged upload and releases its chunks. Nothing happens if the upload does not exist.
+    */
+   @Transactional
+   public void abortStagedUpload(String uploadId) {
+      StagedUploadEntity upload = stagedUploadRepository.find(uploadId);
+      if (upload != null) {
+         dropStagedUpload(upload);
+      }
+   }
+
+   /**
+    * Drops the staged uploads not appended to for longer than the orphan chunk age, such as those of clients that
+    * died mid-upload.
+    *
+    * @return the number of dropped uploads
+    */
+   @Transactional
+   public int deleteExpiredStagedUploads() {
+      List<StagedUploadEntity> expired = stagedUploadRepository.findExpired(
+            new Date(System.currentTimeMillis() - orphanChunkAge));
+      for (StagedUploadEntity upload : expired) {
+         dropStagedUpload(upload);
+      }
+      return expired.size();
+   }
+
+   /**
+    * Returns a staged upload detached with a copy of its chunk ids.
+    */
+   @Transactional
+   protected StagedUploadEntity findStagedUpload(String uploadId) {
+      StagedUploadEntity upload = stagedUploadRepository.find(uploadId);
+      checkArgument(upload != null, "Staged upload %s does not exist", uploadId);
+      List<Long> chunks = ImmutableList.copyOf(upload.getChunks());
+      stagedUploadRepository.detach(upload);
+      upload.setChunks(chunks);
+      return upload;
+   }
+
+   /**
+    * Publishes the chunks of a staged upload as the payload of a blob. The references the upload holds move to the
+    * blob, so reference counts are left as they are.
+    */
+   @Transactional(rollbackOn = IOException.class)
+   protected BlobEntity publishStagedUpload(String containerName, String key, BlobEntity blobEntity, String uploadId)
+         throws IOException {
+      StagedUploadEntity upload = stagedUploadRepository.find(uploadId);
+      if (upload == null) {
+         throw new IOException("Staged upload " + uploadId + " has been aborted or has expired");
+      }
+      if (upload.getSize() != blobEntity.getSize()) {
+         throw new IOException("Staged upload " + uploadId + " has been appended to while being completed");
+      }
+      blobEntity.getPayload().setChunks(ImmutableList.copyOf(upload.getChunks()));
+      stagedUploadRepository.delete(upload);
+      return replaceBlob(containerName, key, blobEntity);
+   }
+
+   private void dropStagedUpload(StagedUploadEntity upload) {
+      List<Long> chunks = ImmutableList.copyOf(upload.getChunks());
+      stagedUploadRepository.delete(upload);
+      deleteChunks(chunks);
+   }
+
+   /**
+    * Reads the payload of a blob into chunks and checks its MD5.
+    *
+    * @param uploadId the staged upload the chunks are appended to, or null to store them in the current transaction
+    * @return the blob entity, with neither container nor key
+    */
+   private BlobEntity readBlob(Blob blob, BlobAccess blobAccess, String uploadId) throws IOException {
       List<Long> chunks;
-      HashingInputStream his = new HashingInputStream(Hashing.md5(), blob.getPayload().openStream());
+      CountingInputStream cis = new CountingInputStream(blob.getPayload().openStream());
+      HashingInputStream his = new HashingInputStream(Hashing.md5(), cis);
       try {
-         chunks = storeData(his);
+         chunks = storeData(his, uploadId);
       } finally {
          Closeables2.closeQuietly(his);
       }
@@ -119,25 +445,108 @@ public class JdbcService {
                " expected: " + expectedHashCode);
       }
 
-      String key = blob.getMetadata().getName();
-      Date creationDate = null;
-      BlobEntity oldBlobEntity = findBlobById(containerName, key);
-      if (oldBlobEntity != null) {
-         creationDate = oldBlobEntity.getCreationDate();
-      }
       BlobEntity blobEntity = blobToBlobEntity.apply(blob);
       blobEntity.getPayload().setChunks(chunks);
-      blobEntity.setContainerEntity(containerRepository.findContainerByName(containerName));
-      blobEntity.setKey(key);
       blobEntity.setBlobAccess(blobAccess);
       blobEntity.setTier(blob.getMetadata().getTier());
-      blobEntity.setCreationDate(creationDate);
-      blobEntity.setLastModified(new Date());
       blobEntity.setEtag(base16().lowerCase().encode(actualHashCode.asBytes()));
       blobEntity.getPayload().setContentMD5(actualHashCode.asBytes());
+      blobEntity.getPayload().setContentLength(cis.getCount());
+      blobEntity.setSize(cis.getCount());
+      metrics.recordBytesWritten(cis.getCount());
+      return blobEntity;
+   }
 
-      BlobEntity result = blobRepository.save(blobEntity);
-      return result;
+   /**
+    * Copies a blob by referencing the chunks of the source instead of copying their data.
+    *
+    * @param contentMetadata content metadata replacing the one of the source, or null to keep it
+    * @param userMetadata user metadata replacing the one of the source, or null to keep it
+    * @return the copy, or null if the source does not exist
+    */
+   @Transactional
+   public BlobEntity copyBlob(String fromContainerName, String fromKey, String toContainerName, String toKey,
+         ContentMetadata contentMetadata, Map<String, String> userMetadata) {
+      BlobEntity source = findBlobById(fromContainerName, fromKey);
+      if (source == null) {
+         return null;
+      }
+      PayloadEntity sourcePayload = source.getPayload();
+      List<Long> chunks = ImmutableList.copyOf(sourcePayload.getChunks());
+      PayloadEntity.Builder payload = PayloadEntity.builder()
+            .chunks(chunks)
+            .contentLength(sourcePayload.getContentLength())
+            .contentMD5(sourcePayload.getContentMD5())
+            .expires(sourcePayload.getExpires());
+      if (contentMetadata == null) {
+         payload.cacheControl(sourcePayload.getCacheControl())
+               .contentDisposition(sourcePayload.getContentDisposition())
+               .contentEncoding(sourcePayload.getContentEncoding())
+               .contentLanguage(sourcePayload.getContentLanguage())
+               .contentType(sourcePayload.getContentType());
+      } else {
+         payload.cacheControl(contentMetadata.getCacheControl())
+               .contentDisposition(contentMetadata.getContentDisposition())
+               .contentEncoding(contentMetadata.getContentEncoding())
+               .contentLanguage(contentMetadata.getContentLanguage())
+               .contentType(contentMetadata.getContentType());
+      }
+      BlobEntity blobEntity = BlobEntity.builder(null, null)
+            .payload(payload.build())
+            .userMetadata(Maps.newHashMap(userMetadata == null ? source.getUserMetadata() : userMetadata))
+            .tier(source.getTier())
+            .size(source.getSize())
+            .etag(source.getEtag())
+            .directory(source.isDirectory())
+            .build();
+      // Reference the chunks before the target, which may be the source itself, releases its own
+      checkState(chunkRepository.retainChunks(HashMultiset.create(chunks)), "Chunks of %s have been deleted",
+            fromKey);
+      return replaceBlob(toContainerName, toKey, blobEntity);
+   }
+
+   /**
+    * Assembles a blob from the given parts by concatenating their chunk lists, and deletes the parts. No payload
+    * data is read or written; the ETag is derived from the part ETags the way S3 does, as the MD5 of the whole
+    * payload would need all of it.
+    *
+    * @throws KeyNotFoundException if one of the parts does not exist
+    */
+   @Transactional
+   public BlobEntity completeMultipartUpload(String containerName, String key, BlobMetadata metadata,
+         BlobAccess blobAccess, List<String> partKeys) {
+      checkArgument(ImmutableSet.copyOf(partKeys).size() == partKeys.size(), "Parts must be distinct");
+      Long containerId = findContainerId(containerName);
+      List<BlobEntity> parts = Lists.newArrayListWithCapacity(partKeys.size());
+      List<Long> chunks = Lists.newArrayList();
+      Hasher etags = Hashing.md5().newHasher();
+      long size = 0;
+      for (String partKey : partKeys) {
+         BlobEntity part = containerId == null ? null : blobRepository.find(new BlobEntityPK(containerId, partKey));
+         if (part == null) {
+            throw new KeyNotFoundException(containerName, partKey, "while completing multipart upload");
+         }
+         chunks.addAll(chunkRepository.findChunkIdsByPayload(part.getPayload().getId()));
+         etags.putBytes(base16().lowerCase().decode(part.getEtag()));
+         size += part.getSize();
+         parts.add(part);
+      }
+
+      BlobEntity blobEntity = blobToBlobEntity.fromMetadata(metadata);
+      blobEntity.getPayload().setChunks(chunks);
+      blobEntity.getPayload().setContentMD5(null);
+      blobEntity.getPayload().setContentLength(size);
+      blobEntity.setBlobAccess(blobAccess);
+      blobEntity.setTier(metadata.getTier());
+      // Quoted, like the ETag LocalBlobStore computes for multipart uploads
+      blobEntity.setEtag("\"" + etags.hash() + "-" + partKeys.size() + "\"");
+      blobEntity.setSize(size);
+
+      // Every chunk reference of the parts moves to the assembled blob, so reference counts are left as they are
+      for (BlobEntity part : parts) {
+         blobRepository.delete(part);
+      }
+      return replaceBlob(containerName, key, blobEntity);
    }
 
    @Transactional
@@ -147,7 +556,7 @@ public class JdbcService {
             .directory(true)
             .payload(PayloadEntity.builder().contentType("application/directory").build())
             .build();
-      blobEntity.setContainerEntity(containerRepository.findContainerByName(containerName));
+      blobEntity.setContainerEntity(containerRepository.getReference(findContainerId(containerName)));
       blobEntity.setKey(blob.getMetadata().getName());
       blobEntity.setBlobAccess(blobAccess);
       blobEntity.setEtag(DIRECTORY_MD5);
@@ -159,65 +568,74 @@ public class JdbcService {
       return createDirectoryBlob(containerName, blob, null);
    }
 
-   @Transactional(rollbackOn = IOException.class)
-   public BlobEntity createOrModifyBlob(String containerName, Blob blob) throws IOException {
-      return createOrModifyBlob(containerName, blob, null);
+   @Transactional
+   public BlobEntity findBlobById(String containerName, String key) {
+      Long containerId = findContainerId(containerName);
+      return containerId == null ? null : blobRepository.find(new BlobEntityPK(containerId, key));
    }
 
    @Transactional
-   public BlobEntity findBlobById(String containerName, String key) {
-      ContainerEntity containerEntity = containerRepository.findContainerByName(containerName);
-      return containerEntity == null ? null : blobRepository.find(new BlobEntityPK(containerEntity.getId(), key));
+   public BlobSummary findBlobSummary(String containerName, String key) {
+      return blobRepository.findBlobSummary(findContainerId(containerName), key);
    }
 
    @Transactional
-   public ChunkEntity findChunkById(Long id) {
-      return chunkRepository.find(id);
+   public BlobAccess findBlobAccess(String containerName, String key) {
+      return blobRepository.findBlobAccess(findContainerId(containerName), key);
    }
 
    @Transactional
-   public List<BlobEntity> findBlobsByContainer(String containerName) {
-      return blobRepository.findBlobsByContainer(containerRepository.findContainerByName(containerName));
+   public List<Long> findChunkIds(Long payloadId) {
+      return chunkRepository.findChunkIdsByPayload(payloadId);
    }
 
    @Transactional
-   public List<BlobEntity> findBlobsByDirectory(String containerName, String directoryName, boolean recursive) {
-      ImmutableList.Builder<BlobEntity> result = ImmutableList.builder();
-      List<BlobEntity> blobEntities = blobRepository
-            .findBlobsByDirectory(containerRepository.findContainerByName(containerName), directoryName);
-      result.addAll(blobEntities);
-      if (recursive) {
-         for (BlobEntity blobEntity : blobEntities) {
-            if (blobEntity.isDirectory()) {
-               result.addAll(findBlobsByDirectory(containerName, blobEntity.getKey(), true));
-            }
-         }
+   public ChunkEntity findChunkById(Long id) {
+      ChunkEntity chunk = chunkRepository.find(id);
+      if (chunk != null) {
+         metrics.recordChunksRead(1);
+         metrics.recordBytesRead(chunk.getSize());
       }
-      return result.build();
+      return chunk;
    }
 
    @Transactional
-   public void deleteBlobsByContainer(String containerName) {
-      List<BlobEntity> blobs = findBlobsByContainer(containerName);
-      for (BlobEntity blob : blobs) {
-         deleteBlob(containerName, blob.getKey());
+   public List<Integer> findChunkSizes(List<Long> chunkIds) {
+      Map<Long, Integer> sizes = chunkRepository.findChunkSizes(chunkIds);
+      List<Integer> result = new ArrayList<Integer>(chunkIds.size());
+      for (Long chunkId : chunkIds) {
+         result.add(sizes.get(chunkId));
       }
+      return result;
+   }
+
+   @Transactional
+   public BlobStatistics findBlobStatistics(String containerName, String prefix, String delimiter) {
+      return blobRepository.findBlobStatistics(findContainerId(containerName), prefix, delimiter);
    }
 
    @Transactional
+   public List<String> findBlobKeysByContainer(String containerName) {
+      return blobRepository.findBlobKeys(findContainerId(containerName));
+   }
+
+   @Transactional
+   public List<BlobSummary> findBlobSummaries(String containerName, String prefix, String from, boolean inclusive,
+         int maxResults) {
+      return blobRepository.findBlobSummaries(findContainerId(containerName), prefix, from, inclusive, maxResults);
+   }
+
+   @Transactional
+   public Map<String, Map<String, String>> findUserMetadata(String containerName, Collection<String> keys) {
+      return blobRepository.findUserMetadata(findContainerId(containerName), keys);
+   }
+
+   public void deleteBlobsByContainer(String containerName) {
+      deleteBlobs(containerName, null, true);
+   }
+
    public void deleteBlobsByDirectory(String containerName, String directoryName, boolean recursive) {
-      List<BlobEntity> blobs = findBlobsByDirectory(containerName, directoryName, false);
-      for (BlobEntity blob : blobs) {
-         if (!blob.isDirectory()) {
-            deleteBlob(containerName, blob.getKey());
-         }
-         else {
-            if (recursive) {
-               deleteBlobsByDirectory(containerName, blob.getKey(), true);
-               deleteBlob(containerName, blob.getKey());
-            }
-         }
-      }
+      deleteBlobs(containerName, directoryName, recursive);
    }
 
    @Transactional
@@ -236,26 +654,238 @@ public class JdbcService {
       blobRepository.save(blobEntity);
    }
 
+   /**
+    * Deletes the blobs of a container page by page, each page in its own transaction, so that clearing a huge
+    * container never needs a huge transaction.
+    */
+   private void deleteBlobs(String containerName, String directoryName, boolean includeDirectories) {
+      checkState(deleteBatchSize > 0, "%s must be positive", JdbcConstants.PROPERTY_DELETE_BATCH_SIZE);
+      Long containerId = findContainerId(containerName);
+      if (containerId == null) {
+         return;
+      }
+      // Every page removes the blobs it returns, so the next query starts with the remaining ones
+      int deleted;
+      do {
+         deleted = deleteBlobPage(containerId, directoryName, includeDirectories);
+      } while (deleted >= deleteBatchSize);
+   }
+
+   /**
+    * Deletes one page of blobs. The chunk ids of the whole page are fetched with a single join query and released
+    * with set-based statements; the blob rows themselves go through the entity manager, so that the user metadata
+    * and payload rows are cleaned up by the persistence provider, in JDBC batches.
+    */
    @Transactional
-   private void deleteChunks(List<Long> chunkIds) {
-      for (Long chunkId : chunkIds) {
-         chunkRepository.delete(chunkRepository.find(chunkId));
+   protected int deleteBlobPage(Long containerId, String directoryName, boolean includeDirectories) {
+      List<BlobEntity> blobs = blobRepository.findBlobs(containerId, directoryName, includeDirectories,
+            deleteBatchSize);
+      List<Long> payloadIds = Lists.newArrayListWithCapacity(blobs.size());
+      for (BlobEntity blob : blobs) {
+         payloadIds.add(blob.getPayload().getId());
+      }
+      deleteChunks(chunkRepository.findChunkIdsByPayload(payloadIds));
+      for (BlobEntity blob : blobs) {
+         blobRepository.delete(blob);
       }
+      return blobs.size();
    }
 
+   /**
+    * Saves a blob in place of any previous version, whose chunks are released once the new version references its
+    * own, as both may share chunks.
+    */
+   private BlobEntity replaceBlob(String containerName, String key, BlobEntity blobEntity) {
+      Date creationDate = null;
+      List<Long> oldChunks = ImmutableList.of();
+      BlobEntity oldBlobEntity = findBlobById(containerName, key);
+      if (oldBlobEntity != null) {
+         creationDate = oldBlobEntity.getCreationDate();
+         oldChunks = ImmutableList.copyOf(oldBlobEntity.getPayload().getChunks());
+      }
+      blobEntity.setContainerEntity(containerRepository.getReference(findContainerId(containerName)));
+      blobEntity.setKey(key);
+      blobEntity.setCreationDate(creationDate);
+      blobEntity.setLastModified(new Date());
+
+      BlobEntity result = blobRepository.save(blobEntity);
+      deleteChunks(oldChunks);
+      return result;
+   }
+
+   @Transactional
+   protected void deleteChunks(List<Long> chunkIds) {
+      chunkRepository.releaseChunks(chunkIds);
+   }
+
+   private List<Long> storeData(InputStream data, String uploadId) throws IOException {
+      ChunkBufferPool bufferPool = bufferPool();
+      ImmutableList.Builder<Long> chunkIds = ImmutableList.builder();
+      List<ChunkEntity> batch = Lists.newArrayListWithCapacity(writeBatchSize);
+      Map<String, Long> knownChunks = Maps.newHashMap();
+      Multiset<Long> reusedChunks = HashMultiset.create();
+      FutureTask<ChunkEntity> nextChunk = readChunk(data, bufferPool);
+      try {
+         while (nextChunk != null) {
+            ChunkEntity chunk = await(nextChunk);
+            nextChunk = null;
+            byte[] buffer = chunk.getData();
+            if (chunk.getSize() == bufferPool.getBufferSize()) {
+               // Read and hash the next chunk while this one is being inserted
+               nextChunk = readChunk(data, bufferPool);
+            } else if (chunk.getSize() == 0) {
+               bufferPool.release(buffer);
+               break;
+            } else if (chunk.getCodec() == null) {
+               chunk.setData(Arrays.copyOf(buffer, chunk.getSize()));
+               bufferPool.release(buffer);
+            }
+            batch.add(chunk);
+            if (batch.size() >= writeBatchSize) {
+               writeChunks(batch, chunkIds, uploadId, knownChunks, reusedChunks, bufferPool);
+            }
+         }
+         writeChunks(batch, chunkIds, uploadId, knownChunks, reusedChunks, bufferPool);
+      } finally {
+         if (nextChunk != null) {
+            // Never leave a read running against a stream the caller is about to close
+            try {
+               bufferPool.release(await(nextChunk).getData());
+            } catch (IOException ignored) {
+            }
+         }
+      }
+      // The deduplicated chunks of a staged upload are referenced batch by batch
+      if (uploadId == null && !chunkRepository.retainChunks(reusedChunks)) {
+         throw new IOException("A deduplicated chunk has been deleted concurrently");
+      }
+      return chunkIds.build();
+   }
+
+   /**
+    * Inserts a batch of chunks with a single flush, and recycles their buffers once the persistence context no
+    * longer references them. When deduplication is enabled, the chunks already stored are looked up with one query
+    * per batch and referenced instead of inserted again. For staged uploads every batch is its own transaction,
+    * which also appends the chunks to the upload, and the upload holds the references of the chunks.
+    */
    @Transactional(rollbackOn = IOException.class)
-   private List<Long> storeData(InputStream data) throws IOException {
-      ImmutableList.Builder<Long> chunks = ImmutableList.builder();
-      while (true) {
-         byte[] buffer = new byte[JdbcConstants.DEFAULT_CHUNK_SIZE];
-         int bytes = ByteStreams.read(data, buffer, 0, JdbcConstants.DEFAULT_CHUNK_SIZE);
-         if (bytes == 0) {
-            break;
-         } else if (bytes != buffer.length) {
-            buffer = Arrays.copyOf(buffer, bytes);
+   protected void writeChunks(List<ChunkEntity> batch, ImmutableList.Builder<Long> chunkIds, String uploadId,
+         Map<String, Long> knownChunks, Multiset<Long> reusedChunks, ChunkBufferPool bufferPool) throws IOException {
+      if (batch.isEmpty()) {
+         return;
+      }
+      if (deduplicateChunks) {
+         Set<String> hashes = Sets.newHashSet();
+         for (ChunkEntity chunk : batch) {
+            if (!knownChunks.containsKey(chunk.getContentHash())) {
+               hashes.add(chunk.getContentHash());
+            }
+         }
+         knownChunks.putAll(chunkRepository.findChunkIdsByHash(hashes));
+      }
+
+      List<ChunkEntity> insertedChunks = Lists.newArrayListWithCapacity(batch.size());
+      List<Long> batchChunkIds = Lists.newArrayListWithCapacity(batch.size());
+      Multiset<Long> batchReusedChunks = HashMultiset.create();
+      long batchSize = 0;
+      for (ChunkEntity chunk : batch) {
+         Long existingId = chunk.getContentHash() == null ? null : knownChunks.get(chunk.getContentHash());
+         if (existingId != null) {
+            batchChunkIds.add(existingId);
+            batchReusedChunks.add(existingId);
+            bufferPool.release(chunk.getData());
+         } else {
+            batchChunkIds.add(chunkRepository.create(chunk).getId());
+            insertedChunks.add(chunk);
+            if (chunk.getContentHash() != null) {
+               knownChunks.put(chunk.getContentHash(), chunk.getId());
+            }
+         }
+         batchSize += chunk.getSize();
+      }
+      if (uploadId == null) {
+         reusedChunks.addAll(batchReusedChunks);
+      } else {
+         StagedUploadEntity upload = stagedUploadRepository.find(uploadId);
+         if (upload == null) {
+            throw new IOException("Staged upload " + uploadId + " has been aborted or has expired");
+         }
+         if (!chunkRepository.retainChunks(batchReusedChunks)) {
+            throw new IOException("A deduplicated chunk has been deleted concurrently");
+         }
+         upload.getChunks().addAll(batchChunkIds);
+         upload.setSize(upload.getSize() + batchSize);
+         upload.setLastModified(new Date());
+      }
+      chunkIds.addAll(batchChunkIds);
+      chunkRepository.flush();
+      metrics.recordChunksWritten(insertedChunks.size());
+      for (ChunkEntity chunk : insertedChunks) {
+         chunkRepository.detach(chunk);
+         bufferPool.release(chunk.getData());
+      }
+      batch.clear();
+   }
+
+   /**
+    * Reads the next chunk on the user executor. The task is run by the calling thread if it has not started by the
+    * time its chunk is needed, so that uploads don't depend on a free executor thread.
+    */
+   private FutureTask<ChunkEntity> readChunk(final InputStream data, final ChunkBufferPool bufferPool) {
+      final byte[] buffer = bufferPool.acquire();
+      FutureTask<ChunkEntity> task = new FutureTask<ChunkEntity>(new Callable<ChunkEntity>() {
+         @Override
+         public ChunkEntity call() throws IOException {
+            int size = ByteStreams.read(data, buffer, 0, buffer.length);
+            ChunkEntity chunk = new ChunkEntity(buffer, size);
+            if (deduplicateChunks && size > 0) {
+               chunk.setContentHash(Hashing.sha256().hashBytes(buffer, 0, size).toString());
+            }
+            if (compressionLevel > 0 && size > 0) {
+               byte[] compressed = ChunkCompression.compress(buffer, size, compressionLevel, bufferPool);
+               if (compressed != null) {
+                  chunk.setData(compressed);
+                  chunk.setCodec(ChunkCodec.DEFLATE);
+                  bufferPool.release(buffer);
+               }
+            }
+            return chunk;
+         }
+      });
+      try {
+         userExecutor.execute(task);
+      } catch (RejectedExecutionException e) {
+         task.run();
+      }
+      return task;
+   }
+
+   private ChunkBufferPool bufferPool() {
+      if (bufferPool == null) {
+         synchronized (this) {
+            if (bufferPool == null) {
+               checkState(chunkSize > 0 && chunkSize <= JdbcConstants.MAX_CHUNK_SIZE,
+                     "%s must be between 1 and %s", JdbcConstants.PROPERTY_CHUNK_SIZE, JdbcConstants.MAX_CHUNK_SIZE);
+               checkState(writeBatchSize > 0, "%s must be positive", JdbcConstants.PROPERTY_WRITE_BATCH_SIZE);
+               checkState(compressionLevel >= 0 && compressionLevel <= 9, "%s must be between 0 and 9",
+                     JdbcConstants.PROPERTY_COMPRESSION_LEVEL);
+               bufferPool = new ChunkBufferPool(chunkSize, writeBatchSize + 1);
+            }
+         }
+      }
+      return bufferPool;
+   }
+
+   private static ChunkEntity await(FutureTask<ChunkEntity> future) throws IOException {
+      // Does nothing if an executor thread has already started the task
+      future.run();
+      try {
+         return Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
          }
-         chunks.add(chunkRepository.create(new ChunkEntity(buffer, bytes)).getId());
+         throw Throwables.propagate(e.getCause());
       }
-      return chunks.build();
    }
 }
@@ -17,38 +17,63 @@
 package org.jclouds.jdbc.strategy;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.persistence.PersistenceException;
 
+import org.jclouds.blobstore.ContainerNotFoundException;
+import org.jclouds.blobstore.KeyNotFoundException;
 import org.jclouds.blobstore.LocalStorageStrategy;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.BlobBuilder;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
 import org.jclouds.blobstore.domain.MutableStorageMetadata;
+import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.domain.internal.MutableBlobMetadataImpl;
 import org.jclouds.blobstore.domain.internal.MutableStorageMetadataImpl;
+import org.jclouds.blobstore.domain.internal.PageSetImpl;
+import org.jclouds.blobstore.options.CopyOptions;
 import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.util.BlobStoreUtils;
 import org.jclouds.domain.Location;
 import org.jclouds.domain.LocationBuilder;
 import org.jclouds.domain.LocationScope;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
 import org.jclouds.io.ContentMetadata;
+import org.jclouds.io.Payload;
 import org.jclouds.jdbc.conversion.BlobEntityToBlob;
 import org.jclouds.jdbc.entity.BlobEntity;
+import org.jclouds.jdbc.entity.BlobStatistics;
+import org.jclouds.jdbc.entity.BlobSummary;
 import org.jclouds.jdbc.entity.ContainerEntity;
 import org.jclouds.jdbc.predicates.validators.JdbcBlobKeyValidator;
 import org.jclouds.jdbc.predicates.validators.JdbcContainerNameValidator;
 import org.jclouds.jdbc.service.JdbcService;
+import org.jclouds.util.Closeables2;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
 
 /**
  * JdbcStorageStrategy implements a blob store that stores objects
@@ -57,6 +82,8 @@ import com.google.common.collect.ImmutableList;
  */
 public class JdbcStorageStrategy implements LocalStorageStrategy {
 
+   private static final int DEFAULT_MAX_RESULTS = 1000;
+
    private final Provider<BlobBuilder> blobBuilders;
    private final JdbcService jdbcService;
    private final JdbcContainerNameValidator jdbcContainerNameValidator;
@@ -90,7 +117,7 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
    @Override
    public boolean containerExists(String container) {
       jdbcContainerNameValidator.validate(container);
-      return jdbcService.findContainerByName(container) != null;
+      return jdbcService.containerExists(container);
    }
 
    /**
@@ -237,12 +264,106 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
     */
    @Override
    public Iterable<String> getBlobKeysInsideContainer(String container) throws IOException {
-      List<BlobEntity> blobEntities = jdbcService.findBlobsByContainer(container);
-      ImmutableList.Builder<String> result = ImmutableList.builder();
-      for (BlobEntity blobEntity : blobEntities) {
-         result.add(blobEntity.getKey());
+      return jdbcService.findBlobKeysByContainer(container);
+   }
+
+   /**
+    * Lists a page of the blobs in a container. Prefix, marker and limit are applied by the database through a
+    * keyset query on the blob primary key, so a page costs about the rows it returns whatever the size of the
+    * container. Keys rolled up into a common prefix are skipped within a page, and a new query seeks past the
+    * prefix only when a page ends inside it.
+    *
+    * @param container the name of the container
+    * @param options options to filter and page the listing
+    * @return the blobs and common prefixes of the page, with the marker of the next page if any
+    */
+   public PageSet<? extends StorageMetadata> list(String container, ListContainerOptions options) {
+      Preconditions.checkArgument(options.getDir() == null || options.getPrefix() == null,
+            "Cannot set both prefix and directory");
+      Preconditions.checkArgument(
+            (options.getDir() == null && !options.isRecursive()) || options.getDelimiter() == null,
+            "Cannot set the delimiter if directory or recursive is set");
+      if (!jdbcService.containerExists(container)) {
+         throw new ContainerNotFoundException(container, String.format("container %s not found", container));
       }
-      return result.build();
+
+      String prefix = Strings.emptyToNull(options.getPrefix());
+      if (!Strings.isNullOrEmpty(options.getDir())) {
+         prefix = directoryPrefix(options.getDir());
+      }
+      // An empty delimiter lists every key on its own
+      String delimiter = options.getDelimiter();
+      if (delimiter == null && !options.isRecursive()) {
+         delimiter = getSeparator();
+      }
+      delimiter = Strings.emptyToNull(delimiter);
+      String marker = Strings.emptyToNull(options.getMarker());
+      int maxResults = options.getMaxResults() != null ? options.getMaxResults() : DEFAULT_MAX_RESULTS;
+      if (maxResults == 0) {
+         return new PageSetImpl<StorageMetadata>(ImmutableList.<StorageMetadata> of(), null);
+      }
+
+      // Collect one entry more than requested to know whether the listing is truncated
+      List<StorageMetadata> contents = Lists.newArrayList();
+      Map<String, MutableBlobMetadata> blobs = Maps.newHashMap();
+      String from = marker;
+      boolean inclusive = false;
+      boolean exhausted = false;
+      String rolledUp = null;
+      while (!exhausted && contents.size() <= maxResults) {
+         int limit = maxResults + 1 - contents.size();
+         List<BlobSummary> page = jdbcService.findBlobSummaries(container, prefix, from, inclusive, limit);
+         exhausted = page.size() < limit;
+         for (BlobSummary summary : page) {
+            String key = summary.getKey();
+            if (rolledUp != null && key.startsWith(rolledUp)) {
+               // Already listed as part of the previous common prefix
+               continue;
+            }
+            String commonPrefix = commonPrefix(key, prefix, delimiter);
+            if (commonPrefix != null) {
+               rolledUp = commonPrefix;
+               if (marker == null || commonPrefix.compareTo(marker) > 0) {
+                  MutableStorageMetadata metadata = new MutableStorageMetadataImpl();
+                  metadata.setName(commonPrefix);
+                  metadata.setType(StorageType.RELATIVE_PATH);
+                  contents.add(metadata);
+               }
+            } else {
+               MutableBlobMetadata metadata = toBlobMetadata(container, summary);
+               contents.add(metadata);
+               blobs.put(key, metadata);
+            }
+            if (contents.size() > maxResults) {
+               break;
+            }
+         }
+         if (!exhausted && contents.size() <= maxResults) {
+            String lastKey = page.get(page.size() - 1).getKey();
+            if (rolledUp != null && lastKey.startsWith(rolledUp)) {
+               // The page ended inside a common prefix, seek past the other keys rolled up into it
+               from = successor(rolledUp);
+               inclusive = true;
+               exhausted = from == null;
+            } else {
+               from = lastKey;
+               inclusive = false;
+            }
+         }
+      }
+
+      String nextMarker = null;
+      if (contents.size() > maxResults) {
+         contents = contents.subList(0, maxResults);
+         nextMarker = contents.get(maxResults - 1).getName();
+      }
+      if (options.isDetailed() && !blobs.isEmpty()) {
+         for (Map.Entry<String, Map<String, String>> entry
+               : jdbcService.findUserMetadata(container, blobs.keySet()).entrySet()) {
+            putUserMetadata(blobs.get(entry.getKey()), entry.getValue());
+         }
+      }
+      return new PageSetImpl<StorageMetadata>(contents, nextMarker);
    }
 
    /**
@@ -257,6 +378,29 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
       return blobEntityToBlob.apply(jdbcService.findBlobById(container, key));
    }
 
+   /**
+    * Gets the metadata of a blob without loading its payload
+    *
+    * @param container the name of the container containing the blob
+    * @param key the key of the blob
+    * @return the blob's metadata or null if the blob does not exist
+    */
+   public BlobMetadata getBlobMetadata(String container, String key) {
+      if (!jdbcService.containerExists(container)) {
+         throw new ContainerNotFoundException(container, String.format("container %s not found", container));
+      }
+      BlobSummary summary = jdbcService.findBlobSummary(container, key);
+      if (summary == null) {
+         return null;
+      }
+      MutableBlobMetadata metadata = toBlobMetadata(container, summary);
+      Map<String, String> userMetadata = jdbcService.findUserMetadata(container, ImmutableSet.of(key)).get(key);
+      if (userMetadata != null) {
+         metadata.getUserMetadata().putAll(userMetadata);
+      }
+      return BlobStoreUtils.copy(metadata);
+   }
+
    /**
     * Store a blob in a container
     *
@@ -292,7 +436,7 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
     */
    @Override
    public BlobAccess getBlobAccess(String container, String key) {
-      return jdbcService.findBlobById(container, key).getBlobAccess();
+      return jdbcService.findBlobAccess(container, key);
    }
 
    /**
@@ -335,8 +479,135 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
     * @return the number of blobs in the container
     */
    public long countBlobs(String container, ListContainerOptions options) {
-      return options.getDir() == null ? jdbcService.findBlobsByContainer(container).size()
-             : jdbcService.findBlobsByDirectory(container, options.getDir(), options.isRecursive()).size();
+      return getBlobStatistics(container, options).getCount();
+   }
+
+   /**
+    * Counts the blobs in a container and sums their sizes, with a single aggregate query
+    *
+    * @param container the name of the container
+    * @param options options to filter what blobs are taken into account. Without a directory the whole container
+    *                is, otherwise the blobs in the directory and, if recursive, in its subdirectories
+    * @return the number and total size of the blobs
+    */
+   public BlobStatistics getBlobStatistics(String container, ListContainerOptions options) {
+      if (Strings.isNullOrEmpty(options.getDir())) {
+         return jdbcService.findBlobStatistics(container, null, null);
+      }
+      return jdbcService.findBlobStatistics(container, directoryPrefix(options.getDir()),
+            options.isRecursive() ? null : getSeparator());
+   }
+
+   /**
+    * Copies a blob without reading its payload, as the copy shares the chunks of the source
+    *
+    * @param fromContainer the name of the container containing the source blob
+    * @param fromKey the key of the source blob
+    * @param toContainer the name of the container of the copy
+    * @param toKey the key of the copy
+    * @param options preconditions on the source, and metadata replacing the one of the source
+    * @return the copy's etag
+    */
+   public String copyBlob(String fromContainer, String fromKey, String toContainer, String toKey,
+         CopyOptions options) {
+      jdbcBlobKeyValidator.validate(toKey);
+      if (!jdbcService.containerExists(toContainer)) {
+         throw new ContainerNotFoundException(toContainer, String.format("container %s not found", toContainer));
+      }
+      BlobMetadata source = getBlobMetadata(fromContainer, fromKey);
+      if (source == null) {
+         throw new KeyNotFoundException(fromContainer, fromKey, "while copying");
+      }
+      checkPreconditions(source, options);
+      BlobEntity copy = jdbcService.copyBlob(fromContainer, fromKey, toContainer, toKey, options.contentMetadata(),
+            options.userMetadata());
+      if (copy == null) {
+         throw new KeyNotFoundException(fromContainer, fromKey, "while copying");
+      }
+      return copy.getEtag();
+   }
+
+   /**
+    * Assembles a blob from parts stored as blobs of the same container, and removes the parts. The payload is not
+    * read, as the blob shares the chunks of the parts.
+    *
+    * @param container the name of the container
+    * @param metadata the metadata of the blob, including its name
+    * @param blobAccess the blob access of the blob
+    * @param partKeys the keys of the parts, in order
+    * @return the blob's etag
+    */
+   public String completeMultipartUpload(String container, BlobMetadata metadata, BlobAccess blobAccess,
+         List<String> partKeys) {
+      if (!jdbcService.containerExists(container)) {
+         throw new ContainerNotFoundException(container, String.format("container %s not found", container));
+      }
+      return jdbcService.completeMultipartUpload(container, metadata.getName(), metadata, blobAccess, partKeys)
+            .getEtag();
+   }
+
+   /**
+    * Starts a staged upload, whose data is then appended in as many runs as needed.
+    *
+    * @return the id of the upload
+    */
+   public String initiateStagedUpload() {
+      return jdbcService.initiateStagedUpload();
+   }
+
+   /**
+    * Appends a payload to a staged upload. If this fails, the upload continues from the offset
+    * {@link #getStagedUploadSize(String)} returns.
+    *
+    * @param uploadId the id of the upload
+    * @param payload the data following what the upload staged so far
+    * @return the number of bytes staged so far
+    */
+   public long appendStagedUpload(String uploadId, Payload payload) throws IOException {
+      InputStream data = payload.openStream();
+      try {
+         return jdbcService.appendStagedUpload(uploadId, data);
+      } finally {
+         Closeables2.closeQuietly(data);
+      }
+   }
+
+   /**
+    * Gets the number of bytes a staged upload committed, which is where it continues.
+    *
+    * @param uploadId the id of the upload
+    * @return the number of bytes staged, or null if the upload does not exist
+    */
+   public Long getStagedUploadSize(String uploadId) {
+      return jdbcService.findStagedUploadSize(uploadId);
+   }
+
+   /**
+    * Publishes a staged upload as a blob, replacing any previous version.
+    *
+    * @param container the name of the container
+    * @param metadata the metadata of the blob, including its name
+    * @param blobAccess the blob access of the blob
+    * @param uploadId the id of the upload
+    * @return the blob's etag
+    */
+   public String completeStagedUpload(String container, BlobMetadata metadata, BlobAccess blobAccess,
+         String uploadId) throws IOException {
+      jdbcBlobKeyValidator.validate(metadata.getName());
+      if (!jdbcService.containerExists(container)) {
+         throw new ContainerNotFoundException(container, String.format("container %s not found", container));
+      }
+      return jdbcService.completeStagedUpload(container, metadata.getName(), metadata, blobAccess, uploadId)
+            .getEtag();
+   }
+
+   /**
+    * Drops a staged upload along with the data it staged.
+    *
+    * @param uploadId the id of the upload
+    */
+   public void abortStagedUpload(String uploadId) {
+      jdbcService.abortStagedUpload(uploadId);
    }
 
    /**
@@ -352,6 +623,101 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
             blob.getMetadata().getContentMetadata().getContentType());
    }
 
+   private MutableBlobMetadata toBlobMetadata(String container, BlobSummary summary) {
+      MutableBlobMetadata metadata = new MutableBlobMetadataImpl();
+      metadata.setName(summary.getKey());
+      metadata.setType(summary.isDirectory() ? StorageType.FOLDER : StorageType.BLOB);
+      metadata.setContainer(container);
+      metadata.setCreationDate(summary.getCreationDate());
+      metadata.setLastModified(summary.getLastModified());
+      metadata.setSize(summary.getSize());
+      metadata.setETag(summary.getEtag());
+      metadata.setTier(summary.getTier());
+      metadata.getContentMetadata().setCacheControl(summary.getCacheControl());
+      metadata.getContentMetadata().setContentType(summary.getContentType());
+      metadata.getContentMetadata().setContentDisposition(summary.getContentDisposition());
+      metadata.getContentMetadata().setContentEncoding(summary.getContentEncoding());
+      metadata.getContentMetadata().setContentLanguage(summary.getContentLanguage());
+      metadata.getContentMetadata().setContentLength(summary.getContentLength());
+      metadata.getContentMetadata().setContentMD5(summary.getContentMD5() == null ?
+            null :
+            HashCode.fromBytes(summary.getContentMD5()));
+      metadata.getContentMetadata().setExpires(summary.getExpires());
+      return metadata;
+   }
+
+   /**
+    * Adds user metadata with its keys lowercased, the way {@link BlobStoreUtils#copy(MutableBlobMetadata)} does for
+    * the blobs the local blob store returns.
+    */
+   private static void putUserMetadata(MutableBlobMetadata metadata, Map<String, String> userMetadata) {
+      for (Map.Entry<String, String> entry : userMetadata.entrySet()) {
+         metadata.getUserMetadata().put(entry.getKey().toLowerCase(), entry.getValue());
+      }
+   }
+
+   /**
+    * Checks the conditions of a copy the same way {@code BaseBlobStore} does.
+    */
+   private static void checkPreconditions(BlobMetadata source, CopyOptions options) {
+      String eTag = source.getETag();
+      if (eTag != null) {
+         eTag = maybeQuoteETag(eTag);
+         if (options.ifMatch() != null && !maybeQuoteETag(options.ifMatch()).equals(eTag)) {
+            throw preconditionFailed();
+         }
+         if (options.ifNoneMatch() != null && maybeQuoteETag(options.ifNoneMatch()).equals(eTag)) {
+            throw preconditionFailed();
+         }
+      }
+      Date lastModified = source.getLastModified();
+      if (lastModified != null) {
+         if (options.ifModifiedSince() != null && lastModified.compareTo(options.ifModifiedSince()) <= 0) {
+            throw preconditionFailed();
+         }
+         if (options.ifUnmodifiedSince() != null && lastModified.compareTo(options.ifUnmodifiedSince()) > 0) {
+            throw preconditionFailed();
+         }
+      }
+   }
+
+   private static String maybeQuoteETag(String eTag) {
+      return eTag.startsWith("\"") && eTag.endsWith("\"") ? eTag : "\"" + eTag + "\"";
+   }
+
+   private static HttpResponseException preconditionFailed() {
+      HttpRequest request = HttpRequest.builder().method("GET").endpoint("http://stub").build();
+      return new HttpResponseException(new HttpCommand(request), HttpResponse.builder().statusCode(412).build());
+   }
+
+   private String directoryPrefix(String directory) {
+      return directory.endsWith(getSeparator()) ? directory : directory + getSeparator();
+   }
+
+   /**
+    * Returns the common prefix a key is rolled up into, or null if the key is listed on its own.
+    */
+   private static String commonPrefix(String key, String prefix, String delimiter) {
+      if (Strings.isNullOrEmpty(delimiter)) {
+         return null;
+      }
+      int start = prefix == null ? 0 : prefix.length();
+      int index = key.indexOf(delimiter, start);
+      return index == -1 ? null : key.substring(0, index + delimiter.length());
+   }
+
+   /**
+    * Returns the smallest string greater than all the strings starting with prefix, or null if there is none
+    * because the prefix only consists of {@link Character#MAX_VALUE}.
+    */
+   private static String successor(String prefix) {
+      int last = prefix.length() - 1;
+      while (last >= 0 && prefix.charAt(last) == Character.MAX_VALUE) {
+         last--;
+      }
+      return last < 0 ? null : prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+   }
+
    /**
     * Store a blob in a directory
     *
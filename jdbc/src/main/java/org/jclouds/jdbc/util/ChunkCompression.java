@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jclouds.jdbc.entity.ChunkCodec;
+import org.jclouds.jdbc.entity.ChunkEntity;
+
+/**
+ * Compresses the data of chunks before they are stored and decompresses it when they are read back.
+ */
+public final class ChunkCompression {
+
+   /**
+    * Compresses the first {@code size} bytes of a buffer with {@link ChunkCodec#DEFLATE}.
+    *
+    * @param data the buffer holding the chunk data
+    * @param size the number of bytes of the buffer to compress
+    * @param level the deflate level, from 1 to 9
+    * @param bufferPool pool the scratch buffer the data is compressed into is taken from
+    * @return the compressed data, or null if compressing does not make it smaller
+    */
+   public static byte[] compress(byte[] data, int size, int level, ChunkBufferPool bufferPool) {
+      checkArgument(level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION,
+            "level must be between %s and %s", Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION);
+      checkArgument(size <= bufferPool.getBufferSize(), "size must not exceed the buffer size");
+      byte[] buffer = bufferPool.acquire();
+      Deflater deflater = new Deflater(level);
+      try {
+         deflater.setInput(data, 0, size);
+         deflater.finish();
+         // Output that reaches the size of the input is not worth keeping
+         int length = 0;
+         while (!deflater.finished() && length < size) {
+            length += deflater.deflate(buffer, length, size - length);
+         }
+         return deflater.finished() && length < size ? Arrays.copyOf(buffer, length) : null;
+      } finally {
+         deflater.end();
+         bufferPool.release(buffer);
+      }
+   }
+
+   /**
+    * Returns the data of a chunk as it was before it was compressed.
+    *
+    * @param chunk the chunk as stored
+    * @return the data of the chunk itself if it is not compressed, its decompressed data otherwise
+    * @throws IOException if the data of the chunk can't be decompressed
+    */
+   public static byte[] decompress(ChunkEntity chunk) throws IOException {
+      if (chunk.getCodec() == null) {
+         return chunk.getData();
+      }
+      if (chunk.getCodec() != ChunkCodec.DEFLATE) {
+         throw new IOException("Unsupported chunk codec " + chunk.getCodec());
+      }
+      byte[] data = new byte[chunk.getSize()];
+      Inflater inflater = new Inflater();
+      try {
+         inflater.setInput(chunk.getData());
+         int length = 0;
+         while (!inflater.finished() && length < data.length) {
+            int count = inflater.inflate(data, length, data.length - length);
+            if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+               break;
+            }
+            length += count;
+         }
+         if (length != data.length) {
+            throw new IOException("Chunk " + chunk.getId() + " does not decompress to " + data.length + " bytes");
+         }
+         return data;
+      } catch (DataFormatException e) {
+         throw new IOException("Chunk " + chunk.getId() + " is corrupted", e);
+      } finally {
+         inflater.end();
+      }
+   }
+
+   private ChunkCompression() {
+      throw new AssertionError("Intentionally Unimplemented");
+   }
+
+}
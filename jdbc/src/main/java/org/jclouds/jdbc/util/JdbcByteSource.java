@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.jclouds.jdbc.service.JdbcService;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+
+/**
+ * A {@link ByteSource} over the chunks of a blob stored in the database.
+ * <p>
+ * Slices map the requested byte range to the chunks that cover it, so opening a slice only loads those chunks
+ * instead of reading the blob from its first byte. When built from a payload id, the chunk ids themselves are only
+ * loaded once a stream is opened, so blobs whose payload is never read don't pay for them.
+ */
+public class JdbcByteSource extends ByteSource {
+
+   private final JdbcService jdbcService;
+   private final Supplier<List<Long>> chunks;
+   private final ExecutorService executor;
+   private final int prefetchChunks;
+   private final long size;
+   private final long offset;
+   private final long length;
+
+   public JdbcByteSource(JdbcService jdbcService, List<Long> chunks, long size, ExecutorService executor,
+         int prefetchChunks) {
+      this(jdbcService, Suppliers.<List<Long>> ofInstance(ImmutableList.copyOf(checkNotNull(chunks, "chunks"))),
+            executor, prefetchChunks, size, 0, size);
+   }
+
+   public JdbcByteSource(final JdbcService jdbcService, final Long payloadId, long size, ExecutorService executor,
+         int prefetchChunks) {
+      this(jdbcService, Suppliers.memoize(new Supplier<List<Long>>() {
+         @Override
+         public List<Long> get() {
+            return jdbcService.findChunkIds(payloadId);
+         }
+      }), executor, prefetchChunks, size, 0, size);
+   }
+
+   private JdbcByteSource(JdbcService jdbcService, Supplier<List<Long>> chunks, ExecutorService executor,
+         int prefetchChunks, long size, long offset, long length) {
+      this.jdbcService = checkNotNull(jdbcService, "jdbcService");
+      this.chunks = chunks;
+      this.executor = executor;
+      this.prefetchChunks = prefetchChunks;
+      this.size = size;
+      this.offset = offset;
+      this.length = length;
+   }
+
+   @Override
+   public InputStream openStream() throws IOException {
+      if (length == 0) {
+         return ByteSource.empty().openStream();
+      }
+      List<Long> chunks = this.chunks.get();
+      if (chunks.isEmpty()) {
+         throw new IOException("Could not find chunk.");
+      }
+      if (offset == 0 && length == size) {
+         // The whole blob, every chunk is read
+         return new JdbcInputStream(jdbcService, chunks, executor, prefetchChunks);
+      }
+
+      List<Integer> sizes = jdbcService.findChunkSizes(chunks);
+      int first = 0;
+      long firstChunkOffset = 0;
+      while (first < chunks.size() && firstChunkOffset + chunkSize(sizes, first) <= offset) {
+         firstChunkOffset += chunkSize(sizes, first);
+         first++;
+      }
+      int last = first;
+      long end = firstChunkOffset;
+      while (last < chunks.size() && end < offset + length) {
+         end += chunkSize(sizes, last);
+         last++;
+      }
+
+      InputStream in = new JdbcInputStream(jdbcService, chunks.subList(first, last), executor, prefetchChunks);
+      ByteStreams.skipFully(in, offset - firstChunkOffset);
+      return ByteStreams.limit(in, length);
+   }
+
+   @Override
+   public ByteSource slice(long offset, long length) {
+      checkArgument(offset >= 0, "offset (%s) may not be negative", offset);
+      checkArgument(length >= 0, "length (%s) may not be negative", length);
+      long sliceOffset = Math.min(offset, this.length);
+      long sliceLength = Math.min(length, this.length - sliceOffset);
+      return new JdbcByteSource(jdbcService, chunks, executor, prefetchChunks, size, this.offset + sliceOffset,
+            sliceLength);
+   }
+
+   @Override
+   public long size() {
+      return length;
+   }
+
+   private static int chunkSize(List<Integer> sizes, int index) throws IOException {
+      Integer size = sizes.get(index);
+      if (size == null) {
+         throw new IOException("Could not find chunk.");
+      }
+      return size;
+   }
+
+}
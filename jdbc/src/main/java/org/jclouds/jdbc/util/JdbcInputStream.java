@@ -16,29 +16,62 @@
  */
 package org.jclouds.jdbc.util;
 
-import org.jclouds.jdbc.entity.ChunkEntity;
-import org.jclouds.jdbc.service.JdbcService;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
-import static com.google.common.base.Preconditions.checkNotNull;
+import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.service.JdbcService;
 
-public class JdbcInputStream extends InputStream {
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
 
-   private JdbcService jdbcService;
+/**
+ * Streams the content of a blob stored as a list of {@link ChunkEntity}.
+ * <p>
+ * While the current chunk is being consumed, up to {@code prefetchChunks} of the following chunks are loaded in the
+ * background, so at most {@code prefetchChunks + 1} chunks are held in memory at any time. Skipping over whole chunks
+ * only looks up their sizes and never loads their data. Compressed chunks are decompressed where they are loaded, so
+ * prefetched chunks are also decompressed in the background. A prefetch still waiting for an executor thread when its
+ * chunk is needed is run by the reading thread instead, so reads never depend on a free executor thread.
+ * <p>
+ * Like most input streams, instances of this class are not thread safe.
+ */
+public class JdbcInputStream extends InputStream {
 
+   private final JdbcService jdbcService;
    private final List<Long> chunks;
+   private final ExecutorService executor;
+   private final int prefetchChunks;
+   private final Deque<FutureTask<ChunkEntity>> prefetched = new ArrayDeque<FutureTask<ChunkEntity>>();
+
+   private List<Integer> chunkSizes;
    private ChunkEntity currentChunk;
+   private int currentIndex = -1;
+   private int nextIndex;
    private int bytesRead;
 
    public JdbcInputStream(JdbcService jdbcService, List<Long> chunks) {
+      this(jdbcService, chunks, null, 0);
+   }
+
+   public JdbcInputStream(JdbcService jdbcService, List<Long> chunks, ExecutorService executor, int prefetchChunks) {
       this.jdbcService = checkNotNull(jdbcService, "jdbcService");
-      // Need to remove duplicates due to https://hibernate.atlassian.net/browse/HHH-6783
-      this.chunks = new ArrayList<Long>(new LinkedHashSet<Long>(checkNotNull(chunks, "chunks")));
+      this.chunks = ImmutableList.copyOf(checkNotNull(chunks, "chunks"));
+      checkArgument(prefetchChunks >= 0, "prefetchChunks must be non-negative");
+      this.executor = executor;
+      this.prefetchChunks = executor == null ? 0 : prefetchChunks;
       try {
          readNextChunk();
       } catch (IOException e) {
@@ -47,30 +80,173 @@ public class JdbcInputStream extends InputStream {
    }
 
    @Override
-   public synchronized int read() throws IOException {
-      if (hasFinished()) {
+   public int read() throws IOException {
+      if (!hasRemaining()) {
          return -1;
       }
-      int b = currentChunk.getData()[bytesRead] & 0xff;
-      bytesRead = bytesRead + 1;
-      if (bytesRead >= currentChunk.getSize()) {
+      return currentChunk.getData()[bytesRead++] & 0xff;
+   }
+
+   @Override
+   public int read(byte[] b, int off, int len) throws IOException {
+      checkNotNull(b, "b");
+      checkPositionIndexes(off, off + len, b.length);
+      if (len == 0) {
+         return 0;
+      }
+      int total = 0;
+      while (total < len && hasRemaining()) {
+         int count = Math.min(len - total, currentChunk.getSize() - bytesRead);
+         System.arraycopy(currentChunk.getData(), bytesRead, b, off + total, count);
+         bytesRead += count;
+         total += count;
+      }
+      return total == 0 ? -1 : total;
+   }
+
+   @Override
+   public long skip(long n) throws IOException {
+      if (n <= 0 || currentChunk == null) {
+         return 0;
+      }
+      long skipped = Math.min(n, currentChunk.getSize() - bytesRead);
+      bytesRead += (int) skipped;
+      if (skipped == n) {
+         return skipped;
+      }
+
+      // Jump over the chunks that are skipped entirely, looking only at their sizes
+      List<Integer> sizes = chunkSizes();
+      int target = currentIndex + 1;
+      while (target < chunks.size()) {
+         Integer size = sizes.get(target);
+         if (size == null) {
+            throw new IOException("Could not find chunk.");
+         }
+         if (skipped + size > n) {
+            break;
+         }
+         skipped += size;
+         target++;
+      }
+      seek(target);
+      if (currentChunk != null) {
+         int offset = (int) Math.min(n - skipped, currentChunk.getSize());
+         bytesRead = offset;
+         skipped += offset;
+      }
+      return skipped;
+   }
+
+   @Override
+   public int available() {
+      return currentChunk == null ? 0 : currentChunk.getSize() - bytesRead;
+   }
+
+   @Override
+   public void close() throws IOException {
+      for (FutureTask<ChunkEntity> future : prefetched) {
+         future.cancel(false);
+      }
+      prefetched.clear();
+      currentChunk = null;
+      nextIndex = chunks.size();
+      super.close();
+   }
+
+   private boolean hasRemaining() throws IOException {
+      while (currentChunk != null && bytesRead >= currentChunk.getSize()) {
          readNextChunk();
       }
-      return b;
+      return currentChunk != null;
    }
 
-   private boolean hasFinished() {
-      return currentChunk == null || (chunks.size() == 0 && bytesRead >= currentChunk.getSize());
+   /**
+    * Makes the chunk at the given index the current one, discarding the prefetched chunks before it.
+    */
+   private void seek(int index) throws IOException {
+      while (currentIndex + 1 < index && !prefetched.isEmpty()) {
+         prefetched.poll().cancel(false);
+         currentIndex++;
+      }
+      if (nextIndex < index) {
+         nextIndex = index;
+      }
+      currentIndex = index - 1;
+      readNextChunk();
    }
 
    private void readNextChunk() throws IOException {
-      if (chunks.size() > 0) {
-         this.currentChunk = jdbcService.findChunkById(chunks.get(0));
-         if (currentChunk == null) {
-            throw new IOException("Could not find chunk.");
+      ChunkEntity chunk;
+      FutureTask<ChunkEntity> future = prefetched.poll();
+      if (future != null) {
+         chunk = await(future);
+      } else if (nextIndex < chunks.size()) {
+         chunk = decompress(jdbcService.findChunkById(chunks.get(nextIndex++)));
+      } else {
+         currentChunk = null;
+         bytesRead = 0;
+         return;
+      }
+      if (chunk == null) {
+         throw new IOException("Could not find chunk.");
+      }
+      currentChunk = chunk;
+      currentIndex++;
+      bytesRead = 0;
+      prefetch();
+   }
+
+   private void prefetch() {
+      while (prefetched.size() < prefetchChunks && nextIndex < chunks.size()) {
+         final Long chunkId = chunks.get(nextIndex);
+         FutureTask<ChunkEntity> task = new FutureTask<ChunkEntity>(new Callable<ChunkEntity>() {
+            @Override
+            public ChunkEntity call() throws IOException {
+               return decompress(jdbcService.findChunkById(chunkId));
+            }
+         });
+         try {
+            executor.execute(task);
+         } catch (RejectedExecutionException e) {
+            // The remaining chunks will be read synchronously
+            return;
+         }
+         prefetched.add(task);
+         nextIndex++;
+      }
+   }
+
+   /**
+    * Chunks are decompressed once, as soon as they are read, into a copy that is never attached to the persistence
+    * context.
+    */
+   private static ChunkEntity decompress(ChunkEntity chunk) throws IOException {
+      if (chunk == null || chunk.getCodec() == null) {
+         return chunk;
+      }
+      ChunkEntity decompressed = new ChunkEntity(ChunkCompression.decompress(chunk), chunk.getSize());
+      decompressed.setId(chunk.getId());
+      return decompressed;
+   }
+
+   private List<Integer> chunkSizes() {
+      if (chunkSizes == null) {
+         chunkSizes = jdbcService.findChunkSizes(chunks);
+      }
+      return chunkSizes;
+   }
+
+   private static ChunkEntity await(FutureTask<ChunkEntity> future) throws IOException {
+      // Does nothing if an executor thread has already started the task
+      future.run();
+      try {
+         return Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
          }
-         chunks.remove(0);
-         this.bytesRead = 0;
+         throw new IOException("Could not read chunk.", e.getCause());
       }
    }
 
@@ -21,6 +21,8 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteSource;
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
 import com.google.inject.Module;
 import com.google.inject.persist.jpa.JpaPersistModule;
 import org.jclouds.ContextBuilder;
@@ -28,6 +30,7 @@ import org.jclouds.blobstore.BlobRequestSigner;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.ContainerNotFoundException;
+import org.jclouds.blobstore.config.LocalBlobStore;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.domain.PageSet;
@@ -109,6 +112,24 @@ public abstract class BaseJdbcBlobStoreTest {
       assertThat(blobStore.containerExists(CONTAINER_NAME)).isFalse();
    }
 
+   @Test
+   public void testCreateContextResolvingLocalBlobStoreFirst() {
+      context.close();
+      context = ContextBuilder.newBuilder(PROVIDER)
+            .modules(ImmutableSet.<Module> of(new JpaPersistModule(jpaModuleName), new AbstractModule() {
+               @Override
+               protected void configure() {
+                  bind(LocalBlobStoreUser.class).asEagerSingleton();
+               }
+            }))
+            .build(BlobStoreContext.class);
+      blobStore = context.getBlobStore();
+
+      blobStore.createContainerInLocation(null, CONTAINER_NAME);
+      createBlobInContainer(CONTAINER_NAME, BLOB_NAME);
+      assertThat(blobStore.blobMetadata(CONTAINER_NAME, BLOB_NAME).getName()).isEqualTo(BLOB_NAME);
+   }
+
    @Test
    public void testPutBlob() {
       blobStore.createContainerInLocation(null, CONTAINER_NAME);
@@ -733,4 +754,11 @@ public abstract class BaseJdbcBlobStoreTest {
       assertTrue(blobStore.blobExists(CONTAINER_NAME, blobKey));
    }
 
+   /** Needs the {@link LocalBlobStore} before anything else asks for the {@link BlobStoreContext}. */
+   static class LocalBlobStoreUser {
+      @Inject
+      LocalBlobStoreUser(LocalBlobStore localBlobStore) {
+      }
+   }
+
 }
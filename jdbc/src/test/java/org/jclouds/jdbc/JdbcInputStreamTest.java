@@ -17,16 +17,25 @@
 package org.jclouds.jdbc;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.jclouds.jdbc.entity.ChunkEntity;
 import org.jclouds.jdbc.service.JdbcService;
 import org.jclouds.jdbc.util.JdbcInputStream;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import static com.google.common.base.Charsets.US_ASCII;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
 
 @Test(groups = "unit", testName = "JdbcInputStreamTest")
 public class JdbcInputStreamTest {
@@ -56,4 +65,43 @@ public class JdbcInputStreamTest {
       assertThat(jdbcInputStream.read()).isEqualTo(-1);
    }
 
+   @Test
+   public void testBulkReadWithPrefetch() throws IOException {
+      JdbcService jdbcService = createMock(JdbcService.class);
+      expect(jdbcService.findChunkById(1L)).andReturn(chunk("abc"));
+      expect(jdbcService.findChunkById(2L)).andReturn(chunk("def"));
+      expect(jdbcService.findChunkById(3L)).andReturn(chunk("gh"));
+      replay(jdbcService);
+
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         JdbcInputStream jdbcInputStream = new JdbcInputStream(jdbcService, ImmutableList.of(1L, 2L, 3L), executor, 2);
+         assertThat(new String(ByteStreams.toByteArray(jdbcInputStream), US_ASCII)).isEqualTo("abcdefgh");
+         assertThat(jdbcInputStream.read(new byte[4], 0, 4)).isEqualTo(-1);
+      } finally {
+         executor.shutdownNow();
+      }
+      verify(jdbcService);
+   }
+
+   @Test
+   public void testSkipDoesNotLoadSkippedChunks() throws IOException {
+      List<Long> chunks = ImmutableList.of(1L, 2L, 3L);
+      JdbcService jdbcService = createMock(JdbcService.class);
+      expect(jdbcService.findChunkById(1L)).andReturn(chunk("aaaa"));
+      expect(jdbcService.findChunkSizes(chunks)).andReturn(ImmutableList.of(4, 4, 4));
+      expect(jdbcService.findChunkById(3L)).andReturn(chunk("cdef"));
+      replay(jdbcService);
+
+      JdbcInputStream jdbcInputStream = new JdbcInputStream(jdbcService, chunks);
+      assertThat(jdbcInputStream.read()).isEqualTo('a');
+      assertThat(jdbcInputStream.skip(8)).isEqualTo(8);
+      assertThat(new String(ByteStreams.toByteArray(jdbcInputStream), US_ASCII)).isEqualTo("def");
+      verify(jdbcService);
+   }
+
+   private static ChunkEntity chunk(String data) {
+      return new ChunkEntity(data.getBytes(US_ASCII), data.length());
+   }
+
 }
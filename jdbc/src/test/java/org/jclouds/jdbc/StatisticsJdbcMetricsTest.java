@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.jdbc.metrics.StatisticsJdbcMetrics;
+import org.jclouds.jdbc.metrics.StatisticsJdbcMetrics.LatencyHistogram;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Test(groups = "unit", testName = "StatisticsJdbcMetricsTest")
+public class StatisticsJdbcMetricsTest {
+
+   @Test
+   public void testHistogramQuantiles() {
+      StatisticsJdbcMetrics metrics = new StatisticsJdbcMetrics();
+      for (int i = 0; i < 99; i++) {
+         metrics.recordOperation("fast", TimeUnit.MICROSECONDS.toNanos(100), false);
+      }
+      metrics.recordOperation("fast", TimeUnit.MILLISECONDS.toNanos(50), true);
+
+      LatencyHistogram histogram = metrics.getOperations().get("fast");
+      assertThat(histogram.getCount()).isEqualTo(100);
+      assertThat(histogram.getFailures()).isEqualTo(1);
+      assertThat(histogram.getMaxNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+      // 100us falls in the bucket of the durations below 128us
+      assertThat(histogram.getQuantileNanos(0.5)).isEqualTo(TimeUnit.MICROSECONDS.toNanos(128));
+      assertThat(histogram.getQuantileNanos(0.99)).isEqualTo(TimeUnit.MICROSECONDS.toNanos(128));
+      assertThat(histogram.getQuantileNanos(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+   }
+
+   @Test
+   public void testCounters() {
+      StatisticsJdbcMetrics metrics = new StatisticsJdbcMetrics();
+      metrics.recordRowsLoaded("list", 3);
+      metrics.recordRowsLoaded("list", 4);
+      metrics.recordBytesRead(10);
+      metrics.recordChunksRead(1);
+      assertThat(metrics.getRowsLoaded()).containsEntry("list", 7L);
+      assertThat(metrics.getBytesRead()).isEqualTo(10);
+      assertThat(metrics.getChunksRead()).isEqualTo(1);
+
+      metrics.reset();
+      assertThat(metrics.getRowsLoaded()).isEmpty();
+      assertThat(metrics.getBytesRead()).isEqualTo(0);
+   }
+
+}
@@ -16,7 +16,11 @@
  */
 package org.jclouds.jdbc.module;
 
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
+import org.jclouds.Constants;
 import org.jclouds.jdbc.config.JPAInitializer;
 
 public class TestContextModule extends AbstractModule {
@@ -24,6 +28,8 @@ public class TestContextModule extends AbstractModule {
    @Override
    protected void configure() {
       bind(JPAInitializer.class).asEagerSingleton();
+      bind(ListeningExecutorService.class).annotatedWith(Names.named(Constants.PROPERTY_USER_THREADS))
+            .toInstance(MoreExecutors.newDirectExecutorService());
    }
 
 }
@@ -16,30 +16,68 @@
  */
 package org.jclouds.jdbc.strategy;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
+import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
 import com.google.inject.persist.PersistService;
+import com.google.inject.persist.UnitOfWork;
 import com.google.inject.persist.jpa.JpaPersistModule;
+import org.jclouds.Constants;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
+import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
+import org.jclouds.blobstore.domain.internal.MutableBlobMetadataImpl;
+import org.jclouds.blobstore.options.CopyOptions;
 import org.jclouds.blobstore.options.CreateContainerOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.io.Payloads;
+import org.jclouds.jdbc.config.JdbcMetricsModule;
+import org.jclouds.jdbc.entity.BlobStatistics;
+import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.entity.ContainerEntity;
+import org.jclouds.jdbc.entity.StagedUploadEntity;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
+import org.jclouds.jdbc.metrics.StatisticsJdbcMetrics;
 import org.jclouds.jdbc.module.TestContextModule;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.service.JdbcService;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.persistence.EntityManager;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
 import static org.jclouds.utils.TestUtils.randomByteSource;
 
 public abstract class BaseJdbcStorageStrategyTest {
@@ -105,6 +143,45 @@ public abstract class BaseJdbcStorageStrategyTest {
       assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
    }
 
+   @Test
+   public void testRecreateContainer() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload("old").build());
+      storageStrategy.deleteContainer(CONTAINER_NAME);
+      assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isFalse();
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload("new").build());
+      assertThat(storageStrategy.getBlobMetadata(CONTAINER_NAME, BLOB_NAME).getSize()).isEqualTo(3);
+   }
+
+   @Test
+   public void testContainerDeletedByAnotherClient() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload("old").build());
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME);
+
+      // Bypasses the service, like another client of the same database
+      UnitOfWork unitOfWork = injector.getInstance(UnitOfWork.class);
+      unitOfWork.begin();
+      try {
+         EntityManager entityManager = injector.getInstance(EntityManager.class);
+         entityManager.getTransaction().begin();
+         entityManager.createQuery("DELETE FROM " + ContainerEntity.class.getName() + " c WHERE c.name = :name")
+               .setParameter("name", CONTAINER_NAME)
+               .executeUpdate();
+         entityManager.getTransaction().commit();
+      } finally {
+         unitOfWork.end();
+      }
+      assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload("new").build());
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isTrue();
+   }
+
    @Test
    public void testGetAllContainerNames() {
       assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME + "1", null, null)).isTrue();
@@ -167,6 +244,346 @@ public abstract class BaseJdbcStorageStrategyTest {
         }
     }
 
+   @Test
+   public void testGetBlobMetadata() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl()
+            .name(BLOB_NAME)
+            .payload(getByteArray('a', 1024))
+            .userMetadata(ImmutableMap.of("key", "value", "Mixed-Case", "value"))
+            .build());
+
+      BlobMetadata metadata = storageStrategy.getBlobMetadata(CONTAINER_NAME, BLOB_NAME);
+      assertThat(metadata.getName()).isEqualTo(BLOB_NAME);
+      assertThat(metadata.getContainer()).isEqualTo(CONTAINER_NAME);
+      assertThat(metadata.getSize()).isEqualTo(1024);
+      assertThat(metadata.getContentMetadata().getContentLength()).isEqualTo(1024);
+      assertThat(metadata.getUserMetadata()).containsEntry("key", "value").containsEntry("mixed-case", "value");
+      assertThat(metadata.getETag()).isEqualTo(storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME)
+            .getMetadata().getETag());
+      assertThat(storageStrategy.getBlobMetadata(CONTAINER_NAME, BLOB_NAME + "2")).isNull();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isTrue();
+      assertThat(storageStrategy.getBlobAccess(CONTAINER_NAME, BLOB_NAME)).isEqualTo(BlobAccess.PRIVATE);
+   }
+
+   @Test
+   public void testGetBlobRange() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 4 * 1024 * 1024 + 512);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.size()).isEqualTo(content.size());
+      assertThat(stored.slice(3 * 1024 * 1024 - 10, 1024 * 1024 + 20).read())
+            .isEqualTo(content.slice(3 * 1024 * 1024 - 10, 1024 * 1024 + 20).read());
+      assertThat(stored.slice(4 * 1024 * 1024, 1024).read()).isEqualTo(content.slice(4 * 1024 * 1024, 512).read());
+      assertThat(stored.slice(content.size(), 10).read()).isEmpty();
+   }
+
+   @Test
+   public void testGetBlobRangeReadsCoveringChunksOnly() throws IOException {
+      StatisticsJdbcMetrics metrics = restartWithMetrics();
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 4 * 1024 * 1024 + 512);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.slice(0, 100).read()).isEqualTo(content.slice(0, 100).read());
+      assertThat(metrics.getOperations().get("JdbcService.findChunkById").getCount()).isEqualTo(1);
+   }
+
+   @Test
+   public void testDeduplicatedChunksOutliveDeletedBlobs() throws IOException {
+      restartWithProperty(JdbcConstants.PROPERTY_DEDUPLICATE_CHUNKS, "true");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 2 * 1024 * 1024 + 512);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME + "1").payload(content).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME + "2").payload(content).build());
+      assertThat(countChunks()).isEqualTo(3);
+
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME + "1");
+      assertThat(countChunks()).isEqualTo(3);
+      InputStream data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME + "2").getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(content.read());
+      } finally {
+         data.close();
+      }
+
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME + "2");
+      assertThat(countChunks()).isEqualTo(0);
+   }
+
+   @Test
+   public void testCopyBlobSharesChunks() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 2 * 1024 * 1024 + 512);
+      String eTag = storageStrategy.putBlob(CONTAINER_NAME,
+            new BlobBuilderImpl().name(BLOB_NAME).payload(content).userMetadata(ImmutableMap.of("key", "value"))
+                  .build());
+      assertThat(storageStrategy.copyBlob(CONTAINER_NAME, BLOB_NAME, CONTAINER_NAME, BLOB_NAME + "-copy",
+            CopyOptions.NONE)).isEqualTo(eTag);
+      assertThat(countChunks()).isEqualTo(3);
+
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME);
+      assertThat(countChunks()).isEqualTo(3);
+      Blob copy = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME + "-copy");
+      assertThat(copy.getMetadata().getUserMetadata()).containsEntry("key", "value");
+      InputStream data = copy.getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(content.read());
+      } finally {
+         data.close();
+      }
+
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME + "-copy");
+      assertThat(countChunks()).isEqualTo(0);
+   }
+
+   @Test
+   public void testCompleteMultipartUploadConcatenatesParts() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource part1 = randomByteSource().slice(0, 1024 * 1024 + 512);
+      ByteSource part2 = randomByteSource().slice(0, 512);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("part-1").payload(part1).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("part-2").payload(part2).build());
+      assertThat(countChunks()).isEqualTo(3);
+
+      MutableBlobMetadata metadata = new MutableBlobMetadataImpl();
+      metadata.setName(BLOB_NAME);
+      metadata.getContentMetadata().setContentType("text/plain");
+      String eTag = storageStrategy.completeMultipartUpload(CONTAINER_NAME, metadata, BlobAccess.PRIVATE,
+            ImmutableList.of("part-1", "part-2"));
+      assertThat(eTag).matches("\"[0-9a-f]{32}-2\"");
+      assertThat(countChunks()).isEqualTo(3);
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, "part-1")).isFalse();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, "part-2")).isFalse();
+
+      Blob blob = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME);
+      assertThat(blob.getMetadata().getContentMetadata().getContentType()).isEqualTo("text/plain");
+      assertThat(blob.getMetadata().getSize()).isEqualTo(part1.size() + part2.size());
+      InputStream data = blob.getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(ByteSource.concat(part1, part2).read());
+      } finally {
+         data.close();
+      }
+   }
+
+   @Test
+   public void testStagedUpload() throws IOException {
+      restartWithProperty(JdbcConstants.PROPERTY_STAGED_UPLOADS, "true");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 2 * 1024 * 1024 + 512);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      assertThat(countChunks()).isEqualTo(3);
+      InputStream data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(content.read());
+      } finally {
+         data.close();
+      }
+
+      // The staged chunks of a failed upload are deleted, the published blob is left alone
+      Blob corrupted = new BlobBuilderImpl().name(BLOB_NAME).payload(content).build();
+      corrupted.getPayload().getContentMetadata().setContentMD5(HashCode.fromBytes(new byte[16]));
+      try {
+         storageStrategy.putBlob(CONTAINER_NAME, corrupted);
+         failBecauseExceptionWasNotThrown(IOException.class);
+      } catch (IOException expected) {
+      }
+      assertThat(countChunks()).isEqualTo(3);
+      assertThat(storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getMetadata().getSize())
+            .isEqualTo(content.size());
+   }
+
+   @Test
+   public void testCompressedChunks() throws IOException {
+      restartWithProperty(JdbcConstants.PROPERTY_COMPRESSION_LEVEL, "1");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource text = ByteSource.concat(ByteSource.wrap(getByteArray('a', 2 * 1024 * 1024)),
+            randomByteSource().slice(0, 512));
+      ByteSource random = randomByteSource().slice(0, 1024 * 1024 + 512);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(text).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME + "1").payload(random).build());
+
+      // Only the chunks that shrink are stored compressed
+      assertThat(countCompressedChunks()).isEqualTo(2);
+      assertThat(countChunks()).isEqualTo(5);
+      Blob blob = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME);
+      assertThat(blob.getMetadata().getSize()).isEqualTo(text.size());
+      InputStream data = blob.getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(text.read());
+      } finally {
+         data.close();
+      }
+      data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME + "1").getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(random.read());
+      } finally {
+         data.close();
+      }
+
+      // Skipping relies on the uncompressed chunk sizes
+      data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().openStream();
+      try {
+         ByteStreams.skipFully(data, 2 * 1024 * 1024 - 10);
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(text.slice(2 * 1024 * 1024 - 10, 522).read());
+      } finally {
+         data.close();
+      }
+   }
+
+   @Test
+   public void testMetrics() throws IOException {
+      StatisticsJdbcMetrics metrics = restartWithMetrics();
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 2 * 1024 * 1024 + 512);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      InputStream data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().openStream();
+      try {
+         ByteStreams.copy(data, ByteStreams.nullOutputStream());
+      } finally {
+         data.close();
+      }
+      storageStrategy.list(CONTAINER_NAME, new ListContainerOptions());
+
+      assertThat(metrics.getOperations()).containsKeys("JdbcStorageStrategy.putBlob", "JdbcStorageStrategy.getBlob",
+            "JdbcStorageStrategy.list", "JdbcService.findChunkById");
+      assertThat(metrics.getOperations().get("JdbcStorageStrategy.putBlob").getCount()).isEqualTo(1);
+      assertThat(metrics.getOperations().get("JdbcService.findChunkById").getCount()).isEqualTo(3);
+      assertThat(metrics.getTransactions()).containsKey("JdbcService.storeBlob");
+      assertThat(metrics.getRowsLoaded()).containsEntry("JdbcService.findBlobSummaries", 1L);
+      assertThat(metrics.getBytesWritten()).isEqualTo(content.size());
+      assertThat(metrics.getBytesRead()).isEqualTo(content.size());
+      assertThat(metrics.getChunksWritten()).isEqualTo(3);
+      assertThat(metrics.getChunksRead()).isEqualTo(3);
+   }
+
+   @Test
+   public void testReadAndWriteWithBusyExecutor() throws Exception {
+      // The only executor thread stays busy, so queued chunk reads must be run by the caller
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      final CountDownLatch busy = new CountDownLatch(1);
+      executor.execute(new Runnable() {
+         @Override
+         public void run() {
+            Uninterruptibles.awaitUninterruptibly(busy);
+         }
+      });
+      final ListeningExecutorService userExecutor = MoreExecutors.listeningDecorator(executor);
+      try {
+         injector.getInstance(PersistService.class).stop();
+         injector = Guice.createInjector(ImmutableSet.<Module> of(Modules.override(new TestContextModule())
+               .with(new AbstractModule() {
+                  @Override
+                  protected void configure() {
+                     bind(ListeningExecutorService.class).annotatedWith(Names.named(Constants.PROPERTY_USER_THREADS))
+                           .toInstance(userExecutor);
+                  }
+               }), new JpaPersistModule(jpaModuleName)));
+         storageStrategy = injector.getInstance(JdbcStorageStrategy.class);
+
+         assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+         ByteSource content = randomByteSource().slice(0, 3 * 1024 * 1024 + 512);
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+         InputStream data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().openStream();
+         try {
+            assertThat(ByteStreams.toByteArray(data)).isEqualTo(content.read());
+         } finally {
+            data.close();
+         }
+      } finally {
+         busy.countDown();
+         executor.shutdown();
+      }
+   }
+
+   @Test
+   public void testResumeStagedUpload() throws IOException {
+      try {
+         storageStrategy.initiateStagedUpload();
+         failBecauseExceptionWasNotThrown(IllegalStateException.class);
+      } catch (IllegalStateException expected) {
+      }
+      restartWithProperties(ImmutableMap.of(JdbcConstants.PROPERTY_STAGED_UPLOADS, "true",
+            JdbcConstants.PROPERTY_WRITE_BATCH_SIZE, "1"));
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 3 * 1024 * 1024 + 512);
+      String uploadId = storageStrategy.initiateStagedUpload();
+
+      // The connection drops after two chunks, which stay staged
+      ByteSource interrupted = ByteSource.concat(content.slice(0, 2 * 1024 * 1024), new ByteSource() {
+         @Override
+         public InputStream openStream() throws IOException {
+            throw new IOException("connection reset");
+         }
+      });
+      try {
+         storageStrategy.appendStagedUpload(uploadId, Payloads.newByteSourcePayload(interrupted));
+         failBecauseExceptionWasNotThrown(IOException.class);
+      } catch (IOException expected) {
+      }
+      long staged = storageStrategy.getStagedUploadSize(uploadId);
+      assertThat(staged).isEqualTo(2 * 1024 * 1024);
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isFalse();
+
+      // The client continues from where the upload stopped
+      assertThat(storageStrategy.appendStagedUpload(uploadId,
+            Payloads.newByteSourcePayload(content.slice(staged, content.size() - staged)))).isEqualTo(content.size());
+      MutableBlobMetadata metadata = new MutableBlobMetadataImpl();
+      metadata.setName(BLOB_NAME);
+      String eTag = storageStrategy.completeStagedUpload(CONTAINER_NAME, metadata, BlobAccess.PRIVATE, uploadId);
+      assertThat(eTag).isEqualTo(content.hash(Hashing.md5()).toString());
+      assertThat(storageStrategy.getStagedUploadSize(uploadId)).isNull();
+      assertThat(countChunks()).isEqualTo(4);
+      InputStream data = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().openStream();
+      try {
+         assertThat(ByteStreams.toByteArray(data)).isEqualTo(content.read());
+      } finally {
+         data.close();
+      }
+   }
+
+   @Test
+   public void testDeleteExpiredStagedUploads() throws IOException {
+      restartWithProperty(JdbcConstants.PROPERTY_STAGED_UPLOADS, "true");
+      String abandoned = storageStrategy.initiateStagedUpload();
+      storageStrategy.appendStagedUpload(abandoned, Payloads.newStringPayload("abandoned"));
+      String active = storageStrategy.initiateStagedUpload();
+      storageStrategy.appendStagedUpload(active, Payloads.newStringPayload("active"));
+
+      UnitOfWork unitOfWork = injector.getInstance(UnitOfWork.class);
+      unitOfWork.begin();
+      try {
+         EntityManager entityManager = injector.getInstance(EntityManager.class);
+         entityManager.getTransaction().begin();
+         entityManager.createQuery("UPDATE " + StagedUploadEntity.class.getName() + " u "
+               + "SET u.lastModified = :date WHERE u.id = :id")
+               .setParameter("date", new Date(System.currentTimeMillis() - 2 * JdbcConstants.DEFAULT_ORPHAN_CHUNK_AGE))
+               .setParameter("id", abandoned)
+               .executeUpdate();
+         entityManager.getTransaction().commit();
+      } finally {
+         unitOfWork.end();
+      }
+
+      assertThat(injector.getInstance(JdbcService.class).deleteExpiredStagedUploads()).isEqualTo(1);
+      assertThat(storageStrategy.getStagedUploadSize(abandoned)).isNull();
+      assertThat(storageStrategy.getStagedUploadSize(active)).isEqualTo(6);
+      assertThat(countChunks()).isEqualTo(1);
+
+      storageStrategy.abortStagedUpload(active);
+      assertThat(storageStrategy.getStagedUploadSize(active)).isNull();
+      assertThat(countChunks()).isEqualTo(0);
+   }
+
    @Test
    public void testRemoveBlob() throws IOException {
       assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
@@ -203,6 +620,171 @@ public abstract class BaseJdbcStorageStrategyTest {
       assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
    }
 
+   @Test
+   public void testClearDirectoryInSeveralTransactions() throws IOException {
+      restartWithProperty(JdbcConstants.PROPERTY_DELETE_BATCH_SIZE, "2");
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir");
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir/sub");
+      for (String key : Arrays.asList("dir/a", "dir/b", "dir/sub/c", "dir/sub/d", "other")) {
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(key).payload(key).build());
+      }
+
+      storageStrategy.clearContainer(CONTAINER_NAME, new ListContainerOptions().inDirectory("dir"));
+      assertThat(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME)).containsOnly("dir", "other");
+      assertThat(countChunks()).isEqualTo(1);
+
+      storageStrategy.clearContainer(CONTAINER_NAME);
+      assertThat(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME)).isEmpty();
+      assertThat(countChunks()).isEqualTo(0);
+   }
+
+   @Test
+   public void testListPagesThroughCommonPrefixes() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      for (String key : Arrays.asList("a", "b/1", "b/2", "b/3", "c", "d_1", "dx1", "e/f/g")) {
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(key).payload(key).build());
+      }
+
+      PageSet<? extends StorageMetadata> page = storageStrategy.list(CONTAINER_NAME,
+            new ListContainerOptions().maxResults(3));
+      assertThat(names(page)).containsExactly("a", "b/", "c");
+      assertThat(page.getNextMarker()).isEqualTo("c");
+
+      page = storageStrategy.list(CONTAINER_NAME, new ListContainerOptions().afterMarker("c"));
+      assertThat(names(page)).containsExactly("d_1", "dx1", "e/");
+      assertThat(page.getNextMarker()).isNull();
+
+      page = storageStrategy.list(CONTAINER_NAME, new ListContainerOptions().prefix("d_"));
+      assertThat(names(page)).containsExactly("d_1");
+
+      page = storageStrategy.list(CONTAINER_NAME, new ListContainerOptions().inDirectory("b").maxResults(2));
+      assertThat(names(page)).containsExactly("b/1", "b/2");
+      assertThat(page.getNextMarker()).isEqualTo("b/2");
+
+      page = storageStrategy.list(CONTAINER_NAME, new ListContainerOptions().recursive().afterMarker("b/2"));
+      assertThat(names(page)).containsExactly("b/3", "c", "d_1", "dx1", "e/f/g");
+   }
+
+   @Test
+   public void testListRollsUpCommonPrefixesWithinAPage() throws IOException {
+      StatisticsJdbcMetrics metrics = restartWithMetrics();
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      for (String key : Arrays.asList("a/1", "a/2", "b/1", "b/2", "c/1", "c/2", "d")) {
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(key).payload(key).build());
+      }
+
+      PageSet<? extends StorageMetadata> page = storageStrategy.list(CONTAINER_NAME, ListContainerOptions.NONE);
+      assertThat(names(page)).containsExactly("a/", "b/", "c/", "d");
+      assertThat(metrics.getOperations().get("JdbcService.findBlobSummaries").getCount()).isEqualTo(1);
+
+      // A page ending inside a common prefix seeks past it
+      page = storageStrategy.list(CONTAINER_NAME, new ListContainerOptions().maxResults(1));
+      assertThat(names(page)).containsExactly("a/");
+      page = storageStrategy.list(CONTAINER_NAME, new ListContainerOptions().afterMarker("a/").maxResults(1));
+      assertThat(names(page)).containsExactly("b/");
+      assertThat(page.getNextMarker()).isEqualTo("b/");
+   }
+
+   @Test
+   public void testListWithEmptyDelimiterAndDetails() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      for (String key : Arrays.asList("a", "b/1", "c")) {
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(key).payload(key)
+               .userMetadata(ImmutableMap.of("Mixed-Case", key)).build());
+      }
+
+      PageSet<? extends StorageMetadata> page = storageStrategy.list(CONTAINER_NAME,
+            new ListContainerOptions().prefix("").delimiter("").afterMarker("").withDetails());
+      assertThat(names(page)).containsExactly("a", "b/1", "c");
+      assertThat(((BlobMetadata) page.iterator().next()).getUserMetadata()).containsEntry("mixed-case", "a");
+   }
+
+   @Test
+   public void testBlobStatistics() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir/sub");
+      for (String key : Arrays.asList("a", "dir/x", "dir/sub/y")) {
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(key).payload(key).build());
+      }
+
+      BlobStatistics statistics = storageStrategy.getBlobStatistics(CONTAINER_NAME, ListContainerOptions.NONE);
+      assertThat(statistics.getCount()).isEqualTo(4);
+      assertThat(statistics.getTotalSize()).isEqualTo(15);
+
+      statistics = storageStrategy.getBlobStatistics(CONTAINER_NAME,
+            new ListContainerOptions().inDirectory("dir").recursive());
+      assertThat(statistics.getCount()).isEqualTo(3);
+      assertThat(statistics.getTotalSize()).isEqualTo(14);
+
+      assertThat(storageStrategy.countBlobs(CONTAINER_NAME, new ListContainerOptions().inDirectory("dir/")))
+            .isEqualTo(2);
+      assertThat(storageStrategy.countBlobs("missing-container", ListContainerOptions.NONE)).isEqualTo(0);
+   }
+
+   private static List<String> names(PageSet<? extends StorageMetadata> page) {
+      List<String> names = Lists.newArrayList();
+      for (StorageMetadata metadata : page) {
+         names.add(metadata.getName());
+      }
+      return names;
+   }
+
+   private StatisticsJdbcMetrics restartWithMetrics() {
+      injector.getInstance(PersistService.class).stop();
+      injector = Guice.createInjector(ImmutableSet.<Module> of(new TestContextModule(), new JdbcMetricsModule(),
+            new JpaPersistModule(jpaModuleName), new AbstractModule() {
+               @Override
+               protected void configure() {
+                  bind(JdbcMetrics.class).to(StatisticsJdbcMetrics.class);
+               }
+            }));
+      storageStrategy = injector.getInstance(JdbcStorageStrategy.class);
+      return injector.getInstance(StatisticsJdbcMetrics.class);
+   }
+
+   private void restartWithProperty(String name, String value) {
+      restartWithProperties(ImmutableMap.of(name, value));
+   }
+
+   private void restartWithProperties(final Map<String, String> properties) {
+      injector.getInstance(PersistService.class).stop();
+      injector = Guice.createInjector(ImmutableSet.<Module> of(new TestContextModule(),
+            new JpaPersistModule(jpaModuleName), new AbstractModule() {
+               @Override
+               protected void configure() {
+                  Names.bindProperties(binder(), properties);
+               }
+            }));
+      storageStrategy = injector.getInstance(JdbcStorageStrategy.class);
+   }
+
+   private long countChunks() {
+      UnitOfWork unitOfWork = injector.getInstance(UnitOfWork.class);
+      unitOfWork.begin();
+      try {
+         return injector.getInstance(EntityManager.class)
+               .createQuery("SELECT COUNT(c) FROM " + ChunkEntity.class.getName() + " c", Long.class)
+               .getSingleResult();
+      } finally {
+         unitOfWork.end();
+      }
+   }
+
+   private long countCompressedChunks() {
+      UnitOfWork unitOfWork = injector.getInstance(UnitOfWork.class);
+      unitOfWork.begin();
+      try {
+         return injector.getInstance(EntityManager.class)
+               .createQuery("SELECT COUNT(c) FROM " + ChunkEntity.class.getName() + " c WHERE c.codec IS NOT NULL",
+                     Long.class)
+               .getSingleResult();
+      } finally {
+         unitOfWork.end();
+      }
+   }
+
     private byte[] getByteArray(char c, int len) {
         byte[] array = new byte[len];
         Arrays.fill(array, (byte) c);
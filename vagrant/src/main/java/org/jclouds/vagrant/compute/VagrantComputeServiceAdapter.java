@@ -18,12 +18,10 @@ package org.jclouds.vagrant.compute;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -48,21 +46,25 @@ import org.jclouds.logging.Logger;
 import org.jclouds.vagrant.api.VagrantApiFacade;
 import org.jclouds.vagrant.domain.VagrantNode;
 import org.jclouds.vagrant.internal.MachineConfig;
+import org.jclouds.vagrant.internal.ProvisioningOutput;
+import org.jclouds.vagrant.internal.VagrantCommandScheduler;
+import org.jclouds.vagrant.internal.VagrantMachinePool;
 import org.jclouds.vagrant.internal.VagrantNodeRegistry;
 import org.jclouds.vagrant.reference.VagrantConstants;
 import org.jclouds.vagrant.util.VagrantUtils;
 
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 
 public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<VagrantNode, Hardware, Image, Location> {
-   private static final Pattern PATTERN_IP_ADDR = Pattern.compile("inet ([0-9\\.]+)/(\\d+)");
-   private static final Pattern PATTERN_IPCONFIG = Pattern.compile("IPv4 Address[ .]+: ([0-9\\.]+)");
+   private static final long CREDENTIALS_UPDATE_TIMEOUT_SECONDS = 30;
 
    @Resource
    protected Logger logger = Logger.NULL;
@@ -72,6 +74,8 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
    private final VagrantNodeRegistry nodeRegistry;
    private final MachineConfig.Factory machineConfigFactory;
    private final VagrantApiFacade.Factory cliFactory;
+   private final VagrantCommandScheduler scheduler;
+   private final VagrantMachinePool machinePool;
    private final Supplier<? extends Map<String, Hardware>> hardwareSupplier;
    private final Supplier<Collection<Image>> imageListSupplier;
    private final Function<String, Image> imageIdToImage;
@@ -82,6 +86,8 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
          VagrantNodeRegistry nodeRegistry,
          MachineConfig.Factory machineConfigFactory,
          VagrantApiFacade.Factory cliFactory,
+         VagrantCommandScheduler scheduler,
+         VagrantMachinePool machinePool,
          Supplier<? extends Map<String, Hardware>> hardwareSupplier,
          Supplier<Collection<Image>> imageListSupplier,
          Function<String, Image> imageIdToImage) {
@@ -90,6 +96,8 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       this.nodeRegistry = nodeRegistry;
       this.machineConfigFactory = machineConfigFactory;
       this.cliFactory = cliFactory;
+      this.scheduler = scheduler;
+      this.machinePool = machinePool;
       this.hardwareSupplier = hardwareSupplier;
       this.imageListSupplier = imageListSupplier;
       this.imageIdToImage = imageIdToImage;
@@ -100,23 +108,35 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
    public NodeAndInitialCredentials<VagrantNode> createNodeWithGroupEncodedIntoName(String group, String name, Template template) {
       String machineName = removeFromStart(name, group);
       File nodePath = new File(home, group);
+      Map<String, Object> config = getMachineConfig(template);
 
-      init(nodePath, machineName, template);
-
-      NodeAndInitialCredentials<VagrantNode> node = startMachine(nodePath, group, machineName,
-            template.getImage(), template.getHardware());
+      Optional<NodeAndInitialCredentials<VagrantNode>> pooled = machinePool.claim(nodePath, group, machineName,
+            template, config);
+      NodeAndInitialCredentials<VagrantNode> node;
+      if (pooled.isPresent()) {
+         node = pooled.get();
+      } else {
+         init(nodePath, machineName, config);
+         node = startMachine(nodePath, group, machineName, template);
+      }
       nodeRegistry.add(node.getNode());
+      // The compute service saves the credentials of every created node once it's returned, see
+      // PersistVagrantCredentialsModule.RefreshCredentialsForNode. Mark the update now, so getNode
+      // calls made in the meantime wait for it instead of returning the initial credentials.
+      nodeRegistry.beginCredentialsUpdate(node.getNode().id());
+      machinePool.refill(template, config);
       return node;
    }
 
-   private NodeAndInitialCredentials<VagrantNode> startMachine(File path, String group, String name, Image image, Hardware hardware) {
+   private NodeAndInitialCredentials<VagrantNode> startMachine(File path, String group, String name, Template template) {
+      Image image = template.getImage();
       String provider = image.getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
 
-      VagrantApiFacade vagrant = cliFactory.create(path);
+      VagrantApiFacade vagrant = scheduler.schedule(cliFactory.create(path), provider);
       String rawOutput = vagrant.up(name, provider);
-      String output = normalizeOutput(name, rawOutput);
 
       OsFamily osFamily = image.getOperatingSystem().getFamily();
+      ProvisioningOutput output = new ProvisioningOutput(name, rawOutput, osFamily);
       String id = group + "/" + name;
       VagrantNode node = VagrantNode.builder()
             .setPath(path)
@@ -124,9 +144,11 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
             .setGroup(group)
             .setName(name)
             .setImage(image)
-            .setHardware(hardware)
-            .setNetworks(getNetworks(output, getOsInterfacePattern(osFamily)))
-            .setHostname(getHostname(output))
+            .setHardware(template.getHardware())
+            .setNetworks(output.getNetworks())
+            .setHostname(output.getHostname())
+            .setTags(ImmutableSet.copyOf(template.getOptions().getTags()))
+            .setUserMetadata(ImmutableMap.copyOf(template.getOptions().getUserMetadata()))
             .build();
       node.setMachineState(Status.RUNNING);
 
@@ -140,74 +162,17 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       return new NodeAndInitialCredentials<VagrantNode>(node, node.id(), loginCredentials);
    }
 
-   private String normalizeOutput(String name, String output) {
-      return output
-            .replaceAll("(?m)^([^,]*,){4}", "")
-            .replace("==> " + name + ": ", "")
-            // Vagrant shows some of the \n verbatim in provisioning command results.
-            .replace("\\n", "\n");
-   }
-
-   private Pattern getOsInterfacePattern(OsFamily osFamily) {
-      if (osFamily == OsFamily.WINDOWS) {
-         return PATTERN_IPCONFIG;
-      } else {
-         return PATTERN_IP_ADDR;
-      }
-   }
-
-   private Collection<String> getNetworks(String output, Pattern ifPattern) {
-      String networks = getDelimitedString(
-            output,
-            VagrantConstants.DELIMITER_NETWORKS_START,
-            VagrantConstants.DELIMITER_NETWORKS_END);
-      Matcher m = ifPattern.matcher(networks);
-      Collection<String> ips = new ArrayList<String>();
-      while (m.find()) {
-         String network = m.group(1);
-         ips.add(network);
-      }
-      return ips;
-   }
-
-   private String getHostname(String output) {
-      return getDelimitedString(
-            output,
-            VagrantConstants.DELIMITER_HOSTNAME_START,
-            VagrantConstants.DELIMITER_HOSTNAME_END);
-   }
-
-   private String getDelimitedString(String value, String delimStart, String delimEnd) {
-      int startPos = value.indexOf(delimStart);
-      int endPos = value.indexOf(delimEnd);
-      if (startPos == -1) {
-         throw new IllegalStateException("Delimiter " + delimStart + " not found in output \n" + value);
-      }
-      if (endPos == -1) {
-         throw new IllegalStateException("Delimiter " + delimEnd + " not found in output \n" + value);
-      }
-      return value.substring(startPos + delimStart.length(), endPos).trim();
-   }
-
-   private void init(File path, String name, Template template) {
+   private void init(File path, String name, Map<String, Object> config) {
       try {
-         writeVagrantfile(path);
-         initMachineConfig(path, name, template);
+         VagrantUtils.writeVagrantfile(path);
+         machineConfigFactory.newInstance(path, name).save(config);
       } catch (IOException e) {
          throw new IllegalStateException("Unable to initialize Vagrant configuration at " +
                path + " for machine " + name, e);
       }
    }
 
-   private void writeVagrantfile(File path) throws IOException {
-      path.mkdirs();
-      VagrantUtils.write(
-            new File(path, VagrantConstants.VAGRANTFILE),
-            getClass().getClassLoader().getResourceAsStream(VagrantConstants.VAGRANTFILE));
-   }
-
-   private void initMachineConfig(File path, String name, Template template) {
-      MachineConfig config = machineConfigFactory.newInstance(path, name);
+   private Map<String, Object> getMachineConfig(Template template) {
       List<? extends Volume> volumes = template.getHardware().getVolumes();
       if (volumes != null) {
          if (volumes.size() == 1) {
@@ -219,12 +184,12 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
             throw new IllegalStateException("Custom volume settings not supported. Volumes required: " + volumes);
          }
       }
-      config.save(ImmutableMap.<String, Object>of(
+      return ImmutableMap.<String, Object>of(
             VagrantConstants.CONFIG_BOX, template.getImage().getName(),
             VagrantConstants.CONFIG_OS_FAMILY, template.getImage().getOperatingSystem().getFamily(),
             VagrantConstants.CONFIG_HARDWARE_ID, getHardwareId(template),
             VagrantConstants.CONFIG_MEMORY, Integer.toString(template.getHardware().getRam()),
-            VagrantConstants.CONFIG_CPUS, Integer.toString(countProcessors(template))));
+            VagrantConstants.CONFIG_CPUS, Integer.toString(countProcessors(template)));
    }
 
    private String getHardwareId(Template template) {
@@ -269,9 +234,11 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
    @Override
    public VagrantNode getNode(String id) {
       // needed for BaseComputeServiceLiveTest.testAScriptExecutionAfterBootWithBasicTemplate()
-      // waits for the thread updating the credentialStore to execute
+      // waits for a thread updating the credentialStore, if any, to complete
       try {
-         Thread.sleep(200);
+         if (!nodeRegistry.awaitCredentials(id, CREDENTIALS_UPDATE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            logger.warn("Timed out waiting for the credentials of node %s to be updated", id);
+         }
       } catch (InterruptedException e) {
          Thread.currentThread().interrupt();
          throw Throwables.propagate(e);
@@ -311,7 +278,7 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       String name = node.name();
       VagrantApiFacade vagrant = getMachine(node);
       vagrant.up(name, provider);
-      node.setMachineState(Status.RUNNING);
+      nodeRegistry.setMachineState(node, Status.RUNNING);
    }
 
    private void halt(String id) {
@@ -321,7 +288,7 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
 
       try {
          vagrant.halt(name);
-         node.setMachineState(Status.SUSPENDED);
+         nodeRegistry.setMachineState(node, Status.SUSPENDED);
       } catch (IllegalStateException e) {
          logger.warn(e, "Failed graceful shutdown of machine " + id + ". Will try to halt it forcefully instead.");
          vagrant.haltForced(name);
@@ -335,14 +302,14 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       String name = node.name();
       VagrantApiFacade vagrant = getMachine(node);
       vagrant.up(name, provider);
-      node.setMachineState(Status.RUNNING);
+      nodeRegistry.setMachineState(node, Status.RUNNING);
    }
 
    @Override
    public void suspendNode(String id) {
       halt(id);
       VagrantNode node = nodeRegistry.get(id);
-      node.setMachineState(Status.SUSPENDED);
+      nodeRegistry.setMachineState(node, Status.SUSPENDED);
    }
 
    @Override
@@ -362,7 +329,8 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
 
    private VagrantApiFacade getMachine(VagrantNode node) {
       File nodePath = node.path();
-      return cliFactory.create(nodePath);
+      String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
+      return scheduler.schedule(cliFactory.create(nodePath), provider);
    }
 
    private String removeFromStart(String name, String group) {
@@ -36,6 +36,7 @@ import org.jclouds.vagrant.reference.VagrantConstants;
 import org.jclouds.vagrant.util.VagrantUtils;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Maps;
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
 import com.google.inject.TypeLiteral;
@@ -84,17 +85,13 @@ public class PersistVagrantCredentialsModule extends AbstractModule {
          }
          String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
 
-         MachineConfig machineConfig = machineConfigFactory.newInstance(node);
-         Map<String, Object> config = machineConfig.load();
-
-         config.put(VagrantConstants.CONFIG_USERNAME, credentials.getUser());
-         config.remove(VagrantConstants.CONFIG_PASSWORD);
-         if (credentials.getOptionalPassword().isPresent()) {
-            config.put(VagrantConstants.CONFIG_PASSWORD, credentials.getOptionalPassword().get());
-         }
+         Map<String, Object> changes = Maps.newHashMap();
+         changes.put(VagrantConstants.CONFIG_USERNAME, credentials.getUser());
+         changes.put(VagrantConstants.CONFIG_PASSWORD, credentials.getOptionalPassword().orNull());
          if (credentials.getOptionalPrivateKey().isPresent()) {
             // Overwrite existing private key and dont't use config.ssh.private_key_path - doesn't work, is ignored.
-            File privateKeyFile = new File(node.path(), ".vagrant/machines/" + node.name() + "/" + provider + "/private_key");
+            File privateKeyFile = new File(node.path(),
+                  VagrantConstants.VAGRANT_MACHINES_STATE_SUBFOLDER + "/" + node.name() + "/" + provider + "/private_key");
             try {
                VagrantUtils.write(privateKeyFile, credentials.getOptionalPrivateKey().get());
             } catch (IOException e) {
@@ -103,10 +100,14 @@ public class PersistVagrantCredentialsModule extends AbstractModule {
             }
          }
 
-         machineConfig.save(config);
+         machineConfigFactory.newInstance(node).update(changes);
       }
    }
 
+   /**
+    * Saves the credentials of a newly created node. Completes the credentials update that
+    * {@link org.jclouds.vagrant.compute.VagrantComputeServiceAdapter} started when it returned the node.
+    */
    static class RefreshCredentialsForNode extends RefreshCredentialsForNodeIfRanAdminAccess {
 
       @Inject
@@ -120,12 +121,17 @@ public class PersistVagrantCredentialsModule extends AbstractModule {
 
       @Override
       public NodeMetadata apply(NodeMetadata input) {
-         input = super.apply(input);
-         if (input.getCredentials() != null) {
-            credentialStore.put("node#" + input.getId(), input.getCredentials());
-            updateMachine(input.getId(), input.getCredentials());
+         String id = input.getId();
+         try {
+            input = super.apply(input);
+            if (input.getCredentials() != null) {
+               credentialStore.put("node#" + id, input.getCredentials());
+               updateMachine(id, input.getCredentials());
+            }
+            return input;
+         } finally {
+            vagrantNodeRegistry.endCredentialsUpdate(id);
          }
-         return input;
       }
 
    }
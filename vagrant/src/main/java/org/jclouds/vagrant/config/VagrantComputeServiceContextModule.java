@@ -37,6 +37,7 @@ import org.jclouds.vagrant.domain.VagrantNode;
 import org.jclouds.vagrant.functions.BoxToImage;
 import org.jclouds.vagrant.functions.MachineToNodeMetadata;
 import org.jclouds.vagrant.functions.OutdatedBoxesFilter;
+import org.jclouds.vagrant.internal.BoxCatalog;
 import org.jclouds.vagrant.internal.ImageSupplier;
 import org.jclouds.vagrant.internal.VagrantCliFacade;
 import org.jclouds.vagrant.internal.VagrantExistingMachines;
@@ -84,9 +85,8 @@ public class VagrantComputeServiceContextModule extends ComputeServiceAdapterCon
       install(new FactoryModuleBuilder()
             .implement(VagrantApiFacade.class, VagrantCliFacade.class)
             .build(VagrantApiFacade.Factory.class));
-      install(new FactoryModuleBuilder()
-            .implement(new TypeLiteral<VagrantBoxApiFacade<Box>>() {}, VagrantCliFacade.class)
-            .build(new TypeLiteral<VagrantBoxApiFacade.Factory<Box>>() {}));
+      bind(new TypeLiteral<VagrantBoxApiFacade<Box>>() {
+      }).to(BoxCatalog.class);
       bind(PopulateDefaultLoginCredentialsForImageStrategy.class).to(VagrantDefaultImageCredentials.class);
       bind(TemplateBuilderImpl.class).to(ArbitraryCpuRamTemplateBuilderImpl.class);
       bind(CommandIOListener.class).to(VagrantWireLogger.class).in(Singleton.class);
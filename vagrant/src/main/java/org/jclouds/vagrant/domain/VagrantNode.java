@@ -18,12 +18,16 @@ package org.jclouds.vagrant.domain;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.Image;
 import org.jclouds.compute.domain.NodeMetadata.Status;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 @AutoValue
 public abstract class VagrantNode {
@@ -46,8 +50,14 @@ public abstract class VagrantNode {
 
    public abstract String hostname();
 
+   public abstract Set<String> tags();
+
+   public abstract Map<String, String> userMetadata();
+
    public static Builder builder() {
-      return new AutoValue_VagrantNode.Builder();
+      return new AutoValue_VagrantNode.Builder()
+            .setTags(ImmutableSet.<String>of())
+            .setUserMetadata(ImmutableMap.<String, String>of());
    }
 
    @AutoValue.Builder
@@ -60,6 +70,8 @@ public abstract class VagrantNode {
       public abstract Builder setHardware(Hardware hardware);
       public abstract Builder setNetworks(Collection<String> networks);
       public abstract Builder setHostname(String hostname);
+      public abstract Builder setTags(Set<String> tags);
+      public abstract Builder setUserMetadata(Map<String, String> userMetadata);
       public abstract VagrantNode build();
    }
 
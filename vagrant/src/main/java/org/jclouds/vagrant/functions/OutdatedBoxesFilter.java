@@ -55,6 +55,13 @@ public class OutdatedBoxesFilter implements Function<Collection<Box>, Collection
       }
    };
 
+   /**
+    * Returns the box with the highest version, expects all boxes to have the same name.
+    */
+   public static Box latest(Iterable<Box> boxes) {
+      return Ordering.from(VERSION_COMPARATOR).max(boxes);
+   }
+
    @Override
    public Collection<Box> apply(Collection<Box> input) {
       ArrayList<Box> sorted = new ArrayList<Box>(input);
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.logging.Logger;
+import org.jclouds.util.Closeables2;
+import org.jclouds.vagrant.api.VagrantBoxApiFacade;
+import org.jclouds.vagrant.functions.OutdatedBoxesFilter;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import vagrant.api.domain.Box;
+
+/**
+ * Lists the installed boxes by reading the boxes folder under VAGRANT_HOME instead of executing
+ * "vagrant box list". Each exec takes several seconds while the folder can be indexed in a few
+ * milliseconds.
+ * <p>
+ * Boxes are laid out as {@code boxes/<name>/<version>/<provider>/metadata.json}, slashes in the
+ * name being escaped. The index is kept in memory, keyed by name and version, and is rebuilt when
+ * a watched folder changes or the TTL expires, whichever comes first. Watching is best effort
+ * (on some platforms the watch service polls), so the TTL bounds how long a newly added box
+ * can go unnoticed.
+ */
+@Singleton
+public class BoxCatalog implements VagrantBoxApiFacade<Box> {
+   private static final String BOX_METADATA = "metadata.json";
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final File boxesFolder;
+   private final long ttlNanos;
+   private final WatchService watcher;
+
+   private volatile Index index;
+
+   @Inject
+   BoxCatalog(BoxConfig.Factory boxConfigFactory,
+         @Named(VagrantConstants.JCLOUDS_VAGRANT_BOX_CATALOG_TTL) long ttlSeconds) {
+      this(boxConfigFactory.getVagrantHome(), TimeUnit.SECONDS.toNanos(ttlSeconds));
+   }
+
+   BoxCatalog(File vagrantHome, long ttlNanos) {
+      this.boxesFolder = new File(vagrantHome, VagrantConstants.VAGRANT_BOXES_SUBFOLDER);
+      this.ttlNanos = ttlNanos;
+      this.watcher = newWatchService();
+   }
+
+   @Override
+   public Collection<Box> listBoxes() {
+      return index().boxes;
+   }
+
+   /**
+    * Returns the latest version of the box with the given name, or null if it's not installed.
+    */
+   @Override
+   public Box getBox(String boxName) {
+      Map<String, Box> versions = index().byName.get(boxName);
+      return versions == null ? null : OutdatedBoxesFilter.latest(versions.values());
+   }
+
+   /**
+    * Returns the box with the given name and version, or null if it's not installed.
+    */
+   public Box getBox(String boxName, String version) {
+      Map<String, Box> versions = index().byName.get(boxName);
+      return versions == null ? null : versions.get(version);
+   }
+
+   /**
+    * Forces the boxes folder to be read again on next access.
+    */
+   public void invalidate() {
+      index = null;
+   }
+
+   @PreDestroy
+   public void close() {
+      if (watcher != null) {
+         Closeables2.closeQuietly(watcher);
+      }
+   }
+
+   private Index index() {
+      Index current = index;
+      if (current == null || current.isStale()) {
+         synchronized (this) {
+            current = index;
+            if (current == null || current.isStale()) {
+               current = load();
+               index = current;
+            }
+         }
+      }
+      return current;
+   }
+
+   private Index load() {
+      if (watcher != null) {
+         // Folders are registered again below, drop the events collected so far
+         WatchKey key;
+         while ((key = watcher.poll()) != null) {
+            key.cancel();
+         }
+      }
+      watch(boxesFolder);
+
+      Map<String, Map<String, Box>> byName = Maps.newHashMap();
+      ImmutableList.Builder<Box> boxes = ImmutableList.builder();
+      File[] names = boxesFolder.listFiles();
+      if (names != null) {
+         for (File nameFolder : names) {
+            File[] versions = nameFolder.listFiles();
+            if (versions == null) continue;
+            watch(nameFolder);
+            String name = nameFolder.getName().replace(VagrantConstants.ESCAPE_SLASH, "/");
+            Map<String, Box> nameVersions = Maps.newLinkedHashMap();
+            for (File versionFolder : versions) {
+               File[] providers = versionFolder.listFiles();
+               if (providers == null) continue;
+               watch(versionFolder);
+               for (File providerFolder : providers) {
+                  // Boxes being added don't have their metadata yet
+                  if (new File(providerFolder, BOX_METADATA).isFile()) {
+                     Box box = new Box(name, versionFolder.getName(), providerFolder.getName());
+                     if (!nameVersions.containsKey(box.getVersion())) {
+                        nameVersions.put(box.getVersion(), box);
+                     }
+                     boxes.add(box);
+                  }
+               }
+            }
+            if (!nameVersions.isEmpty()) {
+               byName.put(name, ImmutableMap.copyOf(nameVersions));
+            }
+         }
+      }
+      return new Index(boxes.build(), ImmutableMap.copyOf(byName));
+   }
+
+   private WatchService newWatchService() {
+      try {
+         return FileSystems.getDefault().newWatchService();
+      } catch (IOException e) {
+         logger.debug("Can't watch the boxes folder for changes, relying on TTL only", e);
+         return null;
+      } catch (UnsupportedOperationException e) {
+         logger.debug("Can't watch the boxes folder for changes, relying on TTL only", e);
+         return null;
+      }
+   }
+
+   private void watch(File folder) {
+      if (watcher == null || !folder.isDirectory()) return;
+      try {
+         folder.toPath().register(watcher, ENTRY_CREATE, ENTRY_DELETE, OVERFLOW);
+      } catch (IOException e) {
+         logger.debug("Failed watching " + folder.getAbsolutePath() + ", relying on TTL only", e);
+      }
+   }
+
+   private final class Index {
+      private final Collection<Box> boxes;
+      private final Map<String, Map<String, Box>> byName;
+      private final long expiresAt;
+      private volatile boolean stale;
+
+      Index(Collection<Box> boxes, Map<String, Map<String, Box>> byName) {
+         this.boxes = boxes;
+         this.byName = byName;
+         this.expiresAt = System.nanoTime() + ttlNanos;
+      }
+
+      boolean isStale() {
+         if (stale || System.nanoTime() - expiresAt >= 0) {
+            return true;
+         }
+         WatchKey key = watcher == null ? null : watcher.poll();
+         if (key != null) {
+            // Signalled keys are dropped, the folders get registered again when the index is rebuilt
+            key.cancel();
+            stale = true;
+         }
+         return stale;
+      }
+   }
+
+}
@@ -45,7 +45,7 @@ public class BoxConfig {
          return new BoxConfig(vagrantHome, box.getName(), box.getVersion(), box.getProvider());
       }
 
-      private File getVagrantHome() {
+      File getVagrantHome() {
          Optional<String> home = Optional.fromNullable(System.getenv(VagrantConstants.ENV_VAGRANT_HOME));
          return new File(home.or(VagrantConstants.ENV_VAGRANT_HOME_DEFAULT));
       }
@@ -16,6 +16,7 @@
  */
 package org.jclouds.vagrant.internal;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
@@ -24,10 +25,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.io.Reader;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Properties;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
 
 import org.jclouds.JcloudsVersion;
 import org.jclouds.util.Closeables2;
@@ -35,9 +36,15 @@ import org.jclouds.vagrant.domain.VagrantNode;
 import org.jclouds.vagrant.reference.VagrantConstants;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Striped;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 
 public class MachineConfig {
    public static class Factory {
@@ -50,6 +57,21 @@ public class MachineConfig {
       }
    }
 
+   private static final Pattern PLAIN_VALUE = Pattern.compile("[A-Za-z0-9_./@][A-Za-z0-9_./@+-]*");
+   private static final Pattern YAML_KEYWORD = Pattern.compile("(?i)y|n|yes|no|true|false|on|off|null");
+   private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+   private static final Striped<Lock> LOCKS = Striped.lock(16);
+   private static final Function<Object, String> ENCODER = new Function<Object, String>() {
+      @Override
+      public String apply(Object input) {
+         String value = String.valueOf(input);
+         if (PLAIN_VALUE.matcher(value).matches() && !YAML_KEYWORD.matcher(value).matches()) {
+            return value;
+         }
+         return GSON.toJson(value);
+      }
+   };
+
    private File configPath;
 
    protected MachineConfig(File group, String machineName) {
@@ -59,31 +81,61 @@ public class MachineConfig {
 
    public Map<String, Object> load() {
       Map<String, Object> config = new LinkedHashMap<String, Object>();
-      Properties yaml = new Properties();
       FileInputStream fileIn;
       try {
          fileIn = new FileInputStream(configPath);
       } catch (FileNotFoundException e) {
          throw new IllegalStateException("Machine config not found: " + configPath.getAbsolutePath(), e);
       }
-      Reader in = new InputStreamReader(fileIn, Charsets.UTF_8);
+      BufferedReader in = new BufferedReader(new InputStreamReader(fileIn, Charsets.UTF_8));
       try {
-         // Poor man's YAML parser. It's controlled content, generated by us - not coming from a user so it's fine. 
-         yaml.load(in);
+         // Poor man's YAML parser. It's controlled content, generated by us - not coming from a user so it's fine.
+         // Reads back the flat "key: value" maps written by save().
+         String line;
+         while ((line = in.readLine()) != null) {
+            String trimmed = line.trim();
+            int separator = trimmed.indexOf(':');
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || separator == -1) {
+               continue;
+            }
+            String key = trimmed.substring(0, separator).trim();
+            config.put(key, decode(trimmed.substring(separator + 1).trim()));
+         }
       } catch (IOException e) {
          throw new IllegalStateException("Failed loading machine config " + configPath.getAbsolutePath(), e);
+      } catch (JsonParseException e) {
+         throw new IllegalStateException("Failed loading machine config " + configPath.getAbsolutePath(), e);
       } finally {
          Closeables2.closeQuietly(in);
       }
-      for (String key : yaml.stringPropertyNames()) {
-         config.put(key, yaml.getProperty(key));
-      }
       return config;
    }
 
+   /**
+    * Applies the changes to the saved config, keys mapped to null are removed. Concurrent updates
+    * of the same machine are serialized so none of them is lost.
+    */
+   public void update(Map<String, ?> changes) {
+      Lock lock = LOCKS.get(configPath.getAbsolutePath());
+      lock.lock();
+      try {
+         Map<String, Object> config = configPath.exists() ? load() : new LinkedHashMap<String, Object>();
+         for (Map.Entry<String, ?> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+               config.remove(change.getKey());
+            } else {
+               config.put(change.getKey(), change.getValue());
+            }
+         }
+         save(config);
+      } finally {
+         lock.unlock();
+      }
+   }
+
    // Write the config ad-hoc, imitating yaml which can be read by ruby
-   // Could pull in snakeyaml to be more resilient to edge-cases in values
-   // Alternatively use JSON if jclouds already depends on it in core
+   // Values which YAML could misinterpret are written as double quoted strings, using the JSON
+   // escapes, which are a subset of the YAML ones.
    public void save(Map<String, Object> config) {
       File parent = configPath.getParentFile();
       if (!parent.exists() && !parent.mkdirs()) {
@@ -95,7 +147,8 @@ public class MachineConfig {
       Map<String, Object> configWithoutVersion = Maps.filterKeys(config,
             Predicates.not(Predicates.equalTo(VagrantConstants.CONFIG_JCLOUDS_VERSION)));
       String version = VagrantConstants.CONFIG_JCLOUDS_VERSION + ": " + JcloudsVersion.get().toString() + "\n";
-      String output = version + Joiner.on("\n").withKeyValueSeparator(": ").join(configWithoutVersion);
+      String output = version + Joiner.on("\n").withKeyValueSeparator(": ")
+            .join(Maps.transformValues(configWithoutVersion, ENCODER));
 
       FileOutputStream fileOut = null;
       BufferedWriter out = null;
@@ -114,4 +167,11 @@ public class MachineConfig {
          }
       }
    }
+
+   private static String decode(String value) {
+      if (value.startsWith("\"")) {
+         return new JsonParser().parse(value).getAsString();
+      }
+      return value;
+   }
 }
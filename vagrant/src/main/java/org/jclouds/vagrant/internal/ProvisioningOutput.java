@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+/**
+ * Extracts the networks and hostname printed by the provisioning scripts of the Vagrantfile
+ * on the first "vagrant up" of a machine.
+ */
+public class ProvisioningOutput {
+   private static final Pattern PATTERN_IP_ADDR = Pattern.compile("inet ([0-9\\.]+)/(\\d+)");
+   private static final Pattern PATTERN_IPCONFIG = Pattern.compile("IPv4 Address[ .]+: ([0-9\\.]+)");
+
+   private final String output;
+   private final OsFamily osFamily;
+
+   public ProvisioningOutput(String machineName, String rawOutput, OsFamily osFamily) {
+      this.output = normalizeOutput(machineName, rawOutput);
+      this.osFamily = osFamily;
+   }
+
+   public Collection<String> getNetworks() {
+      String networks = getDelimitedString(
+            VagrantConstants.DELIMITER_NETWORKS_START,
+            VagrantConstants.DELIMITER_NETWORKS_END);
+      Matcher m = getOsInterfacePattern().matcher(networks);
+      Collection<String> ips = new ArrayList<String>();
+      while (m.find()) {
+         String network = m.group(1);
+         ips.add(network);
+      }
+      return ips;
+   }
+
+   public String getHostname() {
+      return getDelimitedString(
+            VagrantConstants.DELIMITER_HOSTNAME_START,
+            VagrantConstants.DELIMITER_HOSTNAME_END);
+   }
+
+   private static String normalizeOutput(String name, String output) {
+      return output
+            .replaceAll("(?m)^([^,]*,){4}", "")
+            .replace("==> " + name + ": ", "")
+            // Vagrant shows some of the \n verbatim in provisioning command results.
+            .replace("\\n", "\n");
+   }
+
+   private Pattern getOsInterfacePattern() {
+      if (osFamily == OsFamily.WINDOWS) {
+         return PATTERN_IPCONFIG;
+      } else {
+         return PATTERN_IP_ADDR;
+      }
+   }
+
+   private String getDelimitedString(String delimStart, String delimEnd) {
+      int startPos = output.indexOf(delimStart);
+      int endPos = output.indexOf(delimEnd);
+      if (startPos == -1) {
+         throw new IllegalStateException("Delimiter " + delimStart + " not found in output \n" + output);
+      }
+      if (endPos == -1) {
+         throw new IllegalStateException("Delimiter " + delimEnd + " not found in output \n" + output);
+      }
+      return output.substring(startPos + delimStart.length(), endPos).trim();
+   }
+
+}
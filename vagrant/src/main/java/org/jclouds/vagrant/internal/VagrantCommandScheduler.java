@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Schedules the vagrant commands of all providers. The vagrant bindings serialize the execs of
+ * vagrant in the process, VirtualBox (vboxmanage) failing indeterministically when executed in
+ * parallel, so commands run one at a time. Queueing them here instead of on the lock of the
+ * bindings decides which one runs next.
+ * <p>
+ * Cheap commands which only read the machine state are run before any waiting command that
+ * changes it, so they don't queue behind a series of multi-minute "vagrant up" calls. Background
+ * work nobody is waiting for runs last. Commands of the same kind run in the order they were
+ * submitted.
+ */
+@Singleton
+public class VagrantCommandScheduler {
+
+   public enum CommandType {
+      /** Reads the machine state, completes in seconds */
+      READ,
+      /** Changes the machine state, could take minutes */
+      CHANGE,
+      /** Changes the machine state with no caller waiting for it, like filling the machine pool */
+      BACKGROUND
+   }
+
+   @AutoValue
+   public abstract static class ProviderStats {
+      /** Commands waiting to be executed */
+      public abstract int queueDepth();
+      /** Commands being executed */
+      public abstract int running();
+      /** Commands which completed waiting in the queue */
+      public abstract long started();
+      public abstract long totalWaitMillis();
+      public abstract long maxWaitMillis();
+
+      static ProviderStats create(int queueDepth, int running, long started, long totalWaitMillis,
+            long maxWaitMillis) {
+         return new AutoValue_VagrantCommandScheduler_ProviderStats(queueDepth, running, started,
+               totalWaitMillis, maxWaitMillis);
+      }
+   }
+
+   private final PriorityQueue<Ticket> waiting = new PriorityQueue<Ticket>();
+   private final Map<String, ProviderCounters> counters = Maps.newHashMap();
+   private long sequence;
+   private Ticket running;
+
+   @Inject
+   VagrantCommandScheduler() {
+   }
+
+   /**
+    * Executes the command once no other command is running, blocking until the command completes.
+    */
+   public <T> T execute(String provider, CommandType type, Callable<T> command) {
+      try {
+         acquire(provider, type);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      }
+      try {
+         return command.call();
+      } catch (Exception e) {
+         throw Throwables.propagate(e);
+      } finally {
+         release();
+      }
+   }
+
+   /**
+    * Returns a facade executing the commands of the given machine provider through the scheduler.
+    */
+   public VagrantApiFacade schedule(VagrantApiFacade vagrant, String provider) {
+      return new ScheduledVagrantApiFacade(vagrant, provider);
+   }
+
+   public synchronized Map<String, ProviderStats> getStats() {
+      ImmutableMap.Builder<String, ProviderStats> stats = ImmutableMap.builder();
+      for (Map.Entry<String, ProviderCounters> entry : counters.entrySet()) {
+         String provider = entry.getKey();
+         int queueDepth = 0;
+         for (Ticket ticket : waiting) {
+            if (ticket.provider.equals(provider)) {
+               queueDepth++;
+            }
+         }
+         int runningCount = running != null && running.provider.equals(provider) ? 1 : 0;
+         stats.put(provider, entry.getValue().stats(queueDepth, runningCount));
+      }
+      return stats.build();
+   }
+
+   private synchronized void acquire(String provider, CommandType type) throws InterruptedException {
+      long start = System.nanoTime();
+      ProviderCounters providerCounters = counters.get(provider);
+      if (providerCounters == null) {
+         providerCounters = new ProviderCounters();
+         counters.put(provider, providerCounters);
+      }
+      Ticket ticket = new Ticket(provider, type, sequence++);
+      waiting.add(ticket);
+      try {
+         while (running != null || waiting.peek() != ticket) {
+            wait();
+         }
+      } catch (InterruptedException e) {
+         waiting.remove(ticket);
+         notifyAll();
+         throw e;
+      }
+      waiting.poll();
+      running = ticket;
+      providerCounters.started(System.nanoTime() - start);
+   }
+
+   private synchronized void release() {
+      running = null;
+      notifyAll();
+   }
+
+   private static final class Ticket implements Comparable<Ticket> {
+      private final String provider;
+      private final CommandType type;
+      private final long sequence;
+
+      Ticket(String provider, CommandType type, long sequence) {
+         this.provider = provider;
+         this.type = type;
+         this.sequence = sequence;
+      }
+
+      @Override
+      public int compareTo(Ticket o) {
+         int typeCompare = type.compareTo(o.type);
+         if (typeCompare != 0) return typeCompare;
+         return sequence < o.sequence ? -1 : sequence == o.sequence ? 0 : 1;
+      }
+   }
+
+   /** Guarded by the scheduler */
+   private static final class ProviderCounters {
+      private long started;
+      private long totalWaitNanos;
+      private long maxWaitNanos;
+
+      void started(long waitedNanos) {
+         started++;
+         totalWaitNanos += waitedNanos;
+         maxWaitNanos = Math.max(maxWaitNanos, waitedNanos);
+      }
+
+      ProviderStats stats(int queueDepth, int running) {
+         return ProviderStats.create(queueDepth, running, started,
+               TimeUnit.NANOSECONDS.toMillis(totalWaitNanos), TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+      }
+   }
+
+   private final class ScheduledVagrantApiFacade implements VagrantApiFacade {
+      private final VagrantApiFacade delegate;
+      private final String provider;
+
+      ScheduledVagrantApiFacade(VagrantApiFacade delegate, String provider) {
+         this.delegate = delegate;
+         this.provider = provider;
+      }
+
+      @Override
+      public String up(final String machineName, final String provider) {
+         return execute(this.provider, CommandType.CHANGE, new Callable<String>() {
+            @Override
+            public String call() {
+               return delegate.up(machineName, provider);
+            }
+         });
+      }
+
+      @Override
+      public void halt(final String machineName) {
+         execute(provider, CommandType.CHANGE, new Callable<Void>() {
+            @Override
+            public Void call() {
+               delegate.halt(machineName);
+               return null;
+            }
+         });
+      }
+
+      @Override
+      public void destroy(final String machineName) {
+         execute(provider, CommandType.CHANGE, new Callable<Void>() {
+            @Override
+            public Void call() {
+               delegate.destroy(machineName);
+               return null;
+            }
+         });
+      }
+
+      @Override
+      public LoginCredentials sshConfig(final String machineName) {
+         return execute(provider, CommandType.READ, new Callable<LoginCredentials>() {
+            @Override
+            public LoginCredentials call() {
+               return delegate.sshConfig(machineName);
+            }
+         });
+      }
+
+      @Override
+      public void haltForced(final String name) {
+         execute(provider, CommandType.CHANGE, new Callable<Void>() {
+            @Override
+            public Void call() {
+               delegate.haltForced(name);
+               return null;
+            }
+         });
+      }
+
+      @Override
+      public boolean exists() {
+         return execute(provider, CommandType.READ, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+               return delegate.exists();
+            }
+         });
+      }
+   }
+
+}
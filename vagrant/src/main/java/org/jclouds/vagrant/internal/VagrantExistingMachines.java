@@ -48,16 +48,19 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
    private final MachineConfig.Factory machineConfigFactory;
    private final Supplier<Collection<Image>> imageLister;
    private final Supplier<? extends Map<String, Hardware>> hardwareSupplier;
+   private final VagrantNodeStore nodeStore;
 
    @Inject
    VagrantExistingMachines(@Named(VagrantConstants.JCLOUDS_VAGRANT_HOME) String home,
          MachineConfig.Factory machineConfigFactory,
          Supplier<Collection<Image>> imageLister,
-         Supplier<? extends Map<String, Hardware>> hardwareSupplier) {
+         Supplier<? extends Map<String, Hardware>> hardwareSupplier,
+         VagrantNodeStore nodeStore) {
       this.home = new File(home);
       this.machineConfigFactory = machineConfigFactory;
       this.imageLister = imageLister;
       this.hardwareSupplier = hardwareSupplier;
+      this.nodeStore = nodeStore;
    }
 
    @Override
@@ -67,6 +70,8 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
       Map<String, Image> images = getImages();
       Collection<VagrantNode> nodes = Lists.newArrayList();
       for (File group : groups) {
+         // Pooled machines are not nodes until claimed
+         if (group.getName().equals(VagrantConstants.MACHINES_POOL_FOLDER)) continue;
          File[] machines = new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).listFiles();
          if (machines == null) continue;
          for (File machine : machines) {
@@ -96,9 +101,9 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
       return imageMap;
    }
 
-   // Build minimum viable VagrantNode. Just enough to allow users to halt the machine.
-   // If this is found to be inadequate need to keep the missing information in the config
-   // file as we can't always fetch it at this point (machine is halted or Windows).
+   // Build the VagrantNode from the config file. Machines saved before the node state was kept
+   // in the config get the minimum viable VagrantNode, just enough to allow users to halt the machine,
+   // as we can't always fetch the missing information at this point (machine is halted or Windows).
    private VagrantNode createMachine(File group, File machine, Map<String, Image> images) {
       String machineName = machine.getName().replace(VagrantConstants.MACHINES_CONFIG_EXTENSION, "");
       String id = group.getName() + "/" + machineName;
@@ -116,7 +121,7 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
       // or halted it could be using an older image or switch to the latest on UP correspondingly.
       // Ubuntu for example will change passwords between image versions so we might need to fix
       // the image version used in future, so it doesn't change and we know which one is used.
-      VagrantNode node = VagrantNode.builder()
+      VagrantNode.Builder builder = VagrantNode.builder()
             .setPath(group)
             .setId(id)
             .setGroup(group.getName())
@@ -124,10 +129,11 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
             .setImage(image)
             .setHardware(hardware)
             .setNetworks(ImmutableList.<String>of())
-            .setHostname("unknown")
-            .build();
+            .setHostname("unknown");
+      Status status = nodeStore.restore(builder, config);
+      VagrantNode node = builder.build();
       // Don't bother asking Vagrant for the status as it could take quite a while for all the running machines
-      node.setMachineState(Status.UNRECOGNIZED);
+      node.setMachineState(status);
       return node;
    }
 
@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.compute.ComputeServiceAdapter.NodeAndInitialCredentials;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.logging.Logger;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.internal.VagrantCommandScheduler.CommandType;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Keeps a number of booted machines for each box and hardware combination requested so far, so
+ * creating a node doesn't have to wait for the OS to boot. Disabled unless
+ * {@link VagrantConstants#JCLOUDS_VAGRANT_POOL_SIZE} is positive.
+ * <p>
+ * Pooled machines live in their own Vagrant folder, skipped when listing existing nodes.
+ * Claiming a machine moves its config and Vagrant state under the requested group and name.
+ * Once the requested node is created, {@link #refill} starts replacements in the background, one
+ * at a time per pool and after any other waiting vagrant command. Pooled machines survive
+ * restarts; they are found again from their config files, which also store the networks and
+ * hostname collected when they were started. The first request for a combination doesn't find a
+ * machine and starts filling its pool.
+ */
+@Singleton
+public class VagrantMachinePool {
+   private static final String MACHINE_PREFIX = "pool-";
+   private static final String INDEX_UUID = "index_uuid";
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final File poolPath;
+   private final int size;
+   private final MachineConfig.Factory machineConfigFactory;
+   private final VagrantApiFacade.Factory cliFactory;
+   private final VagrantCommandScheduler scheduler;
+   private final ListeningExecutorService userExecutor;
+   private final Supplier<ConcurrentMap<String, Pool>> pools;
+
+   @Inject
+   VagrantMachinePool(@Named(VagrantConstants.JCLOUDS_VAGRANT_HOME) String home,
+         @Named(VagrantConstants.JCLOUDS_VAGRANT_POOL_SIZE) int size,
+         MachineConfig.Factory machineConfigFactory,
+         VagrantApiFacade.Factory cliFactory,
+         VagrantCommandScheduler scheduler,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      this.poolPath = new File(home, VagrantConstants.MACHINES_POOL_FOLDER);
+      this.size = size;
+      this.machineConfigFactory = machineConfigFactory;
+      this.cliFactory = cliFactory;
+      this.scheduler = scheduler;
+      this.userExecutor = userExecutor;
+      this.pools = Suppliers.memoize(new Supplier<ConcurrentMap<String, Pool>>() {
+         @Override
+         public ConcurrentMap<String, Pool> get() {
+            return loadPools();
+         }
+      });
+   }
+
+   /**
+    * Takes a booted machine matching the template image and machine config out of the pool and moves it
+    * under the given group and name. Returns absent if the pool is disabled or empty. Doesn't start a
+    * replacement, see {@link #refill}.
+    */
+   public Optional<NodeAndInitialCredentials<VagrantNode>> claim(File path, String group, String name,
+         Template template, Map<String, Object> config) {
+      if (size <= 0) {
+         return Optional.absent();
+      }
+      Image image = template.getImage();
+      String provider = image.getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
+      Pool pool = pool(provider, image.getOperatingSystem().getFamily(), config);
+      PooledMachine machine;
+      synchronized (pool) {
+         machine = pool.idle.poll();
+      }
+      if (machine == null) {
+         return Optional.absent();
+      }
+
+      logger.debug("Claiming pooled machine %s as %s/%s", machine.name, group, name);
+      try {
+         move(machine, provider, path, name, config);
+      } catch (RuntimeException e) {
+         logger.warn(e, "Failed claiming pooled machine " + machine.name + ", will create a new one instead");
+         destroy(machine.name, provider);
+         return Optional.absent();
+      }
+
+      VagrantNode node = VagrantNode.builder()
+            .setPath(path)
+            .setId(group + "/" + name)
+            .setGroup(group)
+            .setName(name)
+            .setImage(image)
+            .setHardware(template.getHardware())
+            .setNetworks(machine.networks)
+            .setHostname(machine.hostname)
+            .setTags(ImmutableSet.copyOf(template.getOptions().getTags()))
+            .setUserMetadata(ImmutableMap.copyOf(template.getOptions().getUserMetadata()))
+            .build();
+      node.setMachineState(Status.RUNNING);
+
+      LoginCredentials loginCredentials = null;
+      if (image.getOperatingSystem().getFamily() != OsFamily.WINDOWS) {
+         loginCredentials = scheduler.schedule(cliFactory.create(path), provider).sshConfig(name);
+      }
+      return Optional.of(new NodeAndInitialCredentials<VagrantNode>(node, node.id(), loginCredentials));
+   }
+
+   /**
+    * Starts booting machines matching the template image and machine config in the background until
+    * their pool is full. Called once the node requested by the caller is created, so the boots don't
+    * queue ahead of it.
+    */
+   public void refill(Template template, Map<String, Object> config) {
+      if (size <= 0) {
+         return;
+      }
+      Image image = template.getImage();
+      String provider = image.getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
+      refill(pool(provider, image.getOperatingSystem().getFamily(), config));
+   }
+
+   private Pool pool(String provider, OsFamily osFamily, Map<String, Object> config) {
+      String key = key(provider, config);
+      ConcurrentMap<String, Pool> pools = this.pools.get();
+      Pool pool = pools.get(key);
+      if (pool == null) {
+         Pool newPool = new Pool(provider, osFamily, config);
+         pool = pools.putIfAbsent(key, newPool);
+         if (pool == null) {
+            pool = newPool;
+         }
+      }
+      return pool;
+   }
+
+   private static String key(String provider, Map<String, ?> config) {
+      return Joiner.on('|').useForNull("").join(provider,
+            config.get(VagrantConstants.CONFIG_BOX),
+            config.get(VagrantConstants.CONFIG_HARDWARE_ID),
+            config.get(VagrantConstants.CONFIG_MEMORY),
+            config.get(VagrantConstants.CONFIG_CPUS));
+   }
+
+   private void refill(final Pool pool) {
+      synchronized (pool) {
+         if (pool.refilling || pool.idle.size() >= size) {
+            return;
+         }
+         pool.refilling = true;
+      }
+      // A single task per pool, holding at most one executor thread while its boots wait for their turn
+      userExecutor.submit(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               while (true) {
+                  synchronized (pool) {
+                     if (pool.idle.size() >= size) {
+                        return;
+                     }
+                  }
+                  PooledMachine machine = start(pool);
+                  synchronized (pool) {
+                     pool.idle.add(machine);
+                  }
+               }
+            } catch (RuntimeException e) {
+               logger.warn(e, "Failed starting a machine for the pool");
+            } finally {
+               synchronized (pool) {
+                  pool.refilling = false;
+               }
+            }
+         }
+      });
+   }
+
+   private PooledMachine start(Pool pool) {
+      final String name = MACHINE_PREFIX + UUID.randomUUID().toString().substring(0, 8);
+      try {
+         VagrantUtils.writeVagrantfile(poolPath);
+      } catch (IOException e) {
+         throw new IllegalStateException("Unable to initialize Vagrant configuration at " + poolPath, e);
+      }
+      MachineConfig machineConfig = machineConfigFactory.newInstance(poolPath, name);
+      machineConfig.save(pool.config);
+
+      logger.debug("Starting pooled machine %s", name);
+      final String provider = pool.provider;
+      String rawOutput;
+      try {
+         rawOutput = scheduler.execute(provider, CommandType.BACKGROUND, new Callable<String>() {
+            @Override
+            public String call() {
+               return cliFactory.create(poolPath).up(name, provider);
+            }
+         });
+      } catch (RuntimeException e) {
+         destroy(name, pool.provider);
+         throw e;
+      }
+      ProvisioningOutput output = new ProvisioningOutput(name, rawOutput, pool.osFamily);
+      PooledMachine machine = new PooledMachine(name, output.getNetworks(), output.getHostname());
+
+      Map<String, Object> config = Maps.newLinkedHashMap(pool.config);
+      config.put(VagrantConstants.CONFIG_PROVIDER, pool.provider);
+      config.put(VagrantConstants.CONFIG_NETWORKS, VagrantNodeStore.encodeNetworks(machine.networks));
+      config.put(VagrantConstants.CONFIG_HOSTNAME, machine.hostname);
+      machineConfig.save(config);
+      return machine;
+   }
+
+   private void move(PooledMachine machine, String provider, File path, String name, Map<String, Object> config) {
+      try {
+         VagrantUtils.writeVagrantfile(path);
+      } catch (IOException e) {
+         throw new IllegalStateException("Unable to initialize Vagrant configuration at " + path, e);
+      }
+      File source = new File(poolPath, VagrantConstants.VAGRANT_MACHINES_STATE_SUBFOLDER + "/" + machine.name);
+      File target = new File(path, VagrantConstants.VAGRANT_MACHINES_STATE_SUBFOLDER + "/" + name);
+      File targetParent = target.getParentFile();
+      if (!targetParent.isDirectory() && !targetParent.mkdirs()) {
+         throw new IllegalStateException("Failure creating folder " + targetParent.getAbsolutePath());
+      }
+      if (!source.renameTo(target)) {
+         throw new IllegalStateException("Failed moving " + source.getAbsolutePath() +
+               " to " + target.getAbsolutePath());
+      }
+      // Points to the global machine index entry of the old location, Vagrant creates a new one when missing
+      new File(new File(target, provider), INDEX_UUID).delete();
+
+      machineConfigFactory.newInstance(path, name).save(config);
+      VagrantUtils.deleteFiles(new File(poolPath, VagrantConstants.MACHINES_CONFIG_SUBFOLDER), machine.name + ".");
+   }
+
+   private void destroy(String name, String provider) {
+      try {
+         scheduler.schedule(cliFactory.create(poolPath), provider).destroy(name);
+         VagrantUtils.deleteFiles(new File(poolPath, VagrantConstants.MACHINES_CONFIG_SUBFOLDER), name + ".");
+      } catch (RuntimeException e) {
+         logger.warn(e, "Failed destroying pooled machine " + name);
+      }
+   }
+
+   private ConcurrentMap<String, Pool> loadPools() {
+      ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<String, Pool>();
+      File[] machines = new File(poolPath, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).listFiles();
+      if (machines == null) return pools;
+      for (File machine : machines) {
+         if (!machine.getName().endsWith(VagrantConstants.MACHINES_CONFIG_EXTENSION)) continue;
+         final String name = machine.getName().replace(VagrantConstants.MACHINES_CONFIG_EXTENSION, "");
+         Map<String, Object> config = machineConfigFactory.newInstance(poolPath, name).load();
+         final String provider = (String) config.remove(VagrantConstants.CONFIG_PROVIDER);
+         String networks = (String) config.remove(VagrantConstants.CONFIG_NETWORKS);
+         String hostname = (String) config.remove(VagrantConstants.CONFIG_HOSTNAME);
+         config.remove(VagrantConstants.CONFIG_JCLOUDS_VERSION);
+         if (provider == null) {
+            // Never got started, nothing to destroy
+            VagrantUtils.deleteFiles(machine.getParentFile(), name + ".");
+            continue;
+         }
+         if (networks == null || hostname == null) {
+            // Interrupted while starting
+            userExecutor.submit(new Runnable() {
+               @Override
+               public void run() {
+                  destroy(name, provider);
+               }
+            });
+            continue;
+         }
+         String family = (String) config.get(VagrantConstants.CONFIG_OS_FAMILY);
+         OsFamily osFamily = family == null ? OsFamily.UNRECOGNIZED : OsFamily.fromValue(family);
+         String key = key(provider, config);
+         Pool pool = pools.get(key);
+         if (pool == null) {
+            pool = new Pool(provider, osFamily, config);
+            pools.put(key, pool);
+         }
+         pool.idle.add(new PooledMachine(name, VagrantNodeStore.decodeNetworks(networks), hostname));
+      }
+      return pools;
+   }
+
+   private static final class Pool {
+      private final String provider;
+      private final OsFamily osFamily;
+      private final Map<String, Object> config;
+      private final Deque<PooledMachine> idle = new ArrayDeque<PooledMachine>();
+      private boolean refilling;
+
+      Pool(String provider, OsFamily osFamily, Map<String, Object> config) {
+         this.provider = provider;
+         this.osFamily = osFamily;
+         this.config = ImmutableMap.copyOf(config);
+      }
+   }
+
+   private static final class PooledMachine {
+      private final String name;
+      private final Collection<String> networks;
+      private final String hostname;
+
+      PooledMachine(String name, Collection<String> networks, String hostname) {
+         this.name = name;
+         this.networks = ImmutableList.copyOf(networks);
+         this.hostname = hostname;
+      }
+   }
+
+}
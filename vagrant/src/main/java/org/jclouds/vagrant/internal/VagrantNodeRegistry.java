@@ -19,7 +19,10 @@ package org.jclouds.vagrant.internal;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
+import org.jclouds.compute.domain.NodeMetadata.Status;
 import org.jclouds.vagrant.domain.VagrantNode;
 
 import com.google.common.base.Supplier;
@@ -45,7 +48,10 @@ import com.google.inject.Singleton;
  * provisioning scripts. Can't call "vagrant powershell " later. This makes the information
  * available only when creating the machine.
  * <p>
- * Possible solutions:
+ * They are saved in the machine config file by {@link VagrantNodeStore}, along with the status,
+ * tags and metadata, and read back by {@link VagrantExistingMachines} after a restart.
+ * <p>
+ * Possible solutions considered:
  * <ul>
  *  <li>
  *     Store those in the yaml file that's already being created, containing the machine specs
@@ -63,7 +69,6 @@ import com.google.inject.Singleton;
  *     could be enough.
  *     Possibly a combination of the above would work best, depending on the OS. Perhaps coupled
  *     with a refreshing mechanism.
- *     The file could store other information like the tags and the metadata.
  *   </li>
  * </ul>
  * <p>
@@ -76,7 +81,8 @@ import com.google.inject.Singleton;
  * is expected. There could be parallel processes running but still each one would
  * manage its own machines. That's even strongly discouraged that since virtualbox (vboxmanage) has
  * problems when it's executed in parallel. Currently the vagrant bindings explicitly serialise
- * execs of vagrant.
+ * execs of vagrant. {@link VagrantCommandScheduler} queues the commands ahead of that lock to
+ * decide which one runs next.
  * <p>
  * 3. Machine status can reliably be inferred. The key here is that the vagrant commands are
  * synchronous. If "vagrant up" completes successfully then the status is RUNNING. If it fails
@@ -118,10 +124,14 @@ public class VagrantNodeRegistry {
    }
 
    private final Supplier<Map<String, VagrantNode>> nodes;
+   private final VagrantNodeStore nodeStore;
+   // Number of credential updates in progress per node id, guarded by itself for writes and waits
+   private final ConcurrentMap<String, Integer> pendingCredentials = new ConcurrentHashMap<String, Integer>();
 
    @Inject
-   VagrantNodeRegistry(Supplier<Collection<VagrantNode>> existingMachines) {
+   VagrantNodeRegistry(Supplier<Collection<VagrantNode>> existingMachines, VagrantNodeStore nodeStore) {
       this.nodes = Suppliers.memoize(new ConcurrentWrapperSupplier(existingMachines));
+      this.nodeStore = nodeStore;
    }
 
    public VagrantNode get(String id) {
@@ -129,15 +139,75 @@ public class VagrantNodeRegistry {
    }
 
    public void add(VagrantNode node) {
+      nodeStore.save(node);
       nodes().put(node.id(), node);
    }
 
+   /**
+    * Updates the machine state, saving it so it's known after a restart.
+    */
+   public void setMachineState(VagrantNode node, Status machineState) {
+      node.setMachineState(machineState);
+      nodeStore.saveStatus(node);
+   }
+
    public Collection<VagrantNode> list() {
       return nodes().values();
    }
 
    public void onTerminated(VagrantNode node) {
       nodes().remove(node.id());
+      synchronized (pendingCredentials) {
+         pendingCredentials.remove(node.id());
+         pendingCredentials.notifyAll();
+      }
+   }
+
+   /**
+    * Marks the credentials of the node as being updated. Call it when the update is scheduled,
+    * not when it starts running, and follow it by {@link #endCredentialsUpdate(String)} once the
+    * new credentials are saved.
+    */
+   public void beginCredentialsUpdate(String id) {
+      synchronized (pendingCredentials) {
+         Integer pending = pendingCredentials.get(id);
+         pendingCredentials.put(id, pending == null ? 1 : pending + 1);
+      }
+   }
+
+   public void endCredentialsUpdate(String id) {
+      synchronized (pendingCredentials) {
+         Integer pending = pendingCredentials.get(id);
+         if (pending == null || pending <= 1) {
+            pendingCredentials.remove(id);
+         } else {
+            pendingCredentials.put(id, pending - 1);
+         }
+         pendingCredentials.notifyAll();
+      }
+   }
+
+   /**
+    * Waits for the credential updates of the node in progress to complete. Returns immediately
+    * if there are none.
+    *
+    * @return false if the timeout elapsed before the updates completed
+    */
+   public boolean awaitCredentials(String id, long timeout, TimeUnit unit) throws InterruptedException {
+      if (!pendingCredentials.containsKey(id)) {
+         return true;
+      }
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      synchronized (pendingCredentials) {
+         while (pendingCredentials.containsKey(id)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+               return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(pendingCredentials, remaining);
+         }
+      }
+      return true;
    }
 
    private Map<String, VagrantNode> nodes() {
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Saves the node information which can't be retrieved from Vagrant cheaply - hostname, networks,
+ * status, tags and metadata - in the machine config, next to the settings used to create the
+ * machine. Lists and maps are stored as JSON, which {@link MachineConfig} writes quoted.
+ * <p>
+ * The saved status is the last one observed by this or a previous process, so it could be stale
+ * if the machine was changed outside of jclouds, for example halted by a host reboot.
+ */
+@Singleton
+public class VagrantNodeStore {
+   private static final Gson GSON = new Gson();
+   private static final Type NETWORKS_TYPE = new TypeToken<List<String>>() {}.getType();
+   private static final Type TAGS_TYPE = new TypeToken<Set<String>>() {}.getType();
+   private static final Type METADATA_TYPE = new TypeToken<Map<String, String>>() {}.getType();
+
+   private final MachineConfig.Factory machineConfigFactory;
+
+   @Inject
+   VagrantNodeStore(MachineConfig.Factory machineConfigFactory) {
+      this.machineConfigFactory = machineConfigFactory;
+   }
+
+   public void save(VagrantNode node) {
+      Map<String, Object> state = Maps.newLinkedHashMap();
+      state.put(VagrantConstants.CONFIG_HOSTNAME, node.hostname());
+      state.put(VagrantConstants.CONFIG_NETWORKS, encodeNetworks(node.networks()));
+      state.put(VagrantConstants.CONFIG_STATUS, node.machineState().name());
+      state.put(VagrantConstants.CONFIG_TAGS, GSON.toJson(node.tags(), TAGS_TYPE));
+      state.put(VagrantConstants.CONFIG_METADATA, GSON.toJson(node.userMetadata(), METADATA_TYPE));
+      machineConfigFactory.newInstance(node).update(state);
+   }
+
+   public void saveStatus(VagrantNode node) {
+      machineConfigFactory.newInstance(node).update(
+            ImmutableMap.of(VagrantConstants.CONFIG_STATUS, node.machineState().name()));
+   }
+
+   /**
+    * Fills the builder with the state found in the machine config, leaving the defaults for the
+    * missing keys.
+    *
+    * @return the saved status or {@link Status#UNRECOGNIZED} if there is none
+    */
+   public Status restore(VagrantNode.Builder builder, Map<String, ?> config) {
+      Object hostname = config.get(VagrantConstants.CONFIG_HOSTNAME);
+      if (hostname != null) {
+         builder.setHostname(hostname.toString());
+      }
+      Object networks = config.get(VagrantConstants.CONFIG_NETWORKS);
+      if (networks != null) {
+         builder.setNetworks(decodeNetworks(networks.toString()));
+      }
+      Object tags = config.get(VagrantConstants.CONFIG_TAGS);
+      if (tags != null) {
+         Set<String> decoded = GSON.fromJson(tags.toString(), TAGS_TYPE);
+         builder.setTags(ImmutableSet.copyOf(decoded));
+      }
+      Object metadata = config.get(VagrantConstants.CONFIG_METADATA);
+      if (metadata != null) {
+         Map<String, String> decoded = GSON.fromJson(metadata.toString(), METADATA_TYPE);
+         builder.setUserMetadata(ImmutableMap.copyOf(decoded));
+      }
+      Object status = config.get(VagrantConstants.CONFIG_STATUS);
+      if (status != null) {
+         try {
+            return Status.valueOf(status.toString());
+         } catch (IllegalArgumentException e) {
+            return Status.UNRECOGNIZED;
+         }
+      }
+      return Status.UNRECOGNIZED;
+   }
+
+   public static String encodeNetworks(Collection<String> networks) {
+      return GSON.toJson(networks, NETWORKS_TYPE);
+   }
+
+   public static List<String> decodeNetworks(String networks) {
+      try {
+         List<String> decoded = GSON.fromJson(networks, NETWORKS_TYPE);
+         return ImmutableList.copyOf(decoded);
+      } catch (JsonParseException e) {
+         throw new IllegalStateException("Invalid networks " + networks, e);
+      }
+   }
+
+}
@@ -23,6 +23,10 @@ public final class VagrantConstants {
 
    public static final String JCLOUDS_VAGRANT_HOME = "vagrant.home";
    public static final String JCLOUDS_VAGRANT_HOME_DEFAULT = new File(System.getProperty("user.home"), ".jclouds/vagrant").getAbsolutePath();
+   /** Seconds after which the installed boxes are listed again, even if no change was detected */
+   public static final String JCLOUDS_VAGRANT_BOX_CATALOG_TTL = "vagrant.box-catalog-ttl";
+   /** Number of booted machines to keep ready for each box and hardware combination, 0 disables the pool */
+   public static final String JCLOUDS_VAGRANT_POOL_SIZE = "vagrant.pool-size";
    public static final String VAGRANTFILE = "Vagrantfile";
    public static final String DEFAULT_USERNAME = "vagrant";
    public static final String DEFAULT_PASSWORD = "vagrant";
@@ -53,6 +57,8 @@ public final class VagrantConstants {
    public static final String MACHINES_CONFIG_SUBFOLDER = "machines";
    public static final String MACHINES_CONFIG_EXTENSION = ".yaml";
    public static final String MACHINES_AUTO_HARDWARE = "automatic";
+   public static final String MACHINES_POOL_FOLDER = ".pool";
+   public static final String VAGRANT_MACHINES_STATE_SUBFOLDER = ".vagrant/machines";
 
    // Config file keys
    public static final String CONFIG_JCLOUDS_VERSION = "jcloudsVersion";
@@ -63,4 +69,10 @@ public final class VagrantConstants {
    public static final String CONFIG_CPUS = "cpus";
    public static final String CONFIG_USERNAME = "username";
    public static final String CONFIG_PASSWORD = "password";
+   public static final String CONFIG_PROVIDER = "provider";
+   public static final String CONFIG_NETWORKS = "networks";
+   public static final String CONFIG_HOSTNAME = "hostname";
+   public static final String CONFIG_STATUS = "status";
+   public static final String CONFIG_TAGS = "tags";
+   public static final String CONFIG_METADATA = "metadata";
 }
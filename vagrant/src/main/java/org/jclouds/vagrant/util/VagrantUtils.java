@@ -24,6 +24,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.jclouds.util.Closeables2;
+import org.jclouds.vagrant.reference.VagrantConstants;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.ByteStreams;
@@ -40,6 +41,12 @@ public class VagrantUtils {
       }
    }
 
+   public static void writeVagrantfile(File path) throws IOException {
+      path.mkdirs();
+      write(new File(path, VagrantConstants.VAGRANTFILE),
+            VagrantUtils.class.getClassLoader().getResourceAsStream(VagrantConstants.VAGRANTFILE));
+   }
+
    public static void write(File file, String value) throws IOException {
       write(file, new ByteArrayInputStream(value.getBytes(Charsets.UTF_8)));
    }
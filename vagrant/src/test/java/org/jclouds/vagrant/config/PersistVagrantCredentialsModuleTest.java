@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.domain.Credentials;
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.vagrant.config.PersistVagrantCredentialsModule.RefreshCredentialsForNode;
+import org.jclouds.vagrant.internal.MachineConfig;
+import org.jclouds.vagrant.internal.VagrantNodeRegistry;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Maps;
+
+public class PersistVagrantCredentialsModuleTest {
+
+   @Test
+   public void testRefreshCredentialsForNodeCompletesScheduledUpdate() {
+      // The adapter began the update when it returned the node, the function only completes it
+      VagrantNodeRegistry registry = EasyMock.createMock(VagrantNodeRegistry.class);
+      registry.endCredentialsUpdate("vagrant/node");
+      EasyMock.replay(registry);
+      Map<String, Credentials> credentialStore = Maps.newHashMap();
+      RefreshCredentialsForNode refresh = new RefreshCredentialsForNode(registry, credentialStore, null,
+            new MachineConfig.Factory());
+      NodeMetadata node = new NodeMetadataBuilder().id("vagrant/node").status(Status.RUNNING).build();
+
+      assertEquals(refresh.apply(node), node);
+      assertTrue(credentialStore.isEmpty());
+      EasyMock.verify(registry);
+   }
+
+   @Test
+   public void testRefreshCredentialsForNodeCompletesFailedUpdate() {
+      VagrantNodeRegistry registry = EasyMock.createMock(VagrantNodeRegistry.class);
+      EasyMock.expect(registry.get("vagrant/node")).andReturn(null);
+      registry.endCredentialsUpdate("vagrant/node");
+      EasyMock.replay(registry);
+      RefreshCredentialsForNode refresh = new RefreshCredentialsForNode(registry,
+            Maps.<String, Credentials>newHashMap(), null, new MachineConfig.Factory());
+      NodeMetadata node = new NodeMetadataBuilder().id("vagrant/node").status(Status.RUNNING)
+            .credentials(LoginCredentials.builder().user("vagrant").password("vagrant").build()).build();
+
+      try {
+         refresh.apply(node);
+         fail("Node is not in the registry");
+      } catch (IllegalStateException e) {
+         // expected
+      }
+      EasyMock.verify(registry);
+   }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+import vagrant.api.domain.Box;
+
+public class BoxCatalogTest {
+   private File vagrantHome;
+
+   @BeforeMethod
+   public void setUp() {
+      vagrantHome = Files.createTempDir();
+   }
+
+   @AfterMethod
+   public void tearDown() {
+      VagrantUtils.deleteFolder(vagrantHome);
+   }
+
+   @Test
+   public void testListBoxes() throws IOException {
+      addBox("ubuntu/xenial64", "20170101.0.0", "virtualbox");
+      addBox("ubuntu/xenial64", "20170919.0.0", "virtualbox");
+      addBox("centos/7", "1607.01", "libvirt");
+      // Incomplete box, still being added
+      new File(vagrantHome, "boxes/debian-VAGRANTSLASH-jessie64/8.6.1/virtualbox").mkdirs();
+
+      BoxCatalog catalog = new BoxCatalog(vagrantHome, TimeUnit.HOURS.toNanos(1));
+      try {
+         assertEquals(ImmutableSet.copyOf(catalog.listBoxes()), ImmutableSet.of(
+               new Box("ubuntu/xenial64", "20170101.0.0", "virtualbox"),
+               new Box("ubuntu/xenial64", "20170919.0.0", "virtualbox"),
+               new Box("centos/7", "1607.01", "libvirt")));
+         assertEquals(catalog.getBox("ubuntu/xenial64"), new Box("ubuntu/xenial64", "20170919.0.0", "virtualbox"));
+         assertEquals(catalog.getBox("ubuntu/xenial64", "20170101.0.0"),
+               new Box("ubuntu/xenial64", "20170101.0.0", "virtualbox"));
+         assertNull(catalog.getBox("debian/jessie64"));
+         assertNull(catalog.getBox("centos/7", "1603.01"));
+      } finally {
+         catalog.close();
+      }
+   }
+
+   @Test
+   public void testInvalidate() throws IOException {
+      addBox("centos/7", "1603.01", "virtualbox");
+      BoxCatalog catalog = new BoxCatalog(vagrantHome, TimeUnit.HOURS.toNanos(1));
+      try {
+         assertEquals(catalog.getBox("centos/7").getVersion(), "1603.01");
+         addBox("centos/7", "1607.01", "virtualbox");
+         catalog.invalidate();
+         assertEquals(catalog.getBox("centos/7").getVersion(), "1607.01");
+      } finally {
+         catalog.close();
+      }
+   }
+
+   @Test
+   public void testExpires() throws IOException {
+      BoxCatalog catalog = new BoxCatalog(vagrantHome, 0);
+      try {
+         assertNull(catalog.getBox("centos/7"));
+         addBox("centos/7", "1607.01", "virtualbox");
+         assertEquals(catalog.getBox("centos/7"), new Box("centos/7", "1607.01", "virtualbox"));
+      } finally {
+         catalog.close();
+      }
+   }
+
+   private void addBox(String name, String version, String provider) throws IOException {
+      File boxFolder = new File(vagrantHome, "boxes/" + name.replace("/", "-VAGRANTSLASH-"));
+      File folder = new File(new File(boxFolder, version), provider);
+      folder.mkdirs();
+      Files.write("{\"provider\":\"" + provider + "\"}", new File(folder, "metadata.json"), Charsets.UTF_8);
+   }
+
+}
@@ -17,6 +17,8 @@
 package org.jclouds.vagrant.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -30,6 +32,7 @@ import org.testng.annotations.Test;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
 
@@ -89,6 +92,51 @@ public class MachineConfigTest {
       VagrantUtils.deleteFolder(machineFolder);
    }
 
+   @Test
+   public void testQuotesSpecialValues() throws IOException {
+      File machineFolder = Files.createTempDir();
+      MachineConfig machineConfig = getMachineConfig(getConifgFile(machineFolder));
+
+      Map<String, Object> config = ImmutableMap.<String, Object>builder()
+            .put("hostname", "vagrant-node")
+            .put("quoted", "say \"hi\"")
+            .put("multiline", "first\nsecond")
+            .put("colon", "key: value")
+            .put("keyword", "yes")
+            .put("empty", "")
+            .put("json", "[\"172.28.128.3\"]")
+            .build();
+      machineConfig.save(config);
+      String saved = Files.toString(getConifgFile(machineFolder), Charsets.UTF_8);
+      assertTrue(saved.contains("hostname: vagrant-node\n"), saved);
+      assertTrue(saved.contains("keyword: \"yes\"\n"), saved);
+
+      Map<String, Object> loaded = machineConfig.load();
+      loaded.remove(VagrantConstants.CONFIG_JCLOUDS_VERSION);
+      assertEquals(loaded, config);
+      VagrantUtils.deleteFolder(machineFolder);
+   }
+
+   @Test
+   public void testUpdate() throws IOException {
+      File machineFolder = Files.createTempDir();
+      MachineConfig machineConfig = getMachineConfig(getConifgFile(machineFolder));
+
+      machineConfig.save(CONFIG);
+      Map<String, Object> changes = Maps.newHashMap();
+      changes.put("memory", "1024");
+      changes.put("cpus", null);
+      changes.put("status", "RUNNING");
+      machineConfig.update(changes);
+
+      Map<String, Object> loaded = machineConfig.load();
+      assertEquals(loaded.get("memory"), "1024");
+      assertFalse(loaded.containsKey("cpus"));
+      assertEquals(loaded.get("status"), "RUNNING");
+      assertEquals(loaded.get("box"), "jclouds/vagrant");
+      VagrantUtils.deleteFolder(machineFolder);
+   }
+
    private MachineConfig getMachineConfig(File configFile) {
       String machineName = configFile.getName().replaceAll(VagrantConstants.MACHINES_CONFIG_EXTENSION, "");
       return new MachineConfig.Factory().newInstance(configFile.getParentFile().getParentFile(), machineName);
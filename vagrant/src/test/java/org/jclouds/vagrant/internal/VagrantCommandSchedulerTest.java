@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.vagrant.internal.VagrantCommandScheduler.CommandType;
+import org.jclouds.vagrant.internal.VagrantCommandScheduler.ProviderStats;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class VagrantCommandSchedulerTest {
+   private ExecutorService executor;
+   private VagrantCommandScheduler scheduler;
+
+   @BeforeMethod
+   public void setUp() {
+      executor = Executors.newCachedThreadPool();
+      scheduler = new VagrantCommandScheduler();
+   }
+
+   @AfterMethod
+   public void tearDown() {
+      executor.shutdownNow();
+   }
+
+   @Test
+   public void testSerializesCommands() throws Exception {
+      assertEquals(maxConcurrency(ImmutableList.of("virtualbox", "virtualbox", "libvirt", "docker")), 1);
+   }
+
+   @Test
+   public void testReadsRunFirst() throws Exception {
+      final CountDownLatch release = new CountDownLatch(1);
+      final List<String> order = Lists.newCopyOnWriteArrayList();
+      Future<?> blocking = submit("virtualbox", CommandType.CHANGE, new Callable<String>() {
+         @Override
+         public String call() throws Exception {
+            release.await();
+            return null;
+         }
+      });
+      awaitRunning("virtualbox", 1);
+
+      Future<?> change = submit("virtualbox", CommandType.CHANGE, recorder(order, "up"));
+      awaitQueueDepth("virtualbox", 1);
+      Future<?> read = submit("virtualbox", CommandType.READ, recorder(order, "ssh-config"));
+      awaitQueueDepth("virtualbox", 2);
+
+      release.countDown();
+      blocking.get(10, TimeUnit.SECONDS);
+      change.get(10, TimeUnit.SECONDS);
+      read.get(10, TimeUnit.SECONDS);
+
+      assertEquals(order, ImmutableList.of("ssh-config", "up"));
+      ProviderStats stats = scheduler.getStats().get("virtualbox");
+      assertEquals(stats.queueDepth(), 0);
+      assertEquals(stats.running(), 0);
+      assertEquals(stats.started(), 3);
+      assertTrue(stats.maxWaitMillis() <= stats.totalWaitMillis());
+   }
+
+   @Test
+   public void testBackgroundRunsLast() throws Exception {
+      final CountDownLatch release = new CountDownLatch(1);
+      final List<String> order = Lists.newCopyOnWriteArrayList();
+      Future<?> blocking = submit("virtualbox", CommandType.CHANGE, new Callable<String>() {
+         @Override
+         public String call() throws Exception {
+            release.await();
+            return null;
+         }
+      });
+      awaitRunning("virtualbox", 1);
+
+      Future<?> background = submit("virtualbox", CommandType.BACKGROUND, recorder(order, "pool up"));
+      awaitQueueDepth("virtualbox", 1);
+      Future<?> change = submit("virtualbox", CommandType.CHANGE, recorder(order, "up"));
+      awaitQueueDepth("virtualbox", 2);
+
+      release.countDown();
+      blocking.get(10, TimeUnit.SECONDS);
+      change.get(10, TimeUnit.SECONDS);
+      background.get(10, TimeUnit.SECONDS);
+
+      assertEquals(order, ImmutableList.of("up", "pool up"));
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testPropagatesFailures() {
+      scheduler.execute("virtualbox", CommandType.CHANGE, new Callable<Void>() {
+         @Override
+         public Void call() {
+            throw new IllegalStateException("vagrant up failed");
+         }
+      });
+   }
+
+   private int maxConcurrency(List<String> providers) throws Exception {
+      final AtomicInteger running = new AtomicInteger();
+      final AtomicInteger max = new AtomicInteger();
+      List<Future<?>> futures = Lists.newArrayList();
+      for (String provider : providers) {
+         futures.add(submit(provider, CommandType.CHANGE, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+               int current = running.incrementAndGet();
+               synchronized (max) {
+                  max.set(Math.max(max.get(), current));
+               }
+               Thread.sleep(100);
+               running.decrementAndGet();
+               return null;
+            }
+         }));
+      }
+      for (Future<?> future : futures) {
+         future.get(10, TimeUnit.SECONDS);
+      }
+      return max.get();
+   }
+
+   private Future<?> submit(final String provider, final CommandType type, final Callable<String> command) {
+      return executor.submit(new Callable<String>() {
+         @Override
+         public String call() {
+            return scheduler.execute(provider, type, command);
+         }
+      });
+   }
+
+   private static Callable<String> recorder(final List<String> order, final String command) {
+      return new Callable<String>() {
+         @Override
+         public String call() {
+            order.add(command);
+            return command;
+         }
+      };
+   }
+
+   private void awaitRunning(String provider, int running) throws InterruptedException {
+      while (scheduler.getStats().get(provider) == null || scheduler.getStats().get(provider).running() != running) {
+         Thread.sleep(10);
+      }
+   }
+
+   private void awaitQueueDepth(String provider, int depth) throws InterruptedException {
+      while (scheduler.getStats().get(provider).queueDepth() != depth) {
+         Thread.sleep(10);
+      }
+   }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.jclouds.compute.ComputeServiceAdapter.NodeAndInitialCredentials;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.HardwareBuilder;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.Processor;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.options.TemplateOptions;
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+public class VagrantMachinePoolTest {
+   private static final Map<String, Object> CONFIG = ImmutableMap.<String, Object>of(
+         VagrantConstants.CONFIG_BOX, "ubuntu/xenial64",
+         VagrantConstants.CONFIG_OS_FAMILY, OsFamily.UBUNTU,
+         VagrantConstants.CONFIG_HARDWARE_ID, "micro",
+         VagrantConstants.CONFIG_MEMORY, "512",
+         VagrantConstants.CONFIG_CPUS, "1");
+
+   private File home;
+   private Template template;
+
+   @BeforeMethod
+   public void setUp() {
+      home = Files.createTempDir();
+      OperatingSystem os = new OperatingSystem(OsFamily.UBUNTU, "Ubuntu", "16.04", "x64", "Ubuntu", true);
+      Image image = new ImageBuilder()
+            .ids("ubuntu/xenial64")
+            .name("ubuntu/xenial64")
+            .operatingSystem(os)
+            .status(Image.Status.AVAILABLE)
+            .userMetadata(ImmutableMap.of(VagrantConstants.USER_META_PROVIDER, "virtualbox"))
+            .build();
+      Hardware hardware = new HardwareBuilder().ids("micro").ram(512).processor(new Processor(1.0, 1)).build();
+      TemplateOptions options = TemplateOptions.Builder.tags(ImmutableSet.of("web"))
+            .userMetadata(ImmutableMap.of("owner", "jclouds"));
+      template = EasyMock.createMock(Template.class);
+      EasyMock.expect(template.getImage()).andReturn(image).anyTimes();
+      EasyMock.expect(template.getHardware()).andReturn(hardware).anyTimes();
+      EasyMock.expect(template.getOptions()).andReturn(options).anyTimes();
+      EasyMock.replay(template);
+   }
+
+   @AfterMethod
+   public void tearDown() {
+      VagrantUtils.deleteFolder(home);
+   }
+
+   @Test
+   public void testDisabled() {
+      VagrantMachinePool pool = newPool(0);
+      assertFalse(claim(pool, "node-1").isPresent());
+      assertFalse(new File(home, VagrantConstants.MACHINES_POOL_FOLDER).exists());
+   }
+
+   @Test
+   public void testClaimAndRefill() {
+      VagrantMachinePool pool = newPool(1);
+      assertFalse(claim(pool, "node-1").isPresent());
+      File poolMachines = new File(new File(home, VagrantConstants.MACHINES_POOL_FOLDER),
+            VagrantConstants.MACHINES_CONFIG_SUBFOLDER);
+      assertFalse(poolMachines.exists());
+      // Once the caller's machine is created
+      pool.refill(template, CONFIG);
+      assertEquals(poolMachines.list().length, 1);
+
+      Optional<NodeAndInitialCredentials<VagrantNode>> claimed = claim(pool, "node-2");
+      assertTrue(claimed.isPresent());
+      VagrantNode node = claimed.get().getNode();
+      assertEquals(node.id(), "group/node-2");
+      assertEquals(node.networks(), ImmutableList.of("172.28.128.3"));
+      assertEquals(node.hostname(), "vagrant-pool");
+      assertEquals(node.machineState(), Status.RUNNING);
+      assertEquals(node.tags(), ImmutableSet.of("web"));
+      assertEquals(node.userMetadata(), ImmutableMap.of("owner", "jclouds"));
+      assertEquals(claimed.get().getCredentials().getUser(), "vagrant");
+
+      File group = new File(home, "group");
+      assertTrue(new File(group, VagrantConstants.VAGRANTFILE).isFile());
+      assertEquals(new MachineConfig.Factory().newInstance(group, "node-2").load().get(VagrantConstants.CONFIG_BOX),
+            "ubuntu/xenial64");
+      File state = new File(group, VagrantConstants.VAGRANT_MACHINES_STATE_SUBFOLDER + "/node-2/virtualbox");
+      assertTrue(new File(state, "id").isFile());
+      assertFalse(new File(state, "index_uuid").exists());
+
+      assertEquals(poolMachines.list().length, 0);
+      pool.refill(template, CONFIG);
+      assertEquals(poolMachines.list().length, 1);
+   }
+
+   @Test
+   public void testReloadsPooledMachines() {
+      newPool(1).refill(template, CONFIG);
+      Optional<NodeAndInitialCredentials<VagrantNode>> claimed = claim(newPool(1), "node-2");
+      assertTrue(claimed.isPresent());
+      assertEquals(claimed.get().getNode().networks(), ImmutableList.of("172.28.128.3"));
+   }
+
+   private Optional<NodeAndInitialCredentials<VagrantNode>> claim(VagrantMachinePool pool, String name) {
+      return pool.claim(new File(home, "group"), "group", name, template, CONFIG);
+   }
+
+   private VagrantMachinePool newPool(int size) {
+      VagrantApiFacade.Factory cliFactory = new VagrantApiFacade.Factory() {
+         @Override
+         public VagrantApiFacade create(File path) {
+            return new FakeVagrant(path);
+         }
+      };
+      return new VagrantMachinePool(home.getAbsolutePath(), size, new MachineConfig.Factory(), cliFactory,
+            new VagrantCommandScheduler(), newDirectExecutorService());
+   }
+
+   private static class FakeVagrant implements VagrantApiFacade {
+      private final File path;
+
+      FakeVagrant(File path) {
+         this.path = path;
+      }
+
+      @Override
+      public String up(String machineName, String provider) {
+         File state = new File(path,
+               VagrantConstants.VAGRANT_MACHINES_STATE_SUBFOLDER + "/" + machineName + "/" + provider);
+         state.mkdirs();
+         try {
+            VagrantUtils.write(new File(state, "id"), "vm-id");
+            VagrantUtils.write(new File(state, "index_uuid"), "index-id");
+         } catch (IOException e) {
+            throw new IllegalStateException(e);
+         }
+         return "==> " + machineName + ": " + VagrantConstants.DELIMITER_NETWORKS_START + "\n"
+               + "==> " + machineName + ": inet 172.28.128.3/24 brd 172.28.128.255 scope global dynamic enp0s8\n"
+               + "==> " + machineName + ": " + VagrantConstants.DELIMITER_NETWORKS_END + "\n"
+               + "==> " + machineName + ": " + VagrantConstants.DELIMITER_HOSTNAME_START + "\n"
+               + "==> " + machineName + ": vagrant-pool\n"
+               + "==> " + machineName + ": " + VagrantConstants.DELIMITER_HOSTNAME_END + "\n";
+      }
+
+      @Override
+      public LoginCredentials sshConfig(String machineName) {
+         return LoginCredentials.builder().user("vagrant").password("vagrant").build();
+      }
+
+      @Override
+      public void halt(String machineName) {
+      }
+
+      @Override
+      public void destroy(String machineName) {
+      }
+
+      @Override
+      public void haltForced(String name) {
+      }
+
+      @Override
+      public boolean exists() {
+         return true;
+      }
+   }
+
+}
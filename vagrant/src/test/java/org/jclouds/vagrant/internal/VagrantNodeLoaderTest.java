@@ -27,6 +27,7 @@ import org.easymock.EasyMock;
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.HardwareBuilder;
 import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.NodeMetadata.Status;
 import org.jclouds.compute.domain.Processor;
 import org.jclouds.vagrant.domain.VagrantNode;
 import org.jclouds.vagrant.reference.VagrantConstants;
@@ -37,6 +38,7 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.io.Files;
 
@@ -61,7 +63,35 @@ public class VagrantNodeLoaderTest {
         doTest(hardwareConfig, expectedHardware);
     }
 
+    @Test
+    public void testSavedState() throws Exception {
+        ImmutableMap<String, Object> config = ImmutableMap.<String, Object>builder()
+                .put(VagrantConstants.CONFIG_HARDWARE_ID, "small")
+                .put(VagrantConstants.CONFIG_HOSTNAME, "vagrant-node")
+                .put(VagrantConstants.CONFIG_NETWORKS, "[\"172.28.128.3\",\"10.0.2.15\"]")
+                .put(VagrantConstants.CONFIG_STATUS, "SUSPENDED")
+                .put(VagrantConstants.CONFIG_TAGS, "[\"web\"]")
+                .put(VagrantConstants.CONFIG_METADATA, "{\"owner\":\"jclouds\"}")
+                .build();
+        Hardware expectedHardware = new HardwareBuilder().ids("small").ram(1024).processor(new Processor(1.0, 1)).build();
+
+        VagrantNode node = doTest(config, expectedHardware, VagrantNode.builder()
+                .setNetworks(ImmutableList.of("172.28.128.3", "10.0.2.15"))
+                .setHostname("vagrant-node")
+                .setTags(ImmutableSet.of("web"))
+                .setUserMetadata(ImmutableMap.of("owner", "jclouds")));
+        assertEquals(node.machineState(), Status.SUSPENDED);
+    }
+
     protected void doTest(ImmutableMap<String, Object> hardwareConfig, Hardware expectedHardware) throws IOException {
+        VagrantNode node = doTest(hardwareConfig, expectedHardware, VagrantNode.builder()
+                .setNetworks(ImmutableList.<String>of())
+                .setHostname("unknown"));
+        assertEquals(node.machineState(), Status.UNRECOGNIZED);
+    }
+
+    protected VagrantNode doTest(ImmutableMap<String, Object> hardwareConfig, Hardware expectedHardware,
+            VagrantNode.Builder expectedNodeBuilder) throws IOException {
         String groupName = "groupId";
         String machineName = "machineId";
 
@@ -95,22 +125,22 @@ public class VagrantNodeLoaderTest {
 
         EasyMock.replay(config, factory, imageSupplier, image, hardwareSupplier);
 
-        VagrantExistingMachines nodeLoader = new VagrantExistingMachines(home.getAbsolutePath(), factory, imageSupplier, hardwareSupplier);
+        VagrantExistingMachines nodeLoader = new VagrantExistingMachines(home.getAbsolutePath(), factory, imageSupplier, hardwareSupplier,
+                new VagrantNodeStore(factory));
         Collection<VagrantNode> nodes = nodeLoader.get();
 
         VagrantNode actualNode = Iterables.getOnlyElement(nodes);
-        VagrantNode expectedNode = VagrantNode.builder()
+        VagrantNode expectedNode = expectedNodeBuilder
                 .setPath(group)
                 .setId(group.getName() + "/" + machineName)
                 .setGroup(group.getName())
                 .setName(machineName)
                 .setImage(image)
                 .setHardware(expectedHardware)
-                .setNetworks(ImmutableList.<String>of())
-                .setHostname("unknown")
                 .build();
         assertEquals(actualNode, expectedNode);
         VagrantUtils.deleteFolder(home);
+        return actualNode;
     }
 
 }
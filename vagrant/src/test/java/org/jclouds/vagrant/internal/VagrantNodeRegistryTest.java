@@ -17,15 +17,19 @@
 package org.jclouds.vagrant.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 import org.easymock.EasyMock;
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.HardwareBuilder;
 import org.jclouds.compute.domain.Image;
 import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.NodeMetadata.Status;
 import org.jclouds.compute.domain.OperatingSystem;
 import org.jclouds.compute.domain.OsFamily;
 import org.jclouds.compute.domain.Processor;
@@ -41,8 +45,9 @@ public class VagrantNodeRegistryTest {
       VagrantExistingMachines loader = EasyMock.createMock(VagrantExistingMachines.class);
       EasyMock.expect(loader.get()).andReturn(ImmutableList.<VagrantNode>of());
       EasyMock.replay(loader);
+      VagrantNodeStore store = EasyMock.createMock(VagrantNodeStore.class);
 
-      VagrantNodeRegistry registry = new VagrantNodeRegistry(loader);
+      VagrantNodeRegistry registry = new VagrantNodeRegistry(loader, store);
       OperatingSystem os = new OperatingSystem(OsFamily.UNRECOGNIZED, "Jclouds OS", "10", "x64", "Jclouds Test Image", true);
       Image image = new ImageBuilder()
             .ids("jclouds/box")
@@ -62,11 +67,67 @@ public class VagrantNodeRegistryTest {
             .setHardware(hardware)
             .setHostname("vagrant-node")
             .build();
+      store.save(node);
+      store.saveStatus(node);
+      EasyMock.replay(store);
 
       assertNull(registry.get(node.id()));
       registry.add(node);
       assertEquals(registry.get(node.id()), node);
+      registry.setMachineState(node, Status.SUSPENDED);
+      assertEquals(node.machineState(), Status.SUSPENDED);
       registry.onTerminated(node);
       assertNull(registry.get(node.id()));
+      EasyMock.verify(store);
+   }
+
+   @Test
+   public void testAwaitCredentials() throws InterruptedException {
+      VagrantExistingMachines loader = EasyMock.createMock(VagrantExistingMachines.class);
+      EasyMock.replay(loader);
+      final VagrantNodeRegistry registry = new VagrantNodeRegistry(loader, EasyMock.createMock(VagrantNodeStore.class));
+
+      assertTrue(registry.awaitCredentials("vagrant/node", 0, TimeUnit.MILLISECONDS));
+
+      registry.beginCredentialsUpdate("vagrant/node");
+      registry.beginCredentialsUpdate("vagrant/node");
+      assertTrue(registry.awaitCredentials("vagrant/other", 0, TimeUnit.MILLISECONDS));
+      registry.endCredentialsUpdate("vagrant/node");
+      assertFalse(registry.awaitCredentials("vagrant/node", 10, TimeUnit.MILLISECONDS));
+
+      Thread updater = new Thread() {
+         @Override
+         public void run() {
+            registry.endCredentialsUpdate("vagrant/node");
+         }
+      };
+      updater.start();
+      assertTrue(registry.awaitCredentials("vagrant/node", 10, TimeUnit.SECONDS));
+      updater.join();
+   }
+
+   @Test
+   public void testTerminatedNodeHasNoPendingCredentials() throws InterruptedException {
+      VagrantExistingMachines loader = EasyMock.createMock(VagrantExistingMachines.class);
+      EasyMock.expect(loader.get()).andReturn(ImmutableList.<VagrantNode>of());
+      EasyMock.replay(loader);
+      VagrantNodeRegistry registry = new VagrantNodeRegistry(loader, EasyMock.createMock(VagrantNodeStore.class));
+      VagrantNode node = VagrantNode.builder()
+            .setPath(new File("/path/to/machine"))
+            .setId("vagrant/node")
+            .setGroup("vagrant")
+            .setName("node")
+            .setImage(new ImageBuilder().ids("jclouds/box")
+                  .operatingSystem(new OperatingSystem(OsFamily.UNRECOGNIZED, "Jclouds OS", "10", "x64", "Jclouds Test Image", true))
+                  .status(Image.Status.AVAILABLE).build())
+            .setNetworks(ImmutableList.<String>of())
+            .setHardware(new HardwareBuilder().ids("mini").ram(100).processor(new Processor(1.0, 1)).build())
+            .setHostname("vagrant-node")
+            .build();
+
+      // A node that failed before its credentials were saved
+      registry.beginCredentialsUpdate(node.id());
+      registry.onTerminated(node);
+      assertTrue(registry.awaitCredentials(node.id(), 0, TimeUnit.MILLISECONDS));
    }
 }
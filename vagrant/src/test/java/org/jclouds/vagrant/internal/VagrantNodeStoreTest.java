@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Map;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.HardwareBuilder;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.Processor;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+public class VagrantNodeStoreTest {
+
+   @Test
+   public void testSaveAndRestore() {
+      File home = Files.createTempDir();
+      MachineConfig.Factory machineConfigFactory = new MachineConfig.Factory();
+      VagrantNodeStore store = new VagrantNodeStore(machineConfigFactory);
+
+      OperatingSystem os = new OperatingSystem(OsFamily.UNRECOGNIZED, "Jclouds OS", "10", "x64", "Jclouds Test Image", true);
+      Image image = new ImageBuilder()
+            .ids("jclouds/box")
+            .operatingSystem(os)
+            .status(Image.Status.AVAILABLE)
+            .build();
+      Hardware hardware = new HardwareBuilder().ids("mini").ram(100).processor(new Processor(1.0, 1)).build();
+      VagrantNode node = VagrantNode.builder()
+            .setPath(home)
+            .setId("vagrant/node")
+            .setGroup("vagrant")
+            .setName("node")
+            .setImage(image)
+            .setHardware(hardware)
+            .setNetworks(ImmutableList.of("172.28.128.3", "10.0.2.15"))
+            .setHostname("vagrant-node")
+            .setTags(ImmutableSet.of("web", "with \"quotes\""))
+            .setUserMetadata(ImmutableMap.of("owner", "jclouds", "notes", "first: line\nsecond line"))
+            .build();
+      node.setMachineState(Status.RUNNING);
+      machineConfigFactory.newInstance(node).save(ImmutableMap.<String, Object>of(VagrantConstants.CONFIG_BOX, "jclouds/box"));
+
+      store.save(node);
+      node.setMachineState(Status.SUSPENDED);
+      store.saveStatus(node);
+
+      Map<String, Object> config = machineConfigFactory.newInstance(node).load();
+      assertEquals(config.get(VagrantConstants.CONFIG_BOX), "jclouds/box");
+
+      VagrantNode.Builder builder = VagrantNode.builder()
+            .setPath(home)
+            .setId("vagrant/node")
+            .setGroup("vagrant")
+            .setName("node")
+            .setImage(image)
+            .setHardware(hardware)
+            .setNetworks(ImmutableList.<String>of())
+            .setHostname("unknown");
+      assertEquals(store.restore(builder, config), Status.SUSPENDED);
+      assertEquals(builder.build(), node);
+      VagrantUtils.deleteFolder(home);
+   }
+
+   @Test
+   public void testRestoreWithoutState() {
+      VagrantNodeStore store = new VagrantNodeStore(new MachineConfig.Factory());
+      VagrantNode.Builder builder = VagrantNode.builder()
+            .setNetworks(ImmutableList.<String>of())
+            .setHostname("unknown");
+      assertEquals(store.restore(builder, ImmutableMap.of(VagrantConstants.CONFIG_BOX, "jclouds/box")),
+            Status.UNRECOGNIZED);
+   }
+
+}